@@ -19,8 +19,14 @@
  */
 package org.xhtmlrenderer.context;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.w3c.dom.Element;
 import org.xhtmlrenderer.css.extend.AttributeResolver;
+import org.xhtmlrenderer.css.extend.ClassAttributeResolver;
 import org.xhtmlrenderer.extend.NamespaceHandler;
 import org.xhtmlrenderer.extend.UserAgentCallback;
 import org.xhtmlrenderer.extend.UserInterface;
@@ -31,7 +37,9 @@ import org.xhtmlrenderer.extend.UserInterface;
  *
  * @author Torbjoern Gannholm
  */
-public class StandardAttributeResolver implements AttributeResolver {
+public class StandardAttributeResolver implements AttributeResolver, ClassAttributeResolver {
+    private static final String[] NO_CLASSES = new String[0];
+
     /**
      * Description of the Field
      */
@@ -45,6 +53,12 @@ public class StandardAttributeResolver implements AttributeResolver {
      */
     private UserInterface ui;
 
+    /**
+     * class attribute value -> the class names in it. Keyed by the value rather than by element, so that a changed
+     * attribute is simply looked up again and elements aren't kept once the document is gone.
+     */
+    private final Map classLists = new HashMap();
+
     /**
      * Constructor for the StandardAttributeResolver object
      *
@@ -83,6 +97,16 @@ public class StandardAttributeResolver implements AttributeResolver {
         return nsh.getClass((Element) e);
     }
 
+    public boolean hasClass(Object e, String className) {
+        String[] classes = getClassList(nsh.getClass((Element) e));
+        for (int i = 0; i < classes.length; i++) {
+            if (classes[i].equals(className)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Gets the iD attribute of the StandardAttributeResolver object
      *
@@ -166,5 +190,31 @@ public class StandardAttributeResolver implements AttributeResolver {
     public boolean isFocus(Object e) {
         return ui.isFocus((Element) e);
     }
-}
 
+    private String[] getClassList(String classAttribute) {
+        if (classAttribute == null) {
+            return NO_CLASSES;
+        }
+        String[] result = (String[]) classLists.get(classAttribute);
+        if (result == null) {
+            result = splitClasses(classAttribute);
+            classLists.put(classAttribute, result);
+        }
+        return result;
+    }
+
+    private static String[] splitClasses(String value) {
+        List result = new ArrayList();
+        int start = -1;
+        for (int i = 0; i <= value.length(); i++) {
+            boolean space = i == value.length() || value.charAt(i) <= ' ';
+            if (space && start != -1) {
+                result.add(value.substring(start, i));
+                start = -1;
+            } else if (! space && start == -1) {
+                start = i;
+            }
+        }
+        return result.isEmpty() ? NO_CLASSES : (String[]) result.toArray(new String[result.size()]);
+    }
+}
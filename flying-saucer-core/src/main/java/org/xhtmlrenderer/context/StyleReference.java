@@ -30,18 +30,26 @@ import java.util.logging.Level;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
+import org.w3c.dom.css.CSSPrimitiveValue;
 import org.xhtmlrenderer.css.constants.CSSName;
 import org.xhtmlrenderer.css.extend.AttributeResolver;
 import org.xhtmlrenderer.css.extend.lib.DOMTreeResolver;
 import org.xhtmlrenderer.css.newmatch.CascadedStyle;
 import org.xhtmlrenderer.css.newmatch.PageInfo;
+import org.xhtmlrenderer.css.parser.PropertyValue;
+import org.xhtmlrenderer.css.sheet.MediaRule;
+import org.xhtmlrenderer.css.sheet.PageRule;
 import org.xhtmlrenderer.css.sheet.PropertyDeclaration;
+import org.xhtmlrenderer.css.sheet.Ruleset;
 import org.xhtmlrenderer.css.sheet.Stylesheet;
 import org.xhtmlrenderer.css.sheet.StylesheetInfo;
 import org.xhtmlrenderer.extend.NamespaceHandler;
+import org.xhtmlrenderer.extend.RenderMetrics;
+import org.xhtmlrenderer.extend.ResourcePrefetcher;
 import org.xhtmlrenderer.extend.UserAgentCallback;
 import org.xhtmlrenderer.extend.UserInterface;
 import org.xhtmlrenderer.layout.SharedContext;
+import org.xhtmlrenderer.util.MetricsTimer;
 import org.xhtmlrenderer.util.XRLog;
 
 
@@ -103,17 +111,37 @@ public class StyleReference {
         _doc = doc;
         AttributeResolver attRes = new StandardAttributeResolver(_nsh, _uac, ui);
 
-        List infos = getStylesheets();
-        XRLog.match("media = " + _context.getMedia());
-        _matcher = new org.xhtmlrenderer.css.newmatch.Matcher(
-                new DOMTreeResolver(), 
-                attRes, 
-                _stylesheetFactory, 
-                readAndParseAll(infos, _context.getMedia()), 
-                _context.getMedia());
+        ResourcePrefetcher prefetcher = getPrefetcher();
+        if (prefetcher != null) {
+            prefetcher.clearPrefetched();
+        }
+
+        MetricsTimer timer = MetricsTimer.start(_context, RenderMetrics.PHASE_CSS);
+        try {
+            List infos = getStylesheets();
+            XRLog.match("media = " + _context.getMedia());
+            List sheets = readAndParseAll(infos, _context.getMedia());
+            _matcher = new org.xhtmlrenderer.css.newmatch.Matcher(
+                    new DOMTreeResolver(), 
+                    attRes, 
+                    _stylesheetFactory, 
+                    sheets, 
+                    _context.getMedia());
+
+            if (prefetcher != null) {
+                List uris = new ArrayList();
+                collectImageURIs(_doc.getDocumentElement(), uris);
+                collectStylesheetURIs(sheets, _context.getMedia(), uris);
+                prefetcher.prefetch(uris);
+            }
+        } finally {
+            timer.stop();
+        }
     }
     
     private List readAndParseAll(List infos, String medium) {
+        prefetchStylesheets(infos, medium);
+
         List result = new ArrayList(infos.size() + 15);
         for (Iterator i = infos.iterator(); i.hasNext(); ) {
             StylesheetInfo info = (StylesheetInfo)i.next();
@@ -139,6 +167,101 @@ public class StyleReference {
         return result;
     }
     
+    /**
+     * Returns the user agent if it fetches resources in the background, see {@link ResourcePrefetcher}.
+     */
+    private ResourcePrefetcher getPrefetcher() {
+        if (_uac instanceof ResourcePrefetcher && ((ResourcePrefetcher) _uac).isPrefetchEnabled()) {
+            return (ResourcePrefetcher) _uac;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Starts fetching the stylesheets which are about to be parsed, so that the linked stylesheets of a
+     * document, or the imports of a stylesheet, are loaded in parallel.
+     */
+    private void prefetchStylesheets(List infos, String medium) {
+        ResourcePrefetcher prefetcher = getPrefetcher();
+        if (prefetcher == null) {
+            return;
+        }
+        List uris = new ArrayList();
+        for (Iterator i = infos.iterator(); i.hasNext(); ) {
+            StylesheetInfo info = (StylesheetInfo) i.next();
+            if (info.appliesToMedia(medium) && info.getStylesheet() == null && info.getUri() != null &&
+                    ! _stylesheetFactory.containsStylesheet(info.getUri())) {
+                uris.add(info.getUri());
+            }
+        }
+        prefetcher.prefetch(uris);
+    }
+
+    private void collectImageURIs(Node node, List uris) {
+        for (Node n = node; n != null; n = n.getNextSibling()) {
+            if (n.getNodeType() == Node.ELEMENT_NODE) {
+                Element e = (Element) n;
+                if (_nsh.isImageElement(e)) {
+                    String uri = _nsh.getImageSourceURI(e);
+                    if (uri != null && uri.length() > 0) {
+                        uris.add(uri);
+                    }
+                }
+                collectImageURIs(n.getFirstChild(), uris);
+            }
+        }
+    }
+
+    /**
+     * Adds the URIs of all url() values in the stylesheets, e.g. of background and list images. Rules
+     * for other media are skipped, but a URI may still be fetched without being used, e.g. if no element
+     * matches its rule.
+     */
+    private void collectStylesheetURIs(List sheets, String medium, List uris) {
+        for (Iterator i = sheets.iterator(); i.hasNext(); ) {
+            Stylesheet sheet = (Stylesheet) i.next();
+            for (Iterator j = sheet.getContents().iterator(); j.hasNext(); ) {
+                Object content = j.next();
+                if (content instanceof Ruleset) {
+                    collectURIs(((Ruleset) content).getPropertyDeclarations(), uris);
+                } else if (content instanceof MediaRule) {
+                    MediaRule rule = (MediaRule) content;
+                    if (rule.matches(medium)) {
+                        for (Iterator k = rule.getContents().iterator(); k.hasNext(); ) {
+                            collectURIs(((Ruleset) k.next()).getPropertyDeclarations(), uris);
+                        }
+                    }
+                } else if (content instanceof PageRule) {
+                    PageRule rule = (PageRule) content;
+                    if (rule.getRuleset() != null) {
+                        collectURIs(rule.getRuleset().getPropertyDeclarations(), uris);
+                    }
+                    for (Iterator k = rule.getMarginBoxes().values().iterator(); k.hasNext(); ) {
+                        collectURIs((List) k.next(), uris);
+                    }
+                }
+            }
+        }
+    }
+
+    private void collectURIs(List declarations, List uris) {
+        for (Iterator i = declarations.iterator(); i.hasNext(); ) {
+            collectURIs(((PropertyDeclaration) i.next()).getValue(), uris);
+        }
+    }
+
+    private void collectURIs(CSSPrimitiveValue value, List uris) {
+        if (value.getPrimitiveType() == CSSPrimitiveValue.CSS_URI) {
+            uris.add(value.getStringValue());
+        } else if (value instanceof PropertyValue &&
+                ((PropertyValue) value).getPropertyValueType() == PropertyValue.VALUE_TYPE_LIST) {
+            for (Iterator i = ((PropertyValue) value).getValues().iterator(); i.hasNext(); ) {
+                collectURIs((CSSPrimitiveValue) i.next(), uris);
+            }
+        }
+    }
+
     /**
      * Description of the Method
      *
@@ -201,7 +324,13 @@ public class StyleReference {
      */
     public CascadedStyle getCascadedStyle(Element e, boolean restyle) {
         if (e == null) return CascadedStyle.emptyCascadedStyle;
-        return _matcher.getCascadedStyle(e, restyle);
+        // runs once per element, so only the time is measured
+        MetricsTimer timer = MetricsTimer.start(_context, RenderMetrics.PHASE_CASCADE, false);
+        try {
+            return _matcher.getCascadedStyle(e, restyle);
+        } finally {
+            timer.stop();
+        }
     }
     
     public PageInfo getPageStyle(String pageName, String pseudoPage) {
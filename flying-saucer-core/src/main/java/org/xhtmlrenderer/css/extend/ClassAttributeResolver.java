@@ -0,0 +1,40 @@
+/*
+ * ClassAttributeResolver.java
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ *
+ */
+package org.xhtmlrenderer.css.extend;
+
+
+/**
+ * May be implemented by an {@link AttributeResolver} which can test for a
+ * class without re-reading and splitting the class attribute each time. Class
+ * selectors use it when available and search
+ * {@link AttributeResolver#getClass(Object)} otherwise.
+ */
+public interface ClassAttributeResolver {
+
+    /**
+     * Returns true if <code>className</code> is one of the whitespace separated
+     * classes of the element. Called for every class selector tested against
+     * the element.
+     *
+     * @param e the element
+     * @param className the class to look for
+     * @return true if the element has the class
+     */
+    public boolean hasClass(Object e, String className);
+}
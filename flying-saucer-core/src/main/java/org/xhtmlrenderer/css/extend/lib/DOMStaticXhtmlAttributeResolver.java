@@ -25,12 +25,13 @@ import org.w3c.dom.Attr;
 import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
 import org.xhtmlrenderer.css.extend.AttributeResolver;
+import org.xhtmlrenderer.css.extend.ClassAttributeResolver;
 import org.xhtmlrenderer.css.extend.TreeResolver;
 
 /**
  * Works for Xhtml in a DOM tree
  */
-public class DOMStaticXhtmlAttributeResolver implements AttributeResolver {
+public class DOMStaticXhtmlAttributeResolver implements AttributeResolver, ClassAttributeResolver {
     public String getAttributeValue(Object e, String attrName) {
         return ((Element) e).getAttribute(attrName);
     }
@@ -63,6 +64,18 @@ public class DOMStaticXhtmlAttributeResolver implements AttributeResolver {
         return ((Element) e).getAttribute("class");
     }
 
+    public boolean hasClass(Object e, String className) {
+        String c = getClass(e);
+        int length = className.length();
+        for (int i = c.indexOf(className); i != -1; i = c.indexOf(className, i + 1)) {
+            if ((i == 0 || c.charAt(i - 1) <= ' ') &&
+                    (i + length == c.length() || c.charAt(i + length) <= ' ')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public String getID(Object e) {
         return ((Element) e).getAttribute("id");
     }
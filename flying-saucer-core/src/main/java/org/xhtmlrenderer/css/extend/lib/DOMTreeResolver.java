@@ -19,24 +19,44 @@
  */
 package org.xhtmlrenderer.css.extend.lib;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import org.xhtmlrenderer.dom.CompactElement;
 import org.xhtmlrenderer.css.extend.TreeResolver;
 
 /**
  * @author scott
  *         <p/>
  *         works for a w3c DOM tree
+ *         <p/>
+ *         The position of an element among its siblings (for :nth-child() and friends) is indexed for all children
+ *         of a parent the first time one of them is asked for. A cached position is only used while the parent
+ *         still has as many child nodes as when it was indexed and the element's sibling elements are indexed right
+ *         before and after it; otherwise the parent is indexed again. That catches elements being added or removed,
+ *         but not every move within a parent, so the {@link org.xhtmlrenderer.css.newmatch.Matcher} also drops the
+ *         index of an element's children when the element is restyled. The elements of a
+ *         {@link org.xhtmlrenderer.dom.CompactDocument} know their position and are answered directly.
  */
 public class DOMTreeResolver implements TreeResolver {
+    // parent node -> PositionIndex
+    private final Map _positionIndex = new IdentityHashMap();
+
     public Object getParentElement(Object element) {
+        if (element instanceof CompactElement) {
+            return ((CompactElement) element).getParentElement();
+        }
         Node parent = ((org.w3c.dom.Element) element).getParentNode();
         if (parent.getNodeType() != Node.ELEMENT_NODE) parent = null;
         return parent;
     }
 
     public Object getPreviousSiblingElement(Object element) {
+        if (element instanceof CompactElement) {
+            return ((CompactElement) element).getPreviousElementSibling();
+        }
         Node sibling = ((Element) element).getPreviousSibling();
         while (sibling != null && sibling.getNodeType() != Node.ELEMENT_NODE) {
             sibling = sibling.getPreviousSibling();
@@ -54,6 +74,9 @@ public class DOMTreeResolver implements TreeResolver {
     }
 
     public boolean isFirstChildElement(Object element) {
+        if (element instanceof CompactElement) {
+            return ((CompactElement) element).getElementPosition() == 0;
+        }
         org.w3c.dom.Node parent = ((org.w3c.dom.Element) element).getParentNode();
         Node currentChild = parent.getFirstChild();
         while (currentChild != null && currentChild.getNodeType() != Node.ELEMENT_NODE) {
@@ -63,6 +86,9 @@ public class DOMTreeResolver implements TreeResolver {
     }
 
     public boolean isLastChildElement(Object element) {
+        if (element instanceof CompactElement) {
+            return ((CompactElement) element).getNextElementSibling() == null;
+        }
         org.w3c.dom.Node parent = ((org.w3c.dom.Element) element).getParentNode();
         Node currentChild = parent.getLastChild();
         while (currentChild != null && currentChild.getNodeType() != Node.ELEMENT_NODE) {
@@ -92,23 +118,76 @@ public class DOMTreeResolver implements TreeResolver {
     }
     
     public int getPositionOfElement(Object element) {
-        org.w3c.dom.Node parent = ((org.w3c.dom.Element) element).getParentNode();
-        NodeList nl = parent.getChildNodes();
-
-        int elt_count = 0;
-        int i = 0;
-        while (i < nl.getLength()) {
-            if (nl.item(i).getNodeType() == org.w3c.dom.Node.ELEMENT_NODE) {
-                if(nl.item(i) == element) {
-                    return elt_count;
-                } else {
-                    elt_count++;
+        if (element instanceof CompactElement) {
+            return ((CompactElement) element).getElementPosition();
+        }
+        Node parent = ((Element) element).getParentNode();
+        PositionIndex index = (PositionIndex) _positionIndex.get(parent);
+        int position = index == null ? -1 : index.getPosition(parent, (Element) element);
+        if (position == -1) {
+            // not indexed yet, or the children changed since
+            index = new PositionIndex(parent);
+            _positionIndex.put(parent, index);
+            position = index.getPosition(parent, (Element) element);
+        }
+
+        return position; // -1 should not happen
+    }
+
+    /**
+     * Forgets the positions of the child elements of <code>parent</code>, e.g. because it is restyled after its
+     * children were changed.
+     */
+    public void clearPositions(Object parent) {
+        _positionIndex.remove(parent);
+    }
+
+    private static class PositionIndex {
+        private final int _childNodeCount;
+        // child element -> Integer position
+        private final Map _positions = new IdentityHashMap();
+
+        private PositionIndex(Node parent) {
+            _childNodeCount = parent.getChildNodes().getLength();
+            int count = 0;
+            for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+                if (n.getNodeType() == Node.ELEMENT_NODE) {
+                    _positions.put(n, new Integer(count++));
                 }
             }
-            i++;
         }
-        
-        //should not happen
-        return -1;
+
+        /**
+         * Returns the indexed position of <code>element</code>, or -1 if it isn't indexed or the index no longer
+         * matches the children of <code>parent</code>.
+         */
+        private int getPosition(Node parent, Element element) {
+            Integer position = (Integer) _positions.get(element);
+            if (position == null || parent.getChildNodes().getLength() != _childNodeCount) {
+                return -1;
+            }
+
+            Node previous = element.getPreviousSibling();
+            while (previous != null && previous.getNodeType() != Node.ELEMENT_NODE) {
+                previous = previous.getPreviousSibling();
+            }
+            Node next = element.getNextSibling();
+            while (next != null && next.getNodeType() != Node.ELEMENT_NODE) {
+                next = next.getNextSibling();
+            }
+            int result = position.intValue();
+            if (previous == null ? result != 0 : ! isAt(previous, result - 1)) {
+                return -1;
+            }
+            if (next != null && ! isAt(next, result + 1)) {
+                return -1;
+            }
+            return result;
+        }
+
+        private boolean isAt(Node sibling, int position) {
+            Integer indexed = (Integer) _positions.get(sibling);
+            return indexed != null && indexed.intValue() == position;
+        }
     }
 }
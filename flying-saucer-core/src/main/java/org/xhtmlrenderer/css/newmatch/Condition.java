@@ -25,6 +25,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.xhtmlrenderer.css.extend.AttributeResolver;
+import org.xhtmlrenderer.css.extend.ClassAttributeResolver;
 import org.xhtmlrenderer.css.extend.TreeResolver;
 import org.xhtmlrenderer.css.parser.CSSParseException;
 
@@ -301,9 +302,11 @@ abstract class Condition {
 
     private static class ClassCondition extends Condition {
 
+        private String _className;
         private String _paddedClassName;
 
         ClassCondition(String className) {
+            _className = className;
             _paddedClassName = " " + className + " ";
         }
 
@@ -311,6 +314,9 @@ abstract class Condition {
             if (attRes == null) {
                 return false;
             }
+            if (attRes instanceof ClassAttributeResolver) {
+                return ((ClassAttributeResolver) attRes).hasClass(e, _className);
+            }
             String c = attRes.getClass(e);
             if (c == null) {
                 return false;
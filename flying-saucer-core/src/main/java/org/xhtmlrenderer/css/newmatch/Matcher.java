@@ -34,6 +34,7 @@ import java.util.TreeMap;
 import org.xhtmlrenderer.css.extend.AttributeResolver;
 import org.xhtmlrenderer.css.extend.StylesheetFactory;
 import org.xhtmlrenderer.css.extend.TreeResolver;
+import org.xhtmlrenderer.css.extend.lib.DOMTreeResolver;
 import org.xhtmlrenderer.css.sheet.MediaRule;
 import org.xhtmlrenderer.css.sheet.PageRule;
 import org.xhtmlrenderer.css.sheet.Ruleset;
@@ -63,6 +64,8 @@ public class Matcher {
     private List _pageRules;
     private List _fontFaceRules;
     
+    private final Map _pageInfoCache = new HashMap();
+    
     public Matcher(
             TreeResolver tr, AttributeResolver ar, StylesheetFactory factory, List stylesheets, String medium) {
         newMaps();
@@ -85,6 +88,10 @@ public class Matcher {
             if (!restyle) {
                 em = getMapper(e);
             } else {
+                if (_treeRes instanceof DOMTreeResolver) {
+                    // the children may have been changed, and moves aren't always noticed
+                    ((DOMTreeResolver) _treeRes).clearPositions(e);
+                }
                 em = matchElement(e);
             }
             return em.getCascadedStyle(e);
@@ -102,7 +109,23 @@ public class Matcher {
         }
     }
     
-    public PageInfo getPageCascadedStyle(String pageName, String pseudoPage) {
+    /**
+     * Returns the cascaded page style for the given named page and page
+     * pseudo-class.  The @page rules do not change over the lifetime of a
+     * <code>Matcher</code> so the result is computed once per combination
+     * and reused for every subsequent page.
+     */
+    public synchronized PageInfo getPageCascadedStyle(String pageName, String pseudoPage) {
+        String key = (pageName == null ? "" : pageName) + ":" + pseudoPage;
+        PageInfo result = (PageInfo)_pageInfoCache.get(key);
+        if (result == null) {
+            result = createPageCascadedStyle(pageName, pseudoPage);
+            _pageInfoCache.put(key, result);
+        }
+        return result;
+    }
+    
+    private PageInfo createPageCascadedStyle(String pageName, String pseudoPage) {
         List props = new ArrayList();
         Map marginBoxes = new HashMap();
 
@@ -0,0 +1,127 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.dom;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.TypeInfo;
+
+/**
+ * An attribute of a {@link CompactDocument}. Attributes are stored in arrays of the document; an Attr is only
+ * created when one is asked for.
+ */
+final class CompactAttr extends CompactNode implements Attr {
+    final int _attr;
+
+    CompactAttr(CompactDocument document, int element, int attr) {
+        super(document, element);
+        _attr = attr;
+    }
+
+    public short getNodeType() {
+        return ATTRIBUTE_NODE;
+    }
+
+    public String getNodeName() {
+        return _document._qName[_document._attrName[_attr]];
+    }
+
+    public String getName() {
+        return getNodeName();
+    }
+
+    public String getNodeValue() {
+        return _document._attrValue[_attr];
+    }
+
+    public String getValue() {
+        return getNodeValue();
+    }
+
+    public String getTextContent() {
+        return getNodeValue();
+    }
+
+    public String getNamespaceURI() {
+        return _document._namespaceURI[_document._attrName[_attr]];
+    }
+
+    public String getPrefix() {
+        return _document._prefix[_document._attrName[_attr]];
+    }
+
+    public String getLocalName() {
+        return _document._localName[_document._attrName[_attr]];
+    }
+
+    public boolean getSpecified() {
+        return true;
+    }
+
+    public Element getOwnerElement() {
+        return (Element) _document._nodes[_index];
+    }
+
+    public boolean isId() {
+        return _document._idAttributes.get(_attr);
+    }
+
+    public TypeInfo getSchemaTypeInfo() {
+        return null;
+    }
+
+    public void setValue(String value) {
+        throw readOnly();
+    }
+
+    int getNamespaceContext() {
+        return _index;
+    }
+
+    // the value is not split into child nodes
+
+    public Node getParentNode() {
+        return null;
+    }
+
+    public NodeList getChildNodes() {
+        return new CompactNodeList(_document, -1);
+    }
+
+    public Node getFirstChild() {
+        return null;
+    }
+
+    public Node getLastChild() {
+        return null;
+    }
+
+    public Node getPreviousSibling() {
+        return null;
+    }
+
+    public Node getNextSibling() {
+        return null;
+    }
+
+    public boolean hasChildNodes() {
+        return false;
+    }
+}
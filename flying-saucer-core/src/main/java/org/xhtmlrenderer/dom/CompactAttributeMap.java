@@ -0,0 +1,69 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.dom;
+
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * The attributes of an element of a {@link CompactDocument}, ordered by name like those of the JDK DOM.
+ */
+final class CompactAttributeMap implements NamedNodeMap {
+    private final CompactDocument _document;
+    private final int _element;
+
+    CompactAttributeMap(CompactDocument document, int element) {
+        _document = document;
+        _element = element;
+    }
+
+    public Node getNamedItem(String name) {
+        return _document.getAttr(_element, _document.findAttribute(_element, name));
+    }
+
+    public Node getNamedItemNS(String namespaceURI, String localName) {
+        return _document.getAttr(_element, _document.findAttribute(_element, namespaceURI, localName));
+    }
+
+    public Node item(int index) {
+        if (index < 0 || index >= getLength()) {
+            return null;
+        }
+        return _document.getAttr(_element, _document._attrStart[_element] + index);
+    }
+
+    public int getLength() {
+        return _document._attrStart[_element + 1] - _document._attrStart[_element];
+    }
+
+    public Node setNamedItem(Node arg) {
+        throw CompactNode.readOnly();
+    }
+
+    public Node removeNamedItem(String name) {
+        throw CompactNode.readOnly();
+    }
+
+    public Node setNamedItemNS(Node arg) {
+        throw CompactNode.readOnly();
+    }
+
+    public Node removeNamedItemNS(String namespaceURI, String localName) {
+        throw CompactNode.readOnly();
+    }
+}
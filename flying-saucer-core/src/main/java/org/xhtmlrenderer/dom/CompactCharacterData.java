@@ -0,0 +1,74 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.dom;
+
+import org.w3c.dom.CharacterData;
+import org.w3c.dom.DOMException;
+
+/**
+ * Base class of the text and comment nodes of a {@link CompactDocument}.
+ */
+abstract class CompactCharacterData extends CompactNode implements CharacterData {
+    CompactCharacterData(CompactDocument document, int index) {
+        super(document, index);
+    }
+
+    public String getNodeValue() {
+        return _document._value[_index];
+    }
+
+    public String getData() {
+        return getNodeValue();
+    }
+
+    public String getTextContent() {
+        return getNodeValue();
+    }
+
+    public int getLength() {
+        return getData().length();
+    }
+
+    public String substringData(int offset, int count) {
+        String data = getData();
+        if (offset < 0 || offset > data.length() || count < 0) {
+            throw new DOMException(DOMException.INDEX_SIZE_ERR, "Offset or count out of range");
+        }
+        return data.substring(offset, Math.min(offset + count, data.length()));
+    }
+
+    public void setData(String data) {
+        throw readOnly();
+    }
+
+    public void appendData(String arg) {
+        throw readOnly();
+    }
+
+    public void insertData(int offset, String arg) {
+        throw readOnly();
+    }
+
+    public void deleteData(int offset, int count) {
+        throw readOnly();
+    }
+
+    public void replaceData(int offset, int count, String arg) {
+        throw readOnly();
+    }
+}
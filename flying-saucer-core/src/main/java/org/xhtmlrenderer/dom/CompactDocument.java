@@ -0,0 +1,525 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.dom;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.CDATASection;
+import org.w3c.dom.Comment;
+import org.w3c.dom.DOMConfiguration;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentFragment;
+import org.w3c.dom.DocumentType;
+import org.w3c.dom.Element;
+import org.w3c.dom.EntityReference;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.ProcessingInstruction;
+import org.w3c.dom.Text;
+
+/**
+ * <p>A read-only DOM document which keeps its tree in arrays instead of a graph of node objects. Each node is a
+ * small object holding only its index; parents, siblings, names, text and attributes are looked up in arrays
+ * shared by the whole document, and names are stored once per document. A large document takes about a quarter
+ * less memory than with the JDK DOM, most of the rest being its text, and the position of an element among its
+ * siblings is known without walking them. <code>getLastChild()</code> does walk the children.</p>
+ *
+ * <p>Documents are built from SAX events by {@link CompactDocumentBuilder}. Methods which would change the
+ * document throw a {@link DOMException}; ranges and traversal aren't supported, so text selection in a
+ * {@link org.xhtmlrenderer.swing.XHTMLPanel} doesn't work with a compact document.</p>
+ */
+public final class CompactDocument extends CompactNode implements Document {
+    static final DOMImplementation IMPLEMENTATION = new CompactDOMImplementation();
+
+    private static final String XMLNS_NAMESPACE = "http://www.w3.org/2000/xmlns/";
+
+    // indexed by node, -1 where there is no such node; node 0 is the document
+    final CompactNode[] _nodes;
+    final int[] _parent;
+    final int[] _firstChild;
+    final int[] _previousSibling;
+    final int[] _nextSibling;
+    // position of an element among the elements of its parent
+    final int[] _position;
+    // name of an element, target of a processing instruction
+    final int[] _name;
+    // data of text, comments and processing instructions
+    final String[] _value;
+    // the attributes of node i are _attrStart[i] to _attrStart[i + 1] - 1
+    final int[] _attrStart;
+
+    // indexed by attribute
+    final int[] _attrName;
+    final String[] _attrValue;
+    final BitSet _idAttributes;
+
+    // indexed by name
+    final String[] _qName;
+    final String[] _namespaceURI;
+    final String[] _localName;
+    final String[] _prefix;
+
+    private final Map _elementsById;
+    private final String _documentURI;
+    private final String _inputEncoding;
+    private final String _xmlVersion;
+
+    private final Object _lock = new Object();
+    private CompactAttr[] _attrNodes;
+    private Map _userData;
+
+    CompactDocument(CompactDocumentBuilder builder) {
+        super(null, 0);
+        int count = builder._nodeCount;
+        _parent = Arrays.copyOf(builder._parent, count);
+        _firstChild = Arrays.copyOf(builder._firstChild, count);
+        _previousSibling = Arrays.copyOf(builder._previousSibling, count);
+        _nextSibling = Arrays.copyOf(builder._nextSibling, count);
+        _position = Arrays.copyOf(builder._position, count);
+        _name = Arrays.copyOf(builder._name, count);
+        _value = Arrays.copyOf(builder._value, count);
+        _attrStart = Arrays.copyOf(builder._attrStart, count + 1);
+        _attrStart[count] = builder._attrCount;
+
+        _attrName = Arrays.copyOf(builder._attrName, builder._attrCount);
+        _attrValue = Arrays.copyOf(builder._attrValue, builder._attrCount);
+        _idAttributes = builder._idAttributes;
+
+        int names = builder._nameCount;
+        _qName = Arrays.copyOf(builder._qName, names);
+        _namespaceURI = Arrays.copyOf(builder._namespaceURI, names);
+        _localName = Arrays.copyOf(builder._localName, names);
+        _prefix = Arrays.copyOf(builder._prefix, names);
+
+        _documentURI = builder._documentURI;
+        _inputEncoding = builder._inputEncoding;
+        _xmlVersion = builder._xmlVersion;
+
+        _nodes = new CompactNode[count];
+        _nodes[0] = this;
+        for (int i = 1; i < count; i++) {
+            switch (builder._type[i]) {
+                case ELEMENT_NODE:
+                    _nodes[i] = new CompactElement(this, i);
+                    break;
+                case TEXT_NODE:
+                    _nodes[i] = new CompactText(this, i);
+                    break;
+                case COMMENT_NODE:
+                    _nodes[i] = new CompactComment(this, i);
+                    break;
+                case PROCESSING_INSTRUCTION_NODE:
+                    _nodes[i] = new CompactProcessingInstruction(this, i);
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected node type " + builder._type[i]);
+            }
+        }
+
+        _elementsById = new HashMap();
+        for (int i = _idAttributes.nextSetBit(0); i >= 0; i = _idAttributes.nextSetBit(i + 1)) {
+            int element = owner(i);
+            if (! _elementsById.containsKey(_attrValue[i])) {
+                _elementsById.put(_attrValue[i], _nodes[element]);
+            }
+        }
+    }
+
+    int lastChild(int index) {
+        int last = _firstChild[index];
+        while (last != -1 && _nextSibling[last] != -1) {
+            last = _nextSibling[last];
+        }
+        return last;
+    }
+
+    Node node(int index) {
+        return index == -1 ? null : _nodes[index];
+    }
+
+    /**
+     * Returns the index of the first node after the descendants of a node. The nodes are stored in document
+     * order, so the descendants are the nodes between the two.
+     */
+    int subtreeEnd(int index) {
+        for (int i = index; i != -1; i = _parent[i]) {
+            if (_nextSibling[i] != -1) {
+                return _nextSibling[i];
+            }
+        }
+        return _nodes.length;
+    }
+
+    private int owner(int attr) {
+        int low = 0;
+        int high = _nodes.length - 1;
+        // the last node whose attributes start at or before attr
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (_attrStart[middle] <= attr) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    String getText(int index) {
+        int end = subtreeEnd(index);
+        StringBuffer result = null;
+        String text = "";
+        for (int i = index + 1; i < end; i++) {
+            if (_nodes[i] instanceof CompactText) {
+                if (text.length() == 0) {
+                    text = _value[i];
+                } else {
+                    if (result == null) {
+                        result = new StringBuffer(text);
+                    }
+                    result.append(_value[i]);
+                }
+            }
+        }
+        return result == null ? text : result.toString();
+    }
+
+    int findAttribute(int element, String name) {
+        for (int i = _attrStart[element], end = _attrStart[element + 1]; i < end; i++) {
+            if (_qName[_attrName[i]].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    int findAttribute(int element, String namespaceURI, String localName) {
+        if (namespaceURI != null && namespaceURI.length() == 0) {
+            namespaceURI = null;
+        }
+        for (int i = _attrStart[element], end = _attrStart[element + 1]; i < end; i++) {
+            int name = _attrName[i];
+            if (localName.equals(_localName[name]) && equal(_namespaceURI[name], namespaceURI)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    Attr getAttr(int element, int attr) {
+        if (attr == -1) {
+            return null;
+        }
+        synchronized (_lock) {
+            if (_attrNodes == null) {
+                _attrNodes = new CompactAttr[_attrValue.length];
+            }
+            if (_attrNodes[attr] == null) {
+                _attrNodes[attr] = new CompactAttr(this, element, attr);
+            }
+            return _attrNodes[attr];
+        }
+    }
+
+    NodeList getElementsByTagName(int root, String namespaceURI, String name, boolean namespaceAware) {
+        boolean anyName = name.equals("*");
+        boolean anyNamespace = "*".equals(namespaceURI);
+        if (namespaceURI != null && namespaceURI.length() == 0) {
+            namespaceURI = null;
+        }
+
+        int[] result = new int[16];
+        int count = 0;
+        for (int i = root + 1, end = subtreeEnd(root); i < end; i++) {
+            if (! (_nodes[i] instanceof CompactElement)) {
+                continue;
+            }
+            int n = _name[i];
+            boolean matches;
+            if (namespaceAware) {
+                matches = (anyName || name.equals(_localName[n])) &&
+                        (anyNamespace || equal(namespaceURI, _namespaceURI[n]));
+            } else {
+                matches = anyName || name.equals(_qName[n]);
+            }
+            if (matches) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = i;
+            }
+        }
+        return new CompactElementList(this, result, count);
+    }
+
+    private int parentElement(int element) {
+        int parent = _parent[element];
+        return parent > 0 && _nodes[parent] instanceof CompactElement ? parent : -1;
+    }
+
+    String lookupNamespaceURI(int element, String prefix) {
+        for (int e = element; e > 0; e = parentElement(e)) {
+            int name = _name[e];
+            if (_namespaceURI[name] != null && equal(_prefix[name], prefix)) {
+                return _namespaceURI[name];
+            }
+            for (int i = _attrStart[e], end = _attrStart[e + 1]; i < end; i++) {
+                int n = _attrName[i];
+                if (XMLNS_NAMESPACE.equals(_namespaceURI[n]) &&
+                        (prefix == null ?
+                                _prefix[n] == null :
+                                "xmlns".equals(_prefix[n]) && prefix.equals(_localName[n]))) {
+                    return _attrValue[i].length() == 0 ? null : _attrValue[i];
+                }
+            }
+        }
+        return null;
+    }
+
+    String lookupPrefix(int element, String namespaceURI) {
+        if (namespaceURI == null) {
+            return null;
+        }
+        for (int e = element; e > 0; e = parentElement(e)) {
+            int name = _name[e];
+            if (namespaceURI.equals(_namespaceURI[name]) && _prefix[name] != null) {
+                return _prefix[name];
+            }
+            for (int i = _attrStart[e], end = _attrStart[e + 1]; i < end; i++) {
+                int n = _attrName[i];
+                if (XMLNS_NAMESPACE.equals(_namespaceURI[n]) && "xmlns".equals(_prefix[n]) &&
+                        namespaceURI.equals(_attrValue[i])) {
+                    return _localName[n];
+                }
+            }
+        }
+        return null;
+    }
+
+    Object setUserData(Node node, String key, Object data) {
+        synchronized (_lock) {
+            if (_userData == null) {
+                _userData = new IdentityHashMap();
+            }
+            Map values = (Map) _userData.get(node);
+            if (values == null) {
+                values = new HashMap();
+                _userData.put(node, values);
+            }
+            return data == null ? values.remove(key) : values.put(key, data);
+        }
+    }
+
+    Object getUserData(Node node, String key) {
+        synchronized (_lock) {
+            Map values = _userData == null ? null : (Map) _userData.get(node);
+            return values == null ? null : values.get(key);
+        }
+    }
+
+    private static boolean equal(String s1, String s2) {
+        return s1 == null ? s2 == null : s1.equals(s2);
+    }
+
+    int getNamespaceContext() {
+        Element root = getDocumentElement();
+        return root == null ? -1 : ((CompactElement) root)._index;
+    }
+
+    public short getNodeType() {
+        return DOCUMENT_NODE;
+    }
+
+    public String getNodeName() {
+        return "#document";
+    }
+
+    public Document getOwnerDocument() {
+        return null;
+    }
+
+    public String getTextContent() {
+        return null;
+    }
+
+    public DocumentType getDoctype() {
+        return null;
+    }
+
+    public DOMImplementation getImplementation() {
+        return IMPLEMENTATION;
+    }
+
+    public Element getDocumentElement() {
+        for (int i = _firstChild[0]; i != -1; i = _nextSibling[i]) {
+            if (_nodes[i] instanceof CompactElement) {
+                return (Element) _nodes[i];
+            }
+        }
+        return null;
+    }
+
+    public NodeList getElementsByTagName(String tagname) {
+        return getElementsByTagName(0, null, tagname, false);
+    }
+
+    public NodeList getElementsByTagNameNS(String namespaceURI, String localName) {
+        return getElementsByTagName(0, namespaceURI, localName, true);
+    }
+
+    /**
+     * Returns the element with an attribute of type ID with the given value. As with the JDK DOM, only attributes
+     * declared as IDs in the DTD are found.
+     */
+    public Element getElementById(String elementId) {
+        return (Element) _elementsById.get(elementId);
+    }
+
+    public String getInputEncoding() {
+        return _inputEncoding;
+    }
+
+    public String getXmlEncoding() {
+        return null;
+    }
+
+    public boolean getXmlStandalone() {
+        return false;
+    }
+
+    public String getXmlVersion() {
+        return _xmlVersion;
+    }
+
+    public boolean getStrictErrorChecking() {
+        return true;
+    }
+
+    public void setStrictErrorChecking(boolean strictErrorChecking) {
+        // nothing can be changed anyway
+    }
+
+    public String getDocumentURI() {
+        return _documentURI;
+    }
+
+    public DOMConfiguration getDomConfig() {
+        return null;
+    }
+
+    public void normalizeDocument() {
+        // already normal
+    }
+
+    public Element createElement(String tagName) {
+        throw notSupported();
+    }
+
+    public DocumentFragment createDocumentFragment() {
+        throw notSupported();
+    }
+
+    public Text createTextNode(String data) {
+        throw notSupported();
+    }
+
+    public Comment createComment(String data) {
+        throw notSupported();
+    }
+
+    public CDATASection createCDATASection(String data) {
+        throw notSupported();
+    }
+
+    public ProcessingInstruction createProcessingInstruction(String target, String data) {
+        throw notSupported();
+    }
+
+    public Attr createAttribute(String name) {
+        throw notSupported();
+    }
+
+    public EntityReference createEntityReference(String name) {
+        throw notSupported();
+    }
+
+    public Element createElementNS(String namespaceURI, String qualifiedName) {
+        throw notSupported();
+    }
+
+    public Attr createAttributeNS(String namespaceURI, String qualifiedName) {
+        throw notSupported();
+    }
+
+    public Node importNode(Node importedNode, boolean deep) {
+        throw notSupported();
+    }
+
+    public Node adoptNode(Node source) {
+        throw readOnly();
+    }
+
+    public Node renameNode(Node n, String namespaceURI, String qualifiedName) {
+        throw readOnly();
+    }
+
+    public void setXmlStandalone(boolean xmlStandalone) {
+        throw readOnly();
+    }
+
+    public void setXmlVersion(String xmlVersion) {
+        throw readOnly();
+    }
+
+    public void setDocumentURI(String documentURI) {
+        throw readOnly();
+    }
+
+    private static class CompactDOMImplementation implements DOMImplementation {
+        public boolean hasFeature(String feature, String version) {
+            if (feature == null) {
+                return false;
+            }
+            if (feature.startsWith("+")) {
+                feature = feature.substring(1);
+            }
+            return (feature.equalsIgnoreCase("Core") || feature.equalsIgnoreCase("XML")) &&
+                    (version == null || version.length() == 0 ||
+                            version.equals("1.0") || version.equals("2.0") || version.equals("3.0"));
+        }
+
+        public Object getFeature(String feature, String version) {
+            return hasFeature(feature, version) ? this : null;
+        }
+
+        public DocumentType createDocumentType(String qualifiedName, String publicId, String systemId) {
+            throw notSupported();
+        }
+
+        public Document createDocument(String namespaceURI, String qualifiedName, DocumentType doctype) {
+            throw notSupported();
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.dom;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * <p>Builds a {@link CompactDocument} from SAX events. The document has the same nodes as one built by an
+ * identity transformation into a <code>DOMResult</code>, see {@link SAXDocumentBuilder}; in addition all
+ * <code>xmlns</code> attributes are in the <code>http://www.w3.org/2000/xmlns/</code> namespace.</p>
+ * <pre>
+ * Document doc = CompactDocumentBuilder.parse(xmlReader, new InputSource(url));
+ * </pre>
+ */
+public class CompactDocumentBuilder extends SAXDocumentBuilder {
+    private static final String XMLNS_NAMESPACE = "http://www.w3.org/2000/xmlns/";
+
+    // read by CompactDocument, see there
+    int _nodeCount;
+    byte[] _type = new byte[64];
+    int[] _parent = new int[64];
+    int[] _firstChild = new int[64];
+    // the last child of each node, while it is built
+    private int[] _lastChild = new int[64];
+    int[] _previousSibling = new int[64];
+    int[] _nextSibling = new int[64];
+    int[] _position = new int[64];
+    int[] _name = new int[64];
+    String[] _value = new String[64];
+    int[] _attrStart = new int[64];
+
+    int _attrCount;
+    int[] _attrName = new int[64];
+    String[] _attrValue = new String[64];
+    BitSet _idAttributes = new BitSet();
+
+    int _nameCount;
+    String[] _qName = new String[32];
+    String[] _namespaceURI = new String[32];
+    String[] _localName = new String[32];
+    String[] _prefix = new String[32];
+    private int[] _nextName = new int[32];
+    // qualified name -> Integer, the last name added with it
+    private final Map _names = new HashMap();
+
+    String _documentURI;
+    String _inputEncoding;
+    String _xmlVersion = "1.0";
+
+    // the open elements, the document at the bottom
+    private int[] _open = new int[16];
+    // the number of child elements of each open element so far
+    private int[] _childElements = new int[16];
+    private int _depth;
+    private CompactDocument _document;
+
+    /**
+     * Parses a document.
+     *
+     * @param xmlReader the reader to parse with; its content and lexical handlers are replaced
+     * @param source the document
+     * @return the document
+     * @throws IOException if the document can't be read
+     * @throws SAXException if the document can't be parsed
+     */
+    public static Document parse(XMLReader xmlReader, InputSource source) throws IOException, SAXException {
+        return new CompactDocumentBuilder().build(xmlReader, source);
+    }
+
+    /**
+     * Returns the document once it has been parsed.
+     *
+     * @return the document, or null if parsing hasn't finished
+     */
+    public Document getDocument() {
+        return _document;
+    }
+
+    protected void createDocument(String documentURI) {
+        _documentURI = documentURI;
+        addNode(Node.DOCUMENT_NODE, -1);
+        _open[0] = 0;
+        _childElements[0] = 0;
+        _depth = 1;
+    }
+
+    protected void finishDocument() {
+        _document = new CompactDocument(this);
+    }
+
+    protected void setDocumentInfo(String xmlVersion, String inputEncoding) {
+        _inputEncoding = inputEncoding;
+        if (xmlVersion != null) {
+            _xmlVersion = xmlVersion;
+        }
+    }
+
+    protected void addElement(String uri, String qName, List namespaces, Attributes atts) {
+        int parent = _open[_depth - 1];
+        int element = addNode(Node.ELEMENT_NODE, parent);
+        _name[element] = name(uri, qName.substring(qName.indexOf(':') + 1), qName);
+        _position[element] = _childElements[_depth - 1]++;
+
+        for (int i = 0; i < namespaces.size(); i += 2) {
+            String prefix = (String) namespaces.get(i);
+            String value = (String) namespaces.get(i + 1);
+            if (prefix.length() == 0) {
+                addAttribute(name(XMLNS_NAMESPACE, "xmlns", "xmlns"), value);
+            } else {
+                addAttribute(name(XMLNS_NAMESPACE, prefix, "xmlns:" + prefix), value);
+            }
+        }
+        int start = _attrStart[element];
+        for (int i = 0; i < atts.getLength(); i++) {
+            String attrQName = atts.getQName(i);
+            if (attrQName.startsWith("xmlns") && findAttribute(start, attrQName) != -1) {
+                // already added from the prefix mapping
+                continue;
+            }
+            String attrLocalName = atts.getLocalName(i);
+            int name = attrLocalName.length() == 0 ?
+                    name(null, null, attrQName) : name(atts.getURI(i), attrLocalName, attrQName);
+            addAttribute(name, atts.getValue(i));
+            if ("ID".equals(atts.getType(i))) {
+                _idAttributes.set(_attrCount - 1);
+            }
+        }
+        sortAttributes(start);
+
+        if (_depth == _open.length) {
+            _open = Arrays.copyOf(_open, _depth * 2);
+            _childElements = Arrays.copyOf(_childElements, _depth * 2);
+        }
+        _open[_depth] = element;
+        _childElements[_depth] = 0;
+        _depth++;
+    }
+
+    protected void closeElement() {
+        _depth--;
+    }
+
+    protected void addText(String text) {
+        int node = addNode(Node.TEXT_NODE, _open[_depth - 1]);
+        _value[node] = text;
+    }
+
+    protected void addProcessingInstruction(String target, String data) {
+        int pi = addNode(Node.PROCESSING_INSTRUCTION_NODE, _open[_depth - 1]);
+        _name[pi] = name(null, null, target);
+        _value[pi] = data;
+    }
+
+    protected void addComment(String data) {
+        int comment = addNode(Node.COMMENT_NODE, _open[_depth - 1]);
+        _value[comment] = data;
+    }
+
+    private int addNode(short type, int parent) {
+        int node = _nodeCount;
+        if (node == _type.length) {
+            int capacity = node * 2;
+            _type = Arrays.copyOf(_type, capacity);
+            _parent = Arrays.copyOf(_parent, capacity);
+            _firstChild = Arrays.copyOf(_firstChild, capacity);
+            _lastChild = Arrays.copyOf(_lastChild, capacity);
+            _previousSibling = Arrays.copyOf(_previousSibling, capacity);
+            _nextSibling = Arrays.copyOf(_nextSibling, capacity);
+            _position = Arrays.copyOf(_position, capacity);
+            _name = Arrays.copyOf(_name, capacity);
+            _value = Arrays.copyOf(_value, capacity);
+            _attrStart = Arrays.copyOf(_attrStart, capacity);
+        }
+        _nodeCount++;
+
+        _type[node] = (byte) type;
+        _parent[node] = parent;
+        _firstChild[node] = -1;
+        _lastChild[node] = -1;
+        _nextSibling[node] = -1;
+        _position[node] = -1;
+        _name[node] = -1;
+        _attrStart[node] = _attrCount;
+        if (parent == -1) {
+            _previousSibling[node] = -1;
+        } else {
+            int previous = _lastChild[parent];
+            _previousSibling[node] = previous;
+            if (previous == -1) {
+                _firstChild[parent] = node;
+            } else {
+                _nextSibling[previous] = node;
+            }
+            _lastChild[parent] = node;
+        }
+        return node;
+    }
+
+    private void addAttribute(int name, String value) {
+        if (_attrCount == _attrName.length) {
+            _attrName = Arrays.copyOf(_attrName, _attrCount * 2);
+            _attrValue = Arrays.copyOf(_attrValue, _attrCount * 2);
+        }
+        _attrName[_attrCount] = name;
+        _attrValue[_attrCount] = value;
+        _attrCount++;
+    }
+
+    private int findAttribute(int start, String qName) {
+        for (int i = start; i < _attrCount; i++) {
+            if (_qName[_attrName[i]].equals(qName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sorts the attributes of the element just added by name, the order the JDK DOM keeps them in.
+     */
+    private void sortAttributes(int start) {
+        for (int i = start + 1; i < _attrCount; i++) {
+            int name = _attrName[i];
+            String value = _attrValue[i];
+            boolean id = _idAttributes.get(i);
+            int j = i;
+            while (j > start && _qName[_attrName[j - 1]].compareTo(_qName[name]) > 0) {
+                _attrName[j] = _attrName[j - 1];
+                _attrValue[j] = _attrValue[j - 1];
+                _idAttributes.set(j, _idAttributes.get(j - 1));
+                j--;
+            }
+            _attrName[j] = name;
+            _attrValue[j] = value;
+            _idAttributes.set(j, id);
+        }
+    }
+
+    /**
+     * Returns the index of a name in the name table, adding it if needed.
+     *
+     * @param localName the local name, or null for a name without namespace support (a DOM level 1 name)
+     */
+    private int name(String namespaceURI, String localName, String qName) {
+        if (namespaceURI != null && namespaceURI.length() == 0) {
+            namespaceURI = null;
+        }
+        Integer last = (Integer) _names.get(qName);
+        for (int i = last == null ? -1 : last.intValue(); i != -1; i = _nextName[i]) {
+            if ((namespaceURI == null ? _namespaceURI[i] == null : namespaceURI.equals(_namespaceURI[i])) &&
+                    (localName == null) == (_localName[i] == null)) {
+                return i;
+            }
+        }
+
+        int name = _nameCount;
+        if (name == _qName.length) {
+            int capacity = name * 2;
+            _qName = Arrays.copyOf(_qName, capacity);
+            _namespaceURI = Arrays.copyOf(_namespaceURI, capacity);
+            _localName = Arrays.copyOf(_localName, capacity);
+            _prefix = Arrays.copyOf(_prefix, capacity);
+            _nextName = Arrays.copyOf(_nextName, capacity);
+        }
+        _nameCount++;
+
+        int colon = qName.indexOf(':');
+        _qName[name] = qName;
+        _namespaceURI[name] = namespaceURI;
+        _prefix[name] = colon == -1 || localName == null ? null : qName.substring(0, colon);
+        _localName[name] = localName;
+        _nextName[name] = last == null ? -1 : last.intValue();
+        _names.put(qName, new Integer(name));
+        return name;
+    }
+}
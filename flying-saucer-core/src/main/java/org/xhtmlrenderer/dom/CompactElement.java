@@ -0,0 +1,193 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.dom;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.TypeInfo;
+
+/**
+ * An element of a {@link CompactDocument}. Besides the DOM methods it answers the questions of the CSS matcher
+ * directly, without walking its siblings.
+ */
+public final class CompactElement extends CompactNode implements Element {
+    CompactElement(CompactDocument document, int index) {
+        super(document, index);
+    }
+
+    public short getNodeType() {
+        return ELEMENT_NODE;
+    }
+
+    public String getNodeName() {
+        return _document._qName[_document._name[_index]];
+    }
+
+    public String getTagName() {
+        return getNodeName();
+    }
+
+    public String getNamespaceURI() {
+        return _document._namespaceURI[_document._name[_index]];
+    }
+
+    public String getPrefix() {
+        return _document._prefix[_document._name[_index]];
+    }
+
+    public String getLocalName() {
+        return _document._localName[_document._name[_index]];
+    }
+
+    int getNamespaceContext() {
+        return _index;
+    }
+
+    /**
+     * Returns the parent of this element if it is an element.
+     *
+     * @return the parent element, or null for the document element
+     */
+    public CompactElement getParentElement() {
+        int parent = _document._parent[_index];
+        return parent > 0 ? (CompactElement) _document._nodes[parent] : null;
+    }
+
+    /**
+     * Returns the element before this one among the children of its parent.
+     *
+     * @return the previous element, or null if this is the first element
+     */
+    public CompactElement getPreviousElementSibling() {
+        int sibling = _document._previousSibling[_index];
+        while (sibling != -1 && ! (_document._nodes[sibling] instanceof CompactElement)) {
+            sibling = _document._previousSibling[sibling];
+        }
+        return sibling == -1 ? null : (CompactElement) _document._nodes[sibling];
+    }
+
+    /**
+     * Returns the element after this one among the children of its parent.
+     *
+     * @return the next element, or null if this is the last element
+     */
+    public CompactElement getNextElementSibling() {
+        int sibling = _document._nextSibling[_index];
+        while (sibling != -1 && ! (_document._nodes[sibling] instanceof CompactElement)) {
+            sibling = _document._nextSibling[sibling];
+        }
+        return sibling == -1 ? null : (CompactElement) _document._nodes[sibling];
+    }
+
+    /**
+     * Returns the position of this element among the elements of its parent.
+     *
+     * @return the 0 indexed position
+     */
+    public int getElementPosition() {
+        return _document._position[_index];
+    }
+
+    public NamedNodeMap getAttributes() {
+        return new CompactAttributeMap(_document, _index);
+    }
+
+    public boolean hasAttributes() {
+        return _document._attrStart[_index + 1] > _document._attrStart[_index];
+    }
+
+    public String getAttribute(String name) {
+        int attr = _document.findAttribute(_index, name);
+        return attr == -1 ? "" : _document._attrValue[attr];
+    }
+
+    public String getAttributeNS(String namespaceURI, String localName) {
+        int attr = _document.findAttribute(_index, namespaceURI, localName);
+        return attr == -1 ? "" : _document._attrValue[attr];
+    }
+
+    public Attr getAttributeNode(String name) {
+        return _document.getAttr(_index, _document.findAttribute(_index, name));
+    }
+
+    public Attr getAttributeNodeNS(String namespaceURI, String localName) {
+        return _document.getAttr(_index, _document.findAttribute(_index, namespaceURI, localName));
+    }
+
+    public boolean hasAttribute(String name) {
+        return _document.findAttribute(_index, name) != -1;
+    }
+
+    public boolean hasAttributeNS(String namespaceURI, String localName) {
+        return _document.findAttribute(_index, namespaceURI, localName) != -1;
+    }
+
+    public NodeList getElementsByTagName(String name) {
+        return _document.getElementsByTagName(_index, null, name, false);
+    }
+
+    public NodeList getElementsByTagNameNS(String namespaceURI, String localName) {
+        return _document.getElementsByTagName(_index, namespaceURI, localName, true);
+    }
+
+    public TypeInfo getSchemaTypeInfo() {
+        return null;
+    }
+
+    public void setAttribute(String name, String value) {
+        throw readOnly();
+    }
+
+    public void removeAttribute(String name) {
+        throw readOnly();
+    }
+
+    public Attr setAttributeNode(Attr newAttr) {
+        throw readOnly();
+    }
+
+    public Attr removeAttributeNode(Attr oldAttr) {
+        throw readOnly();
+    }
+
+    public void setAttributeNS(String namespaceURI, String qualifiedName, String value) {
+        throw readOnly();
+    }
+
+    public void removeAttributeNS(String namespaceURI, String localName) {
+        throw readOnly();
+    }
+
+    public Attr setAttributeNodeNS(Attr newAttr) {
+        throw readOnly();
+    }
+
+    public void setIdAttribute(String name, boolean isId) {
+        throw readOnly();
+    }
+
+    public void setIdAttributeNS(String namespaceURI, String localName, boolean isId) {
+        throw readOnly();
+    }
+
+    public void setIdAttributeNode(Attr idAttr, boolean isId) {
+        throw readOnly();
+    }
+}
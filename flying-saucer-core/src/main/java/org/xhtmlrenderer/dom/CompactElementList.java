@@ -0,0 +1,45 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.dom;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * A fixed list of nodes of a {@link CompactDocument}, such as the result of <code>getElementsByTagName</code>.
+ * The document never changes, so the list doesn't need to be live.
+ */
+final class CompactElementList implements NodeList {
+    private final CompactDocument _document;
+    private final int[] _nodes;
+    private final int _length;
+
+    CompactElementList(CompactDocument document, int[] nodes, int length) {
+        _document = document;
+        _nodes = nodes;
+        _length = length;
+    }
+
+    public Node item(int index) {
+        return index < 0 || index >= _length ? null : _document._nodes[_nodes[index]];
+    }
+
+    public int getLength() {
+        return _length;
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.dom;
+
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.UserDataHandler;
+
+/**
+ * Base class of the nodes of a {@link CompactDocument}. A node is only its document and its index in the arrays
+ * of the document; everything else is read from those arrays. All methods which would change the document throw
+ * a {@link DOMException} with code <code>NO_MODIFICATION_ALLOWED_ERR</code>.
+ */
+abstract class CompactNode implements Node {
+    final CompactDocument _document;
+    final int _index;
+
+    CompactNode(CompactDocument document, int index) {
+        _document = document == null ? (CompactDocument) this : document;
+        _index = index;
+    }
+
+    static DOMException readOnly() {
+        return new DOMException(DOMException.NO_MODIFICATION_ALLOWED_ERR, "The document is read-only");
+    }
+
+    static DOMException notSupported() {
+        return new DOMException(DOMException.NOT_SUPPORTED_ERR, "Not supported by a read-only document");
+    }
+
+    public String getNodeValue() {
+        return null;
+    }
+
+    public void setNodeValue(String nodeValue) {
+        if (getNodeValue() != null) {
+            throw readOnly();
+        }
+    }
+
+    public Node getParentNode() {
+        return _document.node(_document._parent[_index]);
+    }
+
+    public NodeList getChildNodes() {
+        return new CompactNodeList(_document, _index);
+    }
+
+    public Node getFirstChild() {
+        return _document.node(_document._firstChild[_index]);
+    }
+
+    public Node getLastChild() {
+        return _document.node(_document.lastChild(_index));
+    }
+
+    public Node getPreviousSibling() {
+        return _document.node(_document._previousSibling[_index]);
+    }
+
+    public Node getNextSibling() {
+        return _document.node(_document._nextSibling[_index]);
+    }
+
+    public NamedNodeMap getAttributes() {
+        return null;
+    }
+
+    public Document getOwnerDocument() {
+        return _document;
+    }
+
+    public Node insertBefore(Node newChild, Node refChild) {
+        throw readOnly();
+    }
+
+    public Node replaceChild(Node newChild, Node oldChild) {
+        throw readOnly();
+    }
+
+    public Node removeChild(Node oldChild) {
+        throw readOnly();
+    }
+
+    public Node appendChild(Node newChild) {
+        throw readOnly();
+    }
+
+    public boolean hasChildNodes() {
+        return _document._firstChild[_index] != -1;
+    }
+
+    public Node cloneNode(boolean deep) {
+        throw notSupported();
+    }
+
+    public void normalize() {
+        // adjacent text is merged while the document is built
+    }
+
+    public boolean isSupported(String feature, String version) {
+        return CompactDocument.IMPLEMENTATION.hasFeature(feature, version);
+    }
+
+    public String getNamespaceURI() {
+        return null;
+    }
+
+    public String getPrefix() {
+        return null;
+    }
+
+    public void setPrefix(String prefix) {
+        throw readOnly();
+    }
+
+    public String getLocalName() {
+        return null;
+    }
+
+    public boolean hasAttributes() {
+        return false;
+    }
+
+    public String getBaseURI() {
+        return _document.getDocumentURI();
+    }
+
+    public short compareDocumentPosition(Node other) {
+        if (other == this) {
+            return 0;
+        }
+        if (! (other instanceof CompactNode) || ((CompactNode) other)._document != _document) {
+            return (short) (DOCUMENT_POSITION_DISCONNECTED | DOCUMENT_POSITION_IMPLEMENTATION_SPECIFIC |
+                    (System.identityHashCode(other) < System.identityHashCode(this) ?
+                            DOCUMENT_POSITION_PRECEDING : DOCUMENT_POSITION_FOLLOWING));
+        }
+        // an attribute is ordered as its element; the attributes of one element by their index
+        CompactNode node = (CompactNode) other;
+        int index = node._index;
+        if (index == _index) {
+            if (node instanceof CompactAttr && this instanceof CompactAttr) {
+                return (short) (DOCUMENT_POSITION_IMPLEMENTATION_SPECIFIC |
+                        (((CompactAttr) node)._attr < ((CompactAttr) this)._attr ?
+                                DOCUMENT_POSITION_PRECEDING : DOCUMENT_POSITION_FOLLOWING));
+            }
+            return node instanceof CompactAttr ?
+                    (short) (DOCUMENT_POSITION_CONTAINED_BY | DOCUMENT_POSITION_FOLLOWING) :
+                    (short) (DOCUMENT_POSITION_CONTAINS | DOCUMENT_POSITION_PRECEDING);
+        } else if (index > _index && index < _document.subtreeEnd(_index)) {
+            return (short) (DOCUMENT_POSITION_CONTAINED_BY | DOCUMENT_POSITION_FOLLOWING);
+        } else if (_index > index && _index < _document.subtreeEnd(index)) {
+            return (short) (DOCUMENT_POSITION_CONTAINS | DOCUMENT_POSITION_PRECEDING);
+        } else {
+            return index < _index ? DOCUMENT_POSITION_PRECEDING : DOCUMENT_POSITION_FOLLOWING;
+        }
+    }
+
+    public String getTextContent() {
+        return _document.getText(_index);
+    }
+
+    public void setTextContent(String textContent) {
+        throw readOnly();
+    }
+
+    public boolean isSameNode(Node other) {
+        return other == this;
+    }
+
+    public String lookupPrefix(String namespaceURI) {
+        return _document.lookupPrefix(getNamespaceContext(), namespaceURI);
+    }
+
+    public boolean isDefaultNamespace(String namespaceURI) {
+        String defaultNamespace = lookupNamespaceURI(null);
+        return defaultNamespace == null ? namespaceURI == null : defaultNamespace.equals(namespaceURI);
+    }
+
+    public String lookupNamespaceURI(String prefix) {
+        return _document.lookupNamespaceURI(getNamespaceContext(), prefix);
+    }
+
+    /**
+     * Returns the index of the element whose namespace declarations are in scope for this node, or -1.
+     */
+    int getNamespaceContext() {
+        int parent = _document._parent[_index];
+        return parent > 0 && _document._nodes[parent] instanceof CompactElement ? parent : -1;
+    }
+
+    public boolean isEqualNode(Node other) {
+        if (other == this) {
+            return true;
+        }
+        if (other == null || other.getNodeType() != getNodeType() ||
+                ! equal(getNodeName(), other.getNodeName()) ||
+                ! equal(getLocalName(), other.getLocalName()) ||
+                ! equal(getNamespaceURI(), other.getNamespaceURI()) ||
+                ! equal(getPrefix(), other.getPrefix()) ||
+                ! equal(getNodeValue(), other.getNodeValue())) {
+            return false;
+        }
+
+        NamedNodeMap attributes = getAttributes();
+        NamedNodeMap otherAttributes = other.getAttributes();
+        if (attributes != null && otherAttributes != null) {
+            if (attributes.getLength() != otherAttributes.getLength()) {
+                return false;
+            }
+            for (int i = 0; i < attributes.getLength(); i++) {
+                Node attribute = attributes.item(i);
+                Node otherAttribute = attribute.getLocalName() == null ?
+                        otherAttributes.getNamedItem(attribute.getNodeName()) :
+                        otherAttributes.getNamedItemNS(attribute.getNamespaceURI(), attribute.getLocalName());
+                if (! attribute.isEqualNode(otherAttribute)) {
+                    return false;
+                }
+            }
+        } else if (attributes != null || otherAttributes != null) {
+            return false;
+        }
+
+        Node child = getFirstChild();
+        Node otherChild = other.getFirstChild();
+        while (child != null && otherChild != null) {
+            if (! child.isEqualNode(otherChild)) {
+                return false;
+            }
+            child = child.getNextSibling();
+            otherChild = otherChild.getNextSibling();
+        }
+        return child == null && otherChild == null;
+    }
+
+    private static boolean equal(String s1, String s2) {
+        return s1 == null ? s2 == null : s1.equals(s2);
+    }
+
+    public Object getFeature(String feature, String version) {
+        return isSupported(feature, version) ? this : null;
+    }
+
+    public Object setUserData(String key, Object data, UserDataHandler handler) {
+        return _document.setUserData(this, key, data);
+    }
+
+    public Object getUserData(String key) {
+        return _document.getUserData(this, key);
+    }
+
+    public String toString() {
+        return "[" + getNodeName() + ": " + getNodeValue() + "]";
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.dom;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * The children of a node of a {@link CompactDocument}. The child indexes are collected the first time the list is
+ * used, so <code>item(i)</code> doesn't walk the siblings for every call.
+ */
+final class CompactNodeList implements NodeList {
+    private final CompactDocument _document;
+    private final int _parent;
+    private int[] _children;
+
+    CompactNodeList(CompactDocument document, int parent) {
+        _document = document;
+        _parent = parent;
+    }
+
+    private int[] getChildren() {
+        if (_children == null) {
+            int count = 0;
+            if (_parent != -1) {
+                for (int i = _document._firstChild[_parent]; i != -1; i = _document._nextSibling[i]) {
+                    count++;
+                }
+            }
+            int[] children = new int[count];
+            if (count > 0) {
+                for (int i = _document._firstChild[_parent], n = 0; i != -1; i = _document._nextSibling[i]) {
+                    children[n++] = i;
+                }
+            }
+            _children = children;
+        }
+        return _children;
+    }
+
+    public Node item(int index) {
+        int[] children = getChildren();
+        return index < 0 || index >= children.length ? null : _document._nodes[children[index]];
+    }
+
+    public int getLength() {
+        return getChildren().length;
+    }
+}
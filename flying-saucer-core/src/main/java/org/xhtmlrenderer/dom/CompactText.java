@@ -0,0 +1,54 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.dom;
+
+import org.w3c.dom.Text;
+
+/**
+ * A text node of a {@link CompactDocument}. Adjacent text, including CDATA sections and the text of entities, is
+ * merged into one node.
+ */
+final class CompactText extends CompactCharacterData implements Text {
+    CompactText(CompactDocument document, int index) {
+        super(document, index);
+    }
+
+    public short getNodeType() {
+        return TEXT_NODE;
+    }
+
+    public String getNodeName() {
+        return "#text";
+    }
+
+    public boolean isElementContentWhitespace() {
+        return false;
+    }
+
+    public String getWholeText() {
+        return getData();
+    }
+
+    public Text splitText(int offset) {
+        throw readOnly();
+    }
+
+    public Text replaceWholeText(String content) {
+        throw readOnly();
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.dom;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.w3c.dom.Document;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.DefaultHandler2;
+import org.xml.sax.ext.Locator2;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * <p>Turns the SAX events of an XMLReader into the nodes of a document the way an identity transformation into a
+ * <code>DOMResult</code> does, and leaves creating the nodes to a subclass:</p>
+ * <ul>
+ * <li>adjacent text, CDATA sections and entities are merged into one text node, and there is no text outside the
+ * root element;</li>
+ * <li>the namespaces declared for an element are handed to it together with its attributes, so they can become
+ * <code>xmlns</code> attributes;</li>
+ * <li>there is no document type node, and comments and processing instructions inside the DTD are left out.</li>
+ * </ul>
+ * <p>A builder may be reused for several documents, one at a time.</p>
+ */
+public abstract class SAXDocumentBuilder extends DefaultHandler2 {
+    private static final String LEXICAL_HANDLER = "http://xml.org/sax/properties/lexical-handler";
+    private static final DefaultHandler NO_CONTENT_HANDLER = new DefaultHandler();
+
+    private Locator _locator;
+    // the number of open elements
+    private int _depth;
+    private boolean _inDTD;
+    private final StringBuffer _text = new StringBuffer();
+    // prefix, namespace URI pairs declared for the next element
+    private final List _namespaces = new ArrayList();
+
+    /**
+     * Parses a document with <code>xmlReader</code>, which gets this builder as its content and lexical handler
+     * for the duration of the parse. Neither the reader nor the builder keep the document afterwards.
+     *
+     * @param xmlReader the reader to parse with
+     * @param source the document
+     * @return the document
+     * @throws IOException if the document can't be read
+     * @throws SAXException if the document can't be parsed
+     */
+    public Document build(XMLReader xmlReader, InputSource source) throws IOException, SAXException {
+        xmlReader.setContentHandler(this);
+        try {
+            xmlReader.setProperty(LEXICAL_HANDLER, this);
+        } catch (SAXException e) {
+            // no comments then
+        }
+        try {
+            xmlReader.parse(source);
+            return getDocument();
+        } finally {
+            xmlReader.setContentHandler(NO_CONTENT_HANDLER);
+            try {
+                xmlReader.setProperty(LEXICAL_HANDLER, null);
+            } catch (SAXException e) {
+                // ignore
+            }
+            _locator = null;
+            _depth = 0;
+            _text.setLength(0);
+            _namespaces.clear();
+            clear();
+        }
+    }
+
+    /**
+     * Returns the document once it has been parsed.
+     *
+     * @return the document, or null if parsing hasn't finished
+     */
+    public abstract Document getDocument();
+
+    /**
+     * Starts a new document, which becomes the current node.
+     *
+     * @param documentURI the system id of the document, may be null
+     */
+    protected abstract void createDocument(String documentURI);
+
+    /**
+     * Called at the end of the document.
+     */
+    protected abstract void finishDocument();
+
+    /**
+     * Called before the root element is added, with what the XML declaration says.
+     *
+     * @param xmlVersion the XML version, null if not known
+     * @param inputEncoding the encoding of the document, null if not known
+     */
+    protected abstract void setDocumentInfo(String xmlVersion, String inputEncoding);
+
+    /**
+     * Adds an element as the last child of the current node and makes it the current node.
+     *
+     * @param uri the namespace URI, empty if none
+     * @param qName the qualified name
+     * @param namespaces the prefix and namespace URI of each namespace declared on the element, in turn; the prefix
+     * of the default namespace is empty
+     * @param atts the attributes; declarations of namespaces may be among them, depending on the reader
+     */
+    protected abstract void addElement(String uri, String qName, List namespaces, Attributes atts);
+
+    /**
+     * Makes the parent of the current element the current node.
+     */
+    protected abstract void closeElement();
+
+    /**
+     * Adds a text node as the last child of the current node.
+     */
+    protected abstract void addText(String text);
+
+    /**
+     * Adds a comment as the last child of the current node.
+     */
+    protected abstract void addComment(String data);
+
+    /**
+     * Adds a processing instruction as the last child of the current node.
+     */
+    protected abstract void addProcessingInstruction(String target, String data);
+
+    /**
+     * Drops everything held for the document just built, after {@link #getDocument()} has been called.
+     */
+    protected void clear() {
+    }
+
+    public void setDocumentLocator(Locator locator) {
+        _locator = locator;
+    }
+
+    public void startDocument() {
+        _depth = 0;
+        _inDTD = false;
+        createDocument(_locator == null ? null : _locator.getSystemId());
+    }
+
+    public void endDocument() {
+        finishDocument();
+    }
+
+    public void startPrefixMapping(String prefix, String uri) {
+        _namespaces.add(prefix == null ? "" : prefix);
+        _namespaces.add(uri);
+    }
+
+    public void startElement(String uri, String localName, String qName, Attributes atts) {
+        if (_depth == 0) {
+            // the DTD is over; Xerces doesn't report its end if an EntityResolver2 supplied an external subset
+            _inDTD = false;
+            if (_locator instanceof Locator2) {
+                setDocumentInfo(((Locator2) _locator).getXMLVersion(), ((Locator2) _locator).getEncoding());
+            } else {
+                setDocumentInfo(null, null);
+            }
+        }
+        flushText();
+        addElement(uri, qName, _namespaces, atts);
+        _namespaces.clear();
+        _depth++;
+    }
+
+    public void endElement(String uri, String localName, String qName) {
+        flushText();
+        closeElement();
+        _depth--;
+    }
+
+    public void characters(char[] ch, int start, int length) {
+        if (! _inDTD && _depth > 0) {
+            _text.append(ch, start, length);
+        }
+    }
+
+    public void processingInstruction(String target, String data) {
+        if (! _inDTD) {
+            flushText();
+            addProcessingInstruction(target, data);
+        }
+    }
+
+    public void comment(char[] ch, int start, int length) {
+        if (! _inDTD) {
+            flushText();
+            addComment(new String(ch, start, length));
+        }
+    }
+
+    public void startDTD(String name, String publicId, String systemId) {
+        _inDTD = true;
+    }
+
+    public void endDTD() {
+        _inDTD = false;
+    }
+
+    private void flushText() {
+        if (_text.length() > 0) {
+            addText(_text.toString());
+            _text.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.extend;
+
+/**
+ * <p>Receives timings and counters from the rendering pipeline, for example to find documents which are slow to
+ * render in production. Set an implementation with
+ * {@link org.xhtmlrenderer.layout.SharedContext#setRenderMetrics(RenderMetrics)};
+ * {@link org.xhtmlrenderer.util.JMXRenderMetrics} publishes them through JMX.</p>
+ *
+ * <p>Phases may nest: box building includes the cascade for the boxes it creates, layout includes box building,
+ * and writing a PDF includes painting its pages. Box building and the cascade happen piecemeal during layout, so
+ * they are reported many times per document.</p>
+ *
+ * <p>One instance may be shared by several renderers, so implementations must be thread safe.</p>
+ */
+public interface RenderMetrics {
+    /** Parsing the XML document */
+    public static final String PHASE_XML_PARSE = "xml-parse";
+    /** Loading and parsing the stylesheets of a document */
+    public static final String PHASE_CSS = "css";
+    /** Matching the stylesheets against an element; allocations aren't measured for this phase */
+    public static final String PHASE_CASCADE = "cascade";
+    /** Creating the boxes for the children of a block */
+    public static final String PHASE_BOX_BUILD = "box-build";
+    /** Laying out the document */
+    public static final String PHASE_LAYOUT = "layout";
+    /** Laying out the page boxes and their margin areas */
+    public static final String PHASE_PAGINATION = "pagination";
+    /** Painting the document, or one page of it */
+    public static final String PHASE_PAINT = "paint";
+    /** Writing a PDF, including painting its pages */
+    public static final String PHASE_PDF_WRITE = "pdf-write";
+
+    /** Documents laid out */
+    public static final String COUNT_DOCUMENTS = "documents";
+    /** Boxes created by the box builder */
+    public static final String COUNT_BOXES = "boxes";
+    /** Line boxes created during inline layout */
+    public static final String COUNT_LINE_BOXES = "line-boxes";
+    /** Blocks laid out again, e.g. to avoid a page break inside them */
+    public static final String COUNT_RELAYOUTS = "relayouts";
+    /** Pages laid out */
+    public static final String COUNT_PAGES = "pages";
+    /** Fonts loaded from @font-face rules */
+    public static final String COUNT_FONTS_LOADED = "fonts-loaded";
+    /** Images loaded and decoded */
+    public static final String COUNT_IMAGES_LOADED = "images-loaded";
+    /** Images, margin areas and other resources found in a cache */
+    public static final String COUNT_CACHE_HITS = "cache-hits";
+
+    /**
+     * Called when a phase has completed.
+     *
+     * @param phase the phase, one of the <code>PHASE_</code> constants
+     * @param elapsedNanos the time taken by the phase in nanoseconds
+     * @param allocatedBytes the bytes allocated by the current thread during the phase, or -1 if the JVM can't
+     * measure it
+     */
+    public void phaseCompleted(String phase, long elapsedNanos, long allocatedBytes);
+
+    /**
+     * Adds to a counter.
+     *
+     * @param counter the counter, one of the <code>COUNT_</code> constants
+     * @param amount the amount to add
+     */
+    public void count(String counter, long amount);
+}
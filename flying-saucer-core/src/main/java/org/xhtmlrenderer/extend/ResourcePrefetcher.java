@@ -0,0 +1,47 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.extend;
+
+import java.util.Collection;
+
+/**
+ * Optionally implemented by a {@link UserAgentCallback} which can fetch
+ * resources in the background. The URIs of a document's stylesheets, images
+ * and fonts are handed to it before they are loaded, so that their network
+ * latency overlaps instead of adding up.
+ */
+public interface ResourcePrefetcher {
+    /**
+     * Returns true if {@link #prefetch(Collection)} fetches anything. If not,
+     * callers needn't collect the URIs.
+     */
+    public boolean isPrefetchEnabled();
+
+    /**
+     * Starts fetching resources which the user agent will soon be asked for.
+     *
+     * @param uris the URIs to fetch, possibly relative
+     */
+    public void prefetch(Collection uris);
+
+    /**
+     * Cancels all prefetches and drops the resources which were fetched but
+     * never requested.
+     */
+    public void clearPrefetched();
+}
@@ -0,0 +1,35 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.extend;
+
+import org.xhtmlrenderer.render.FSFont;
+
+/**
+ * Optionally implemented by a {@link TextRenderer} which can measure part of a
+ * string without copying it. The line breaker measures every candidate line
+ * fragment, so it uses this when available and falls back to
+ * {@link TextRenderer#getWidth(FontContext, FSFont, String)} on a substring
+ * otherwise.
+ */
+public interface TextRangeRenderer {
+    /**
+     * Returns the same width as <code>getWidth(context, font,
+     * string.substring(start, end))</code>.
+     */
+    public int getWidth(FontContext context, FSFont font, String string, int start, int end);
+}
@@ -28,10 +28,13 @@ import java.util.RandomAccess;
 
 import org.xhtmlrenderer.css.constants.CSSName;
 import org.xhtmlrenderer.css.constants.IdentValue;
+import org.xhtmlrenderer.css.style.CalculatedStyle;
+import org.xhtmlrenderer.extend.RenderMetrics;
 import org.xhtmlrenderer.render.BlockBox;
 import org.xhtmlrenderer.render.Box;
 import org.xhtmlrenderer.render.LineBox;
 import org.xhtmlrenderer.render.PageBox;
+import org.xhtmlrenderer.util.MetricsTimer;
 
 /**
  * Utility class for laying block content.  It is called when a block box
@@ -99,12 +102,14 @@ public class BlockBoxing {
                     boolean keepWithInline = child.isNeedsKeepWithInline(c);
                     if (tryToAvoidPageBreak || needPageClear || keepWithInline) {
                         c.restoreStateForRelayout(relayoutData.getLayoutState());
+                        countRelayout(c);
                         child.reset(c);
                         layoutBlockChild(
                                 c, block, child, true, childOffset, pageCount, relayoutData.getLayoutState());
 
                         if (tryToAvoidPageBreak && child.crossesPageBreak(c) && ! keepWithInline) {
                             c.restoreStateForRelayout(relayoutData.getLayoutState());
+                            countRelayout(c);
                             child.reset(c);
                             layoutBlockChild(
                                     c, block, child, false, childOffset, pageCount, relayoutData.getLayoutState());
@@ -175,11 +180,9 @@ public class BlockBoxing {
                 int runStart = relayoutDataList.getRunStart(runEnd);
                 if ( isPageBreakBetweenChildBoxes(relayoutDataList, runStart, runEnd, c, block) ) {
                     result.setChanged(true);
-                    block.resetChildren(c, runStart, offset);
                     result.setChildOffset(relayoutRun(c, localChildren, block,
                             relayoutDataList, runStart, offset, true));
                     if ( isPageBreakBetweenChildBoxes(relayoutDataList, runStart, runEnd, c, block) ) {
-                        block.resetChildren(c, runStart, offset);
                         result.setChildOffset(relayoutRun(c, localChildren, block,
                                 relayoutDataList, runStart, offset, false));
                     }
@@ -229,6 +232,23 @@ public class BlockBoxing {
         // reset height of parent as it is used for Y-setting of children
         block.setHeight(childOffset);
 
+        // The state following the last box of the run.  Needed if that box is
+        // translated instead of being layed out again.
+        LayoutState endState = c.copyStateForRelayout();
+        boolean lastTranslated = false;
+
+        // Boxes which may be moved keep their current layout until we know
+        // where they go.  Everything else is reset up front so that stale
+        // floats and layers can't influence the boxes layed out before them.
+        boolean[] mayTranslate = new boolean[end - start + 1];
+        for (int i = start; i <= end; i++) {
+            BlockBox child = (BlockBox) localChildren.get(i);
+            if (child.isLayoutPageDependent()) {
+                child.reset(c);
+            } else {
+                mayTranslate[i - start] = true;
+            }
+        }
 
         for (int i = start; i <= end; i++) {
             BlockBox child = (BlockBox) localChildren.get(i);
@@ -237,9 +257,27 @@ public class BlockBoxing {
 
             int pageCount = c.getRootLayer().getPages().size();
 
+            if (mayTranslate[i - start] &&
+                    translateChild(c, child, childOffset - relayoutData.getChildOffset())) {
+                relayoutData.setChildOffset(childOffset);
+                lastTranslated = true;
+
+                c.getRootLayer().ensureHasPage(c, child);
+                childOffset = calcChildOffset(child);
+                if (childOffset > block.getHeight()) {
+                    block.setHeight(childOffset);
+                }
+                continue;
+            }
+            lastTranslated = false;
+
             //TODO:handle run-ins. For now, treat them as blocks
 
             c.restoreStateForRelayout(relayoutData.getLayoutState());
+            countRelayout(c);
+            if (mayTranslate[i - start]) {
+                child.reset(c);
+            }
             relayoutData.setChildOffset(childOffset);
             boolean mayCheckKeepTogether = false;
             if ((child.getStyle().isAvoidPageBreakInside() || child.getStyle().isKeepWithInline())
@@ -258,12 +296,14 @@ public class BlockBoxing {
                 boolean keepWithInline = child.isNeedsKeepWithInline(c);
                 if (tryToAvoidPageBreak || needPageClear || keepWithInline) {
                     c.restoreStateForRelayout(relayoutData.getLayoutState());
+                    countRelayout(c);
                     child.reset(c);
                     layoutBlockChild(
                             c, block, child, true, childOffset, pageCount, relayoutData.getLayoutState());
 
                     if (tryToAvoidPageBreak && child.crossesPageBreak(c) && ! keepWithInline) {
                         c.restoreStateForRelayout(relayoutData.getLayoutState());
+                        countRelayout(c);
                         child.reset(c);
                         layoutBlockChild(
                                 c, block, child, false, childOffset, pageCount, relayoutData.getLayoutState());
@@ -273,12 +313,7 @@ public class BlockBoxing {
 
             c.getRootLayer().ensureHasPage(c, child);
 
-            Dimension relativeOffset = child.getRelativeOffset();
-            if (relativeOffset == null) {
-                childOffset = child.getY() + child.getHeight();
-            } else {
-                childOffset = child.getY() - relativeOffset.height + child.getHeight();
-            }
+            childOffset = calcChildOffset(child);
 
             if (childOffset > block.getHeight()) {
                 block.setHeight(childOffset);
@@ -290,9 +325,94 @@ public class BlockBoxing {
             }
         }
 
+        if (lastTranslated) {
+            c.restoreStateForRelayout(endState);
+        }
+
         return childOffset;
     }
 
+    private static void countRelayout(LayoutContext c) {
+        MetricsTimer.count(c.getSharedContext(), RenderMetrics.COUNT_RELAYOUTS, 1);
+    }
+
+    private static int calcChildOffset(BlockBox child) {
+        Dimension relativeOffset = child.getRelativeOffset();
+        if (relativeOffset == null) {
+            return child.getY() + child.getHeight();
+        } else {
+            return child.getY() - relativeOffset.height + child.getHeight();
+        }
+    }
+
+    /**
+     * Moves an already layed out child by <code>delta</code> if doing so gives
+     * the same result as laying it out again at its new position.  The caller
+     * has already checked that nothing in its layout depended on its position
+     * on the page (see {@link Box#isLayoutPageDependent()}).  In addition, it
+     * must fit on a single page both before and after the move and must not
+     * start a page with a collapsed top margin (which would be reset if it was
+     * layed out again).
+     */
+    private static boolean translateChild(LayoutContext c, BlockBox child, int delta) {
+        if (! c.isPrint() || c.getExtraSpaceTop() != 0 || c.getExtraSpaceBottom() != 0 ||
+                c.getPageName() != null) {
+            return false;
+        }
+
+        CalculatedStyle style = child.getStyle();
+        if (style.isForcePageBreakBefore() || style.isForcePageBreakAfter()) {
+            return false;
+        }
+
+        Layer rootLayer = c.getRootLayer();
+        int top = child.getAbsY();
+        int bottom = top + child.getHeight();
+        if (rootLayer.crossesPageBreak(c, top, bottom) ||
+                rootLayer.crossesPageBreak(c, top + delta, bottom + delta)) {
+            return false;
+        }
+
+        // Lines next to a float, and cleared boxes, are placed relative to the
+        // floats.  A box which is flagged as neither may still have floats
+        // beside it at its new position, so refuse if any float of the block
+        // formatting context reaches down to the range the box is moved over.
+        BlockFormattingContext bfc = c.getBlockFormattingContext();
+        if (bfc != null) {
+            int bfcRelativeY = Math.min(child.getY(), child.getY() + delta) - bfc.getOffset().y;
+            if (bfc.getFloatManager().getClearDelta(c, bfcRelativeY) > 0) {
+                return false;
+            }
+        }
+
+        PageBox newPage = rootLayer.getPage(c, top + delta);
+        if (newPage.getTop() == top + delta &&
+                hasCollapsedTopMargin(c, child, top)) {
+            return false;
+        }
+
+        child.setY(child.getY() + delta);
+        child.calcCanvasLocation();
+        child.calcChildLocations();
+
+        return true;
+    }
+
+    private static boolean hasCollapsedTopMargin(LayoutContext c, Box box, int absY) {
+        if (box.getAbsY() != absY) {
+            return false;
+        }
+        if (box instanceof BlockBox && box.isTopMarginCollapsed(c)) {
+            return true;
+        }
+        for (int i = 0; i < box.getChildCount(); i++) {
+            if (hasCollapsedTopMargin(c, box.getChild(i), absY)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private static void layoutBlockChild(
             LayoutContext c, BlockBox parent, BlockBox child,
             boolean needPageClear, int childOffset, int trimmedPageCount, LayoutState layoutState) {
@@ -301,6 +421,7 @@ public class BlockBoxing {
         if (bContext != null) {
             c.setBreakAtLineContext(bContext);
             c.restoreStateForRelayout(layoutState);
+            countRelayout(c);
             child.reset(c);
             layoutBlockChild0(c, parent, child, needPageClear, childOffset, trimmedPageCount);
             c.setBreakAtLineContext(null);
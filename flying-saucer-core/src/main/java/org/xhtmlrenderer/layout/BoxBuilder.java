@@ -48,6 +48,7 @@ import org.xhtmlrenderer.css.sheet.StylesheetInfo;
 import org.xhtmlrenderer.css.style.CalculatedStyle;
 import org.xhtmlrenderer.css.style.EmptyStyle;
 import org.xhtmlrenderer.css.style.FSDerivedValue;
+import org.xhtmlrenderer.extend.RenderMetrics;
 import org.xhtmlrenderer.newtable.TableBox;
 import org.xhtmlrenderer.newtable.TableCellBox;
 import org.xhtmlrenderer.newtable.TableColumn;
@@ -58,6 +59,7 @@ import org.xhtmlrenderer.render.BlockBox;
 import org.xhtmlrenderer.render.Box;
 import org.xhtmlrenderer.render.FloatedBoxData;
 import org.xhtmlrenderer.render.InlineBox;
+import org.xhtmlrenderer.util.MetricsTimer;
 
 /**
  * This class is responsible for creating the box tree from the DOM.  This is
@@ -108,24 +110,29 @@ public class BoxBuilder {
     }
 
     public static void createChildren(LayoutContext c, BlockBox parent) {
+        MetricsTimer timer = MetricsTimer.start(c.getSharedContext(), RenderMetrics.PHASE_BOX_BUILD);
+        try {
+            List children = new ArrayList();
 
-		List children = new ArrayList();
+            ChildBoxInfo info = new ChildBoxInfo();
 
-        ChildBoxInfo info = new ChildBoxInfo();
-
-        createChildren(c, parent, parent.getElement(), children, info, false);
+            createChildren(c, parent, parent.getElement(), children, info, false);
+            MetricsTimer.count(c.getSharedContext(), RenderMetrics.COUNT_BOXES, children.size());
 
-        boolean parentIsNestingTableContent = isNestingTableContent(parent.getStyle().getIdent(
-                CSSName.DISPLAY));
-        if (!parentIsNestingTableContent && !info.isContainsTableContent()) {
-            resolveChildren(c, parent, children, info);
-        } else {
-            stripAllWhitespace(children);
-            if (parentIsNestingTableContent) {
-                resolveTableContent(c, parent, children, info);
+            boolean parentIsNestingTableContent = isNestingTableContent(parent.getStyle().getIdent(
+                    CSSName.DISPLAY));
+            if (!parentIsNestingTableContent && !info.isContainsTableContent()) {
+                resolveChildren(c, parent, children, info);
             } else {
-                resolveChildTableContent(c, parent, children, info, IdentValue.TABLE_CELL);
+                stripAllWhitespace(children);
+                if (parentIsNestingTableContent) {
+                    resolveTableContent(c, parent, children, info);
+                } else {
+                    resolveChildTableContent(c, parent, children, info, IdentValue.TABLE_CELL);
+                }
             }
+        } finally {
+            timer.stop();
         }
     }
 
@@ -143,7 +150,7 @@ public class BoxBuilder {
         Element source = c.getRootLayer().getMaster().getElement(); // HACK
 
         ChildBoxInfo info = new ChildBoxInfo();
-        CalculatedStyle pageStyle = new EmptyStyle().deriveStyle(pageInfo.getPageStyle());
+        CalculatedStyle pageStyle = pageInfo.getCalculatedPageStyle();
 
         CalculatedStyle tableStyle = pageStyle.deriveStyle(
                 CascadedStyle.createLayoutStyle(new PropertyDeclaration[] {
@@ -22,8 +22,10 @@ package org.xhtmlrenderer.layout;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.xhtmlrenderer.css.style.CssContext;
 import org.xhtmlrenderer.render.BlockBox;
@@ -34,13 +36,19 @@ import org.xhtmlrenderer.render.LineBox;
  * A class that manages all floated boxes in a given block formatting context.
  * It is responsible for positioning floats and calculating clearance for
  * non-floated (block) boxes.
+ * <p>
+ * Floats on each side are kept in a {@link FloatList}, which indexes them by
+ * vertical extent so that per-line queries only visit the floats which can
+ * actually overlap the line.
  */
 public class FloatManager {
     private static final int LEFT = 1;
     private static final int RIGHT = 2;
 
-    private List _leftFloats = new ArrayList();
-    private List _rightFloats = new ArrayList();
+    private FloatList _leftFloats = new FloatList();
+    private FloatList _rightFloats = new FloatList();
+
+    private Map _offsets = new IdentityHashMap();
 
     private Box _master;
 
@@ -65,7 +73,9 @@ public class FloatManager {
 
     private void save(BlockBox current, Layer layer, BlockFormattingContext bfc, int direction) {
         Point p = bfc.getOffset();
-        getFloats(direction).add(new BoxOffset(current, p.x, p.y));
+        BoxOffset boxOffset = new BoxOffset(current, p.x, p.y);
+        getFloats(direction).add(boxOffset);
+        _offsets.put(current, boxOffset);
         layer.addFloat(current, bfc);
         current.getFloatedBoxData().setManager(this);
 
@@ -102,21 +112,21 @@ public class FloatManager {
         }
     }
 
-    private List getFloats(int direction) {
+    private FloatList getFloats(int direction) {
         return direction == LEFT ? _leftFloats : _rightFloats;
     }
 
-    private List getOpposingFloats(int direction) {
+    private FloatList getOpposingFloats(int direction) {
         return direction == LEFT ? _rightFloats : _leftFloats;
     }
 
     private void alignToLastFloat(CssContext cssCtx,
                                   BlockFormattingContext bfc, BlockBox current, int direction) {
 
-        List floats = getFloats(direction);
+        FloatList floats = getFloats(direction);
         if (floats.size() > 0) {
             Point offset = bfc.getOffset();
-            BoxOffset lastOffset = (BoxOffset) floats.get(floats.size() - 1);
+            BoxOffset lastOffset = floats.getLast();
             BlockBox last = lastOffset.getBox();
 
             Rectangle currentBounds = current.getMarginEdge(cssCtx, -offset.x, -offset.y);
@@ -152,10 +162,10 @@ public class FloatManager {
     private void alignToLastOpposingFloat(CssContext cssCtx,
                                           BlockFormattingContext bfc, BlockBox current, int direction) {
 
-        List floats = getOpposingFloats(direction);
+        FloatList floats = getOpposingFloats(direction);
         if (floats.size() > 0) {
             Point offset = bfc.getOffset();
-            BoxOffset lastOffset = (BoxOffset) floats.get(floats.size() - 1);
+            BoxOffset lastOffset = floats.getLast();
 
             Rectangle currentBounds = current.getMarginEdge(cssCtx, -offset.x, -offset.y);
 
@@ -185,20 +195,8 @@ public class FloatManager {
                 (current.getX() + current.getWidth()) <= current.getContainingBlock().getContentWidth();
     }
 
-    private int findLowestY(CssContext cssCtx, List floats) {
-        int result = 0;
-
-        for (Iterator i = floats.iterator(); i.hasNext();) {
-            BoxOffset floater = (BoxOffset) i.next();
-
-            Rectangle bounds = floater.getBox().getMarginEdge(
-                    cssCtx, -floater.getX(), -floater.getY());
-            if (bounds.y + bounds.height > result) {
-                result = bounds.y + bounds.height;
-            }
-        }
-
-        return result;
+    private int findLowestY(CssContext cssCtx, FloatList floats) {
+        return Math.max(0, floats.getLowestY(cssCtx));
     }
 
     public int getClearDelta(CssContext cssCtx, int bfcRelativeY) {
@@ -211,25 +209,15 @@ public class FloatManager {
     }
 
     private boolean overlaps(CssContext cssCtx, BlockFormattingContext bfc,
-                             BlockBox current, List floats) {
+                             BlockBox current, FloatList floats) {
         Point offset = bfc.getOffset();
         Rectangle bounds = current.getMarginEdge(cssCtx, -offset.x, -offset.y);
 
-        for (Iterator i = floats.iterator(); i.hasNext();) {
-            BoxOffset floater = (BoxOffset) i.next();
-            Rectangle floaterBounds = floater.getBox().getMarginEdge(cssCtx,
-                    -floater.getX(), -floater.getY());
-
-            if (floaterBounds.intersects(bounds)) {
-                return true;
-            }
-        }
-
-        return false;
+        return floats.findIntersecting(cssCtx, bounds, floats.size()) != -1;
     }
 
     private void moveFloatBelow(CssContext cssCtx, BlockFormattingContext bfc,
-                                   Box current, List floats) {
+                                   Box current, FloatList floats) {
         if (floats.size() == 0) {
             return;
         }
@@ -244,7 +232,7 @@ public class FloatManager {
     }
 
     private void moveClear(CssContext cssCtx, BlockFormattingContext bfc,
-                           Box current, List floats) {
+                           Box current, FloatList floats) {
         if (floats.size() == 0) {
             return;
         }
@@ -272,13 +260,10 @@ public class FloatManager {
         removeFloat(floater, getFloats(RIGHT));
     }
 
-    private void removeFloat(BlockBox floater, List floats) {
-        for (Iterator i = floats.iterator(); i.hasNext();) {
-            BoxOffset boxOffset = (BoxOffset) i.next();
-            if (boxOffset.getBox().equals(floater)) {
-                i.remove();
-                floater.getFloatedBoxData().setManager(null);
-            }
+    private void removeFloat(BlockBox floater, FloatList floats) {
+        if (floats.remove(floater)) {
+            _offsets.remove(floater);
+            floater.getFloatedBoxData().setManager(null);
         }
     }
 
@@ -287,7 +272,7 @@ public class FloatManager {
         calcFloatLocations(getFloats(RIGHT));
     }
 
-    private void calcFloatLocations(List floats) {
+    private void calcFloatLocations(FloatList floats) {
         for (Iterator i = floats.iterator(); i.hasNext();) {
             BoxOffset boxOffset = (BoxOffset) i.next();
             boxOffset.getBox().calcCanvasLocation();
@@ -346,7 +331,7 @@ public class FloatManager {
 
     private BoxDistance getFloatDistance(CssContext cssCtx, BlockFormattingContext bfc,
                                  LineBox line, int containingBlockContentWidth,
-                                 List floatsList, int direction) {
+                                 FloatList floatsList, int direction) {
         if (floatsList.size() == 0) {
             return new BoxDistance(null, 0);
         }
@@ -359,16 +344,18 @@ public class FloatManager {
 
         applyLineHeightHack(cssCtx, line, lineBounds);
         BlockBox farthestOverBox = null;
-        for (int i = 0; i < floatsList.size(); i++) {
-            BoxOffset floater = (BoxOffset) floatsList.get(i);
-            Rectangle fr = floater.getBox().getMarginEdge(cssCtx, -floater.getX(), -floater.getY());
-            if (lineBounds.intersects(fr)) {
-                if (direction == LEFT && fr.x + fr.width > farthestOver) {
-                    farthestOver = fr.x + fr.width;
-                } else if (direction == RIGHT && fr.x < farthestOver) {
-                    farthestOver = fr.x;
-                }
-                farthestOverBox = floater.getBox();
+        // Walk backwards so the first hit is the most recently added float,
+        // which is the box reported alongside the distance
+        for (int i = floatsList.findIntersecting(cssCtx, lineBounds, floatsList.size()); i != -1;
+                i = floatsList.findIntersecting(cssCtx, lineBounds, i)) {
+            Rectangle fr = floatsList.getBounds(i);
+            if (direction == LEFT && fr.x + fr.width > farthestOver) {
+                farthestOver = fr.x + fr.width;
+            } else if (direction == RIGHT && fr.x < farthestOver) {
+                farthestOver = fr.x;
+            }
+            if (farthestOverBox == null) {
+                farthestOverBox = floatsList.get(i).getBox();
             }
         }
 
@@ -388,25 +375,14 @@ public class FloatManager {
     }
 
     public Point getOffset(BlockBox floater) {
-        // FIXME inefficient (but probably doesn't matter)
-        return getOffset(floater,
-                floater.getStyle().isFloatedLeft() ? getFloats(LEFT) : getFloats(RIGHT));
-    }
-
-    private Point getOffset(BlockBox floater, List floats) {
-        for (Iterator i = floats.iterator(); i.hasNext();) {
-            BoxOffset boxOffset = (BoxOffset) i.next();
-            BlockBox box = boxOffset.getBox();
-
-            if (box.equals(floater)) {
-                return new Point(boxOffset.getX(), boxOffset.getY());
-            }
+        BoxOffset boxOffset = (BoxOffset) _offsets.get(floater);
+        if (boxOffset == null) {
+            return null;
         }
-
-        return null;
+        return new Point(boxOffset.getX(), boxOffset.getY());
     }
 
-    private void performFloatOperation(FloatOperation op, List floats) {
+    private void performFloatOperation(FloatOperation op, FloatList floats) {
         for (Iterator i = floats.iterator(); i.hasNext();) {
             BoxOffset boxOffset = (BoxOffset) i.next();
             BlockBox box = boxOffset.getBox();
@@ -423,7 +399,7 @@ public class FloatManager {
         performFloatOperation(op, getFloats(RIGHT));
     }
 
-    private static class BoxOffset {
+    static class BoxOffset {
         private BlockBox _box;
         private int _x;
         private int _y;
@@ -447,6 +423,163 @@ public class FloatManager {
         }
     }
 
+    /**
+     * The floats on one side of a block formatting context, in the order they
+     * were added.  CSS 2.1 (9.5.1, rule 5) guarantees that the outer top of a
+     * float is never above the outer top of an earlier float, so the list is
+     * normally sorted by BFC relative top.  Bounds are cached together with a
+     * running maximum of the bottom edges, which lets a query binary search
+     * for the last float starting above the query rectangle and walk
+     * backwards only until no earlier float can reach down to it.
+     * <p>
+     * Float geometry is fixed once a float has been saved (a float which has to
+     * move is reset and floated again), so the cache only needs to be
+     * invalidated when floats are removed.  If the floats turn out not to be
+     * sorted, queries degrade to a linear scan.
+     */
+    static class FloatList {
+        private List _floats = new ArrayList();
+
+        private Rectangle[] _bounds = new Rectangle[8];
+        private int[] _maxBottoms = new int[8];
+        private int _indexed;
+        private boolean _sorted = true;
+
+        public int size() {
+            return _floats.size();
+        }
+
+        public BoxOffset get(int i) {
+            return (BoxOffset) _floats.get(i);
+        }
+
+        public BoxOffset getLast() {
+            return get(_floats.size() - 1);
+        }
+
+        public Iterator iterator() {
+            return _floats.iterator();
+        }
+
+        public void add(BoxOffset boxOffset) {
+            _floats.add(boxOffset);
+        }
+
+        public boolean remove(BlockBox floater) {
+            boolean removed = false;
+            for (int i = _floats.size() - 1; i >= 0; i--) {
+                if (get(i).getBox().equals(floater)) {
+                    _floats.remove(i);
+                    if (i < _indexed) {
+                        _indexed = i;
+                    }
+                    removed = true;
+                }
+            }
+            if (_indexed == 0) {
+                _sorted = true;
+            }
+            return removed;
+        }
+
+        private void ensureIndexed(CssContext cssCtx) {
+            int size = _floats.size();
+            if (_indexed == size) {
+                return;
+            }
+            if (_bounds.length < size) {
+                int capacity = Math.max(size, _bounds.length * 2);
+                Rectangle[] bounds = new Rectangle[capacity];
+                System.arraycopy(_bounds, 0, bounds, 0, _indexed);
+                _bounds = bounds;
+                int[] maxBottoms = new int[capacity];
+                System.arraycopy(_maxBottoms, 0, maxBottoms, 0, _indexed);
+                _maxBottoms = maxBottoms;
+            }
+            for (int i = _indexed; i < size; i++) {
+                Rectangle bounds = getMarginEdge(cssCtx, get(i));
+                int bottom = bounds.y + bounds.height;
+                if (i > 0) {
+                    if (bounds.y < _bounds[i-1].y) {
+                        _sorted = false;
+                    }
+                    bottom = Math.max(bottom, _maxBottoms[i-1]);
+                }
+                _bounds[i] = bounds;
+                _maxBottoms[i] = bottom;
+            }
+            _indexed = size;
+        }
+
+        /**
+         * Returns the margin edge of a float relative to the block formatting
+         * context.
+         */
+        Rectangle getMarginEdge(CssContext cssCtx, BoxOffset floater) {
+            return floater.getBox().getMarginEdge(
+                    cssCtx, -floater.getX(), -floater.getY());
+        }
+
+        /**
+         * Returns the index of the last float before <code>end</code> which
+         * intersects <code>bounds</code>, or -1 if there is none.  Passing the
+         * result back in as <code>end</code> walks all intersecting floats,
+         * most recently added first.
+         */
+        public int findIntersecting(CssContext cssCtx, Rectangle bounds, int end) {
+            ensureIndexed(cssCtx);
+            for (int i = Math.min(end, findCandidateEnd(bounds)) - 1;
+                    i >= 0 && mayReach(i, bounds); i--) {
+                if (_bounds[i].intersects(bounds)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the index just past the last float whose top is above the
+         * bottom of <code>bounds</code>.  Floats at or beyond that index cannot
+         * intersect <code>bounds</code>.
+         */
+        private int findCandidateEnd(Rectangle bounds) {
+            int size = _floats.size();
+            if (! _sorted) {
+                return size;
+            }
+            int bottom = bounds.y + bounds.height;
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (_bounds[mid].y < bottom) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Returns whether float <code>i</code> or any float before it extends
+         * below the top of <code>bounds</code>.
+         */
+        private boolean mayReach(int i, Rectangle bounds) {
+            return ! _sorted || _maxBottoms[i] > bounds.y;
+        }
+
+        public Rectangle getBounds(int i) {
+            return _bounds[i];
+        }
+
+        public int getLowestY(CssContext cssCtx) {
+            ensureIndexed(cssCtx);
+            int size = _floats.size();
+            return size == 0 ? 0 : _maxBottoms[size - 1];
+        }
+    }
+
     private static class BoxDistance {
         private BlockBox _box;
         private int _distance;
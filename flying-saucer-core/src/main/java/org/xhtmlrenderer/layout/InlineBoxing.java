@@ -32,6 +32,7 @@ import org.xhtmlrenderer.css.style.CalculatedStyle;
 import org.xhtmlrenderer.css.style.CssContext;
 import org.xhtmlrenderer.css.style.derived.BorderPropertySet;
 import org.xhtmlrenderer.css.style.derived.RectPropertySet;
+import org.xhtmlrenderer.extend.RenderMetrics;
 import org.xhtmlrenderer.layout.breaker.Breaker;
 import org.xhtmlrenderer.render.AnonymousBlockBox;
 import org.xhtmlrenderer.render.BlockBox;
@@ -45,6 +46,7 @@ import org.xhtmlrenderer.render.LineBox;
 import org.xhtmlrenderer.render.MarkerData;
 import org.xhtmlrenderer.render.StrutMetrics;
 import org.xhtmlrenderer.render.TextDecoration;
+import org.xhtmlrenderer.util.MetricsTimer;
 import org.xhtmlrenderer.util.XRRuntimeException;
 
 /**
@@ -88,7 +90,7 @@ public class InlineBoxing {
             openInlineBoxes = new ArrayList();
         }
 
-        remainingWidth -= c.getBlockFormattingContext().getFloatDistance(c, currentLine, remainingWidth);
+        remainingWidth -= getFloatDistance(c, currentLine, remainingWidth);
 
         CalculatedStyle parentStyle = box.getStyle();
         int minimumLineHeight = (int) parentStyle.getLineHeight(c);
@@ -189,7 +191,7 @@ public class InlineBoxing {
 
                     zeroWidthInlineBlock = false;
 
-                    if (lbContext.getStartSubstring().length() == 0) {
+                    if (lbContext.getStartSubstringLength() == 0) {
                         break;
                     }
 
@@ -212,10 +214,11 @@ public class InlineBoxing {
                         if (lbContext.isUnbreakable() && ! currentLine.isContainsContent()) {
                             int delta = c.getBlockFormattingContext().getNextLineBoxDelta(c, currentLine, maxAvailableWidth);
                             if (delta > 0) {
+                                currentLine.setLayoutPageDependent(true);
                                 currentLine.setY(currentLine.getY() + delta);
                                 currentLine.calcCanvasLocation();
                                 remainingWidth = maxAvailableWidth;
-                                remainingWidth -= c.getBlockFormattingContext().getFloatDistance(c, currentLine, maxAvailableWidth);
+                                remainingWidth -= getFloatDistance(c, currentLine, maxAvailableWidth);
                                 lbContext.resetEnd();
                                 continue;
                             }
@@ -270,7 +273,7 @@ public class InlineBoxing {
                         previousIB = currentIB.getParent() instanceof LineBox ?
                                 null : (InlineLayoutBox) currentIB.getParent();
                         remainingWidth = maxAvailableWidth;
-                        remainingWidth -= c.getBlockFormattingContext().getFloatDistance(c, currentLine, remainingWidth);
+                        remainingWidth -= getFloatDistance(c, currentLine, remainingWidth);
                     }
                 } while (!lbContext.isFinished());
 
@@ -332,7 +335,7 @@ public class InlineBoxing {
                        previousIB = currentIB == null || currentIB.getParent() instanceof LineBox ?
                                null : (InlineLayoutBox) currentIB.getParent();
                        remainingWidth = maxAvailableWidth;
-                       remainingWidth -= c.getBlockFormattingContext().getFloatDistance(c, currentLine, remainingWidth);
+                       remainingWidth -= getFloatDistance(c, currentLine, remainingWidth);
 
                        child.reset(c);
                        layoutInlineBlockContent(c, box, child, initialY);
@@ -377,6 +380,19 @@ public class InlineBoxing {
         box.setHeight(currentLine.getY() + currentLine.getHeight());
     }
 
+    /**
+     * Returns the width taken from <code>line</code> by floats.  A line
+     * narrowed by floats depends on where it is relative to them, so it can't
+     * be moved by translating it (see {@link Box#isLayoutPageDependent()}).
+     */
+    private static int getFloatDistance(LayoutContext c, LineBox line, int available) {
+        int distance = c.getBlockFormattingContext().getFloatDistance(c, line, available);
+        if (distance != 0) {
+            line.setLayoutPageDependent(true);
+        }
+        return distance;
+    }
+
     private static boolean isAlwaysBreak(LayoutContext c, BlockBox parent, int breakAtLine, int lineOffset) {
         if (parent.isCurrentBreakAtLineContext(c)) {
             return lineOffset == breakAtLine;
@@ -894,7 +910,7 @@ public class InlineBoxing {
             LineBox line, CalculatedStyle style, LineBreakContext lbContext,
             boolean zeroWidthInlineBlock) {
         if ((! line.isContainsContent() || zeroWidthInlineBlock) &&
-                lbContext.getStartSubstring().startsWith(WhitespaceStripper.SPACE)) {
+                lbContext.startSubstringStartsWith(WhitespaceStripper.SPACE)) {
             IdentValue whitespace = style.getWhitespace();
             if (whitespace == IdentValue.NORMAL
                     || whitespace == IdentValue.NOWRAP
@@ -910,12 +926,12 @@ public class InlineBoxing {
     }
 
     private static void trimLeadingSpace(LineBreakContext lbContext) {
-        String s = lbContext.getStartSubstring();
-        int i = 0;
+        String s = lbContext.getMaster();
+        int i = lbContext.getStart();
         while (i < s.length() && s.charAt(i) == ' ') {
             i++;
         }
-        lbContext.setStart(lbContext.getStart() + i);
+        lbContext.setStart(i);
     }
 
     private static LineBox newLine(LayoutContext c, LineBox previousLine, Box box) {
@@ -930,6 +946,7 @@ public class InlineBoxing {
 
     private static LineBox newLine(LayoutContext c, int y, Box box) {
         LineBox result = new LineBox();
+        MetricsTimer.count(c.getSharedContext(), RenderMetrics.COUNT_LINE_BOXES, 1);
         result.setStyle(box.getStyle().createAnonymousStyle(IdentValue.BLOCK));
         result.setParent(box);
         result.initContainingLayer(c);
@@ -35,9 +35,8 @@ import java.util.Set;
 import org.xhtmlrenderer.css.constants.CSSName;
 import org.xhtmlrenderer.css.constants.PageElementPosition;
 import org.xhtmlrenderer.css.newmatch.PageInfo;
-import org.xhtmlrenderer.css.style.CalculatedStyle;
 import org.xhtmlrenderer.css.style.CssContext;
-import org.xhtmlrenderer.css.style.EmptyStyle;
+import org.xhtmlrenderer.extend.RenderMetrics;
 import org.xhtmlrenderer.newtable.TableCellBox;
 import org.xhtmlrenderer.render.BlockBox;
 import org.xhtmlrenderer.render.Box;
@@ -46,6 +45,7 @@ import org.xhtmlrenderer.render.InlineLayoutBox;
 import org.xhtmlrenderer.render.PageBox;
 import org.xhtmlrenderer.render.RenderingContext;
 import org.xhtmlrenderer.render.ViewportBox;
+import org.xhtmlrenderer.util.MetricsTimer;
 
 /**
  * All positioned content as well as content with an overflow value other
@@ -813,8 +813,7 @@ public class Layer {
         PageInfo pageInfo = c.getCss().getPageStyle(pageName, pseudoPage);
         result.setPageInfo(pageInfo);
         
-        CalculatedStyle cs = new EmptyStyle().deriveStyle(pageInfo.getPageStyle());
-        result.setStyle(cs);
+        result.setStyle(pageInfo.getCalculatedPageStyle());
         result.setOuterPageWidth(result.getWidth(c));
         
         return result;
@@ -1078,11 +1077,18 @@ public class Layer {
     }
     
     public void layoutPages(LayoutContext c) {
-        c.setRootDocumentLayer(c.getRootLayer());
-        for (Iterator i = _pages.iterator(); i.hasNext(); ) {
-            PageBox pageBox = (PageBox)i.next();
-            pageBox.layout(c);
+        MetricsTimer timer = MetricsTimer.start(c.getSharedContext(), RenderMetrics.PHASE_PAGINATION);
+        try {
+            c.setRootDocumentLayer(c.getRootLayer());
+            Map marginAreaCache = new HashMap();
+            for (Iterator i = _pages.iterator(); i.hasNext(); ) {
+                PageBox pageBox = (PageBox)i.next();
+                pageBox.layout(c, marginAreaCache);
+            }
+        } finally {
+            timer.stop();
         }
+        MetricsTimer.count(c.getSharedContext(), RenderMetrics.COUNT_PAGES, _pages.size());
     }
     
     public void addPageSequence(BlockBox start) {
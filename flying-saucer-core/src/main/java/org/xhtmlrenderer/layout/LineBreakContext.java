@@ -75,15 +75,44 @@ public class LineBreakContext {
         return _master.substring(_start);
     }
     
+    /**
+     * Returns the number of characters remaining after the start offset.
+     * Equivalent to <code>getStartSubstring().length()</code>, but does not
+     * copy the text.
+     */
+    public int getStartSubstringLength() {
+        return _master.length() - _start;
+    }
+    
+    /**
+     * Returns the index of <code>str</code> relative to the start offset or
+     * <code>-1</code> if it does not occur in the remaining text.
+     */
+    public int indexOfFromStart(String str) {
+        int n = _master.indexOf(str, _start);
+        return n == -1 ? -1 : n - _start;
+    }
+    
+    public boolean startSubstringStartsWith(String prefix) {
+        return _master.startsWith(prefix, _start);
+    }
+    
     public String getCalculatedSubstring() {
+        return _master.substring(_start, getCalculatedEnd());
+    }
+
+    /**
+     * The end of {@link #getCalculatedSubstring()} in the master string.
+     */
+    public int getCalculatedEnd() {
         // mimic the calculation in InlineText.setSubstring to strip newlines for our width calculations
         // the original text width calculation in InlineBox.calcMaxWidthFromLineLength() excludes the newline character
         // so if we include them here we get spurious newlines
         // apparently newlines do take up some width in most fonts
         if (_end > 0 && _master.charAt(_end-1) == WhitespaceStripper.EOLC) {
-            return _master.substring(_start, _end-1);
+            return _end-1;
         }
-        return _master.substring(_start, _end);
+        return _end;
     }
 
     public boolean isUnbreakable() {
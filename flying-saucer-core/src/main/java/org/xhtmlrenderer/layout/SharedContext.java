@@ -39,6 +39,7 @@ import org.xhtmlrenderer.extend.FSCanvas;
 import org.xhtmlrenderer.extend.FontContext;
 import org.xhtmlrenderer.extend.FontResolver;
 import org.xhtmlrenderer.extend.NamespaceHandler;
+import org.xhtmlrenderer.extend.RenderMetrics;
 import org.xhtmlrenderer.extend.ReplacedElementFactory;
 import org.xhtmlrenderer.extend.TextRenderer;
 import org.xhtmlrenderer.extend.UserAgentCallback;
@@ -99,6 +100,8 @@ public class SharedContext {
     
     private LineBreakingStrategy lineBreakingStrategy = new DefaultLineBreakingStrategy();
 
+    private RenderMetrics renderMetrics;
+
     public SharedContext() {
     }
 
@@ -630,6 +633,23 @@ public class SharedContext {
 	public void setLineBreakingStrategy(LineBreakingStrategy lineBreakingStrategy) {
 		this.lineBreakingStrategy = lineBreakingStrategy;
 	}
+
+    /**
+     * Returns the listener which is told how long each rendering phase took, or null if there is none.
+     */
+    public RenderMetrics getRenderMetrics() {
+        return renderMetrics;
+    }
+
+    /**
+     * Sets a listener which is told how long each rendering phase took and how many boxes, pages, etc. were
+     * created.
+     *
+     * @param renderMetrics the listener, or null to stop measuring
+     */
+    public void setRenderMetrics(RenderMetrics renderMetrics) {
+        this.renderMetrics = renderMetrics;
+    }
 }
 
 /*
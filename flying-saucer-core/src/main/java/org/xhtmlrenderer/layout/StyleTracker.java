@@ -30,16 +30,32 @@ import org.xhtmlrenderer.css.style.CalculatedStyle;
  * A managed list of {@link CalculatedStyle} objects.  It is used when keeping
  * track of the styles which apply to a :first-line or :first-letter pseudo 
  * element.
+ * <p>
+ * Copies made with {@link #copyOf()} share the underlying list until one of
+ * them is modified.  Block layout snapshots both trackers for every child in
+ * paged media, but they rarely change before the snapshot is discarded.
  */
 public class StyleTracker {
-    private List _styles = new ArrayList();
+    private List _styles;
+    private boolean _shared;
+    
+    public StyleTracker() {
+        _styles = new ArrayList();
+    }
+    
+    private StyleTracker(List styles) {
+        _styles = styles;
+        _shared = true;
+    }
     
     public void addStyle(CascadedStyle style) {
+        ensureUnshared();
         _styles.add(style);
     }
 
     public void removeLast() {
         if (_styles.size() != 0) {
+            ensureUnshared();
             _styles.remove(_styles.size()-1);
         }
     }
@@ -49,7 +65,12 @@ public class StyleTracker {
     }
 
     public void clearStyles() {
-        _styles.clear();
+        if (_shared) {
+            _styles = new ArrayList();
+            _shared = false;
+        } else {
+            _styles.clear();
+        }
     }
     
     public CalculatedStyle deriveAll(CalculatedStyle start) {
@@ -65,8 +86,15 @@ public class StyleTracker {
     }
     
     public StyleTracker copyOf() {
-        StyleTracker result = new StyleTracker();
-        result._styles.addAll(this._styles);
+        StyleTracker result = new StyleTracker(_styles);
+        _shared = true;
         return result;
     }
+    
+    private void ensureUnshared() {
+        if (_shared) {
+            _styles = new ArrayList(_styles);
+            _shared = false;
+        }
+    }
 }
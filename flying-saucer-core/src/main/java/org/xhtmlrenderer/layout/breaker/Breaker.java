@@ -27,6 +27,8 @@ import org.w3c.dom.Node;
 import org.w3c.dom.Text;
 import org.xhtmlrenderer.css.constants.IdentValue;
 import org.xhtmlrenderer.css.style.CalculatedStyle;
+import org.xhtmlrenderer.extend.TextRangeRenderer;
+import org.xhtmlrenderer.extend.TextRenderer;
 import org.xhtmlrenderer.layout.LayoutContext;
 import org.xhtmlrenderer.layout.LineBreakContext;
 import org.xhtmlrenderer.layout.TextUtil;
@@ -46,8 +48,7 @@ public class Breaker {
             int avail, CalculatedStyle style) {
         FSFont font = style.getFSFont(c);
         context.setEnd(getFirstLetterEnd(context.getMaster(), context.getStart()));
-        context.setWidth(c.getTextRenderer().getWidth(
-                c.getFontContext(), font, context.getCalculatedSubstring()));
+        context.setWidth(getCalculatedWidth(c, font, context));
 
         if (context.getWidth() > avail) {
             context.setNeedsNewLine(true);
@@ -80,8 +81,7 @@ public class Breaker {
         // ====== handle nowrap
         if (whitespace == IdentValue.NOWRAP) {
         	context.setEnd(context.getLast());
-        	context.setWidth(c.getTextRenderer().getWidth(
-                    c.getFontContext(), font, context.getCalculatedSubstring()));
+        	context.setWidth(getCalculatedWidth(c, font, context));
             return;
         }
 
@@ -89,17 +89,15 @@ public class Breaker {
         if (whitespace == IdentValue.PRE ||
                 whitespace == IdentValue.PRE_WRAP ||
                 whitespace == IdentValue.PRE_LINE) {
-            int n = context.getStartSubstring().indexOf(WhitespaceStripper.EOL);
+            int n = context.indexOfFromStart(WhitespaceStripper.EOL);
             if (n > -1) {
                 context.setEnd(context.getStart() + n + 1);
-                context.setWidth(c.getTextRenderer().getWidth(
-                        c.getFontContext(), font, context.getCalculatedSubstring()));
+                context.setWidth(getCalculatedWidth(c, font, context));
                 context.setNeedsNewLine(true);
                 context.setEndsOnNL(true);
             } else if (whitespace == IdentValue.PRE) {
             	context.setEnd(context.getLast());
-                context.setWidth(c.getTextRenderer().getWidth(
-                        c.getFontContext(), font, context.getCalculatedSubstring()));
+                context.setWidth(getCalculatedWidth(c, font, context));
             }
         }
 
@@ -117,6 +115,22 @@ public class Breaker {
     	return c.getTextRenderer().getWidth(c.getFontContext(), f, text);
     }
 
+    /**
+     * Measures <code>text.substring(start, end)</code>, without copying it
+     * if the text renderer can measure a range.
+     */
+    private static int getWidth(LayoutContext c, FSFont f, String text, int start, int end) {
+        TextRenderer renderer = c.getTextRenderer();
+        if (renderer instanceof TextRangeRenderer) {
+            return ((TextRangeRenderer)renderer).getWidth(c.getFontContext(), f, text, start, end);
+        }
+        return renderer.getWidth(c.getFontContext(), f, text.substring(start, end));
+    }
+
+    private static int getCalculatedWidth(LayoutContext c, FSFont f, LineBreakContext context) {
+        return getWidth(c, f, context.getMaster(), context.getStart(), context.getCalculatedEnd());
+    }
+
     public static BreakPointsProvider getBreakPointsProvider(String text, LayoutContext c, Element element, CalculatedStyle style) {
     	return c.getSharedContext().getLineBreakingStrategy().getBreakPointsProvider(text, getLanguage(c, element), style);
     }
@@ -147,6 +161,8 @@ public class Breaker {
             LineBreakContext context, int avail, CalculatedStyle style,
             boolean tryToBreakAnywhere) {
         FSFont f = style.getFSFont(c);
+        // The break point strategies take a String, so this is the one copy
+        // made per line; fragments are measured as ranges of it
         String currentString = context.getStartSubstring();
         BreakPointsProvider iterator = getBreakPointsProvider(currentString, c, context.getTextNode(), style);
         if (tryToBreakAnywhere) {
@@ -158,7 +174,13 @@ public class Breaker {
         int previousWidth = 0;
         int previousPosition = 0;
         while (bp != null && bp.getPosition() != BreakIterator.DONE) {
-            int currentWidth = getWidth(c, f, currentString.substring(previousPosition, bp.getPosition()) + bp.getHyphen());
+            int currentWidth;
+            if (bp.getHyphen().isEmpty()) {
+                currentWidth = getWidth(c, f, currentString, previousPosition, bp.getPosition());
+            } else {
+                currentWidth = getWidth(c, f,
+                        currentString.substring(previousPosition, bp.getPosition()) + bp.getHyphen());
+            }
             int widthWithHyphen = previousWidth + currentWidth;
             previousWidth = widthWithHyphen;
             previousPosition = bp.getPosition();
@@ -177,7 +199,7 @@ public class Breaker {
         }
 
         if (bp != null && bp.getPosition() == BreakIterator.DONE) {
-            context.setWidth(getWidth(c, f, currentString));
+            context.setWidth(getWidth(c, f, currentString, 0, currentString.length()));
             context.setEnd(context.getMaster().length());
             //It fits!
             return;
@@ -193,14 +215,14 @@ public class Breaker {
 
         if (right > 0) { // found a place to wrap
             context.setEnd(context.getStart() + right);
-            context.setWidth(getWidth(c, f, context.getMaster().substring(context.getStart(), context.getStart() + right)));
+            context.setWidth(getWidth(c, f, context.getMaster(), context.getStart(), context.getStart() + right));
             return;
         }
 
        	// unbreakable string
         context.setEnd(context.getStart() + currentString.length());
         context.setUnbreakable(true);
-        context.setWidth(getWidth(c, f, context.getCalculatedSubstring()));
+        context.setWidth(getCalculatedWidth(c, f, context));
     }
 
 }
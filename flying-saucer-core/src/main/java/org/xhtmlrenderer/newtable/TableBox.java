@@ -42,6 +42,7 @@ import org.xhtmlrenderer.render.ContentLimitContainer;
 import org.xhtmlrenderer.render.PageBox;
 import org.xhtmlrenderer.render.RenderingContext;
 import org.xhtmlrenderer.util.ArrayUtil;
+import org.xhtmlrenderer.util.Configuration;
 import org.xhtmlrenderer.util.XRLog;
 
 // Much of this code is directly inspired by (and even copied from)
@@ -218,6 +219,10 @@ public class TableBox extends BlockBox {
     }
 
     public void layout(LayoutContext c) {
+        if (c.isPrint()) {
+            // Content limits and repeated headers and footers are tracked per page
+            setLayoutPageDependent(true);
+        }
         calcMinMaxWidth(c);
         calcDimensions(c);
         calcWidth();
@@ -898,6 +903,10 @@ public class TableBox extends BlockBox {
             super(table);
         }
 
+        protected int getMeasuredRowCount(TableSectionBox section) {
+            return section.numRows();
+        }
+
         protected int getMinColWidth() {
             return 0;
         }
@@ -1154,13 +1163,25 @@ public class TableBox extends BlockBox {
         }
     }
 
+    /**
+     * The automatic table layout algorithm.  By default the minimum and
+     * maximum width of every cell is taken into account.  For very large
+     * tables this can be limited to the first
+     * <code>xr.layout.table.auto-sample-rows</code> rows of each body section
+     * (header and footer rows are always measured).  Columns are then sized
+     * from that sample, much like <code>table-layout: fixed</code> sizes them
+     * from the first row, and content in later rows which does not fit will
+     * overflow its cell.
+     */
     private static class AutoTableLayout implements TableLayout {
         private final TableBox _table;
         private Layout[] _layoutStruct;
         private List _spanCells;
+        private final int _sampleRows;
 
         public AutoTableLayout(TableBox table) {
             _table = table;
+            _sampleRows = Configuration.valueAsInt("xr.layout.table.auto-sample-rows", 0);
         }
 
         public void reset() {
@@ -1219,13 +1240,22 @@ public class TableBox extends BlockBox {
             return 1;
         }
 
+        protected int getMeasuredRowCount(TableSectionBox section) {
+            int numRows = section.numRows();
+            if (_sampleRows > 0 && numRows > _sampleRows &&
+                    ! section.isHeader() && ! section.isFooter()) {
+                return _sampleRows;
+            }
+            return numRows;
+        }
+
         private void recalcColumn(LayoutContext c, int effCol) {
             Layout l = _layoutStruct[effCol];
 
             // first we iterate over all rows.
             for (Iterator j = _table.getChildIterator(); j.hasNext();) {
                 TableSectionBox section = (TableSectionBox) j.next();
-                int numRows = section.numRows();
+                int numRows = getMeasuredRowCount(section);
                 for (int i = 0; i < numRows; i++) {
                     TableCellBox cell = section.cellAt(i, effCol);
                     if (cell == TableCellBox.SPANNING_CELL || cell == null) {
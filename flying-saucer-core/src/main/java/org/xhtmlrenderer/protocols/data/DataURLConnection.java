@@ -22,7 +22,6 @@ package org.xhtmlrenderer.protocols.data;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.charset.Charset;
@@ -30,6 +29,8 @@ import java.nio.charset.UnsupportedCharsetException;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.xhtmlrenderer.util.DataURIUtil;
+
 public class DataURLConnection extends URLConnection {
 
     private Map _headers = new HashMap();
@@ -69,7 +70,7 @@ public class DataURLConnection extends URLConnection {
         return new ByteArrayInputStream(_data);
     }
 
-    protected void parseURL() throws UnsupportedEncodingException {
+    protected void parseURL() throws IOException {
         String sub = getURL().getPath();
 
         int comma = sub.indexOf(',');
@@ -79,7 +80,6 @@ public class DataURLConnection extends URLConnection {
         }
         
         String meta = sub.substring(0, comma);
-        String data = sub.substring(comma + 1);
 
         boolean isBase64 = false;
         Map properties = new HashMap();
@@ -123,20 +123,24 @@ public class DataURLConnection extends URLConnection {
         
         // Now we parse the data
         if (isBase64) {
-            _data = Base64.decode(data);
+            try {
+                _data = DataURIUtil.decodeBase64(sub, comma + 1, sub.length());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid base64 data in data URL: " + e.getMessage(), e);
+            }
         } else {
-            _data = URLByteDecoder.decode(data);
+            _data = URLByteDecoder.decode(sub, comma + 1);
         }
     }
 }
 
 class URLByteDecoder {
     
-    public static byte [] decode(String s) {
+    public static byte [] decode(String s, int start) {
 
-        byte [] buffer = new byte [s.length()];
+        byte [] buffer = new byte [s.length() - start];
         
-        int index = 0;
+        int index = start;
         int bindex = 0;
         char c;
         
@@ -168,53 +172,3 @@ class URLByteDecoder {
     }
     
 }
-
-class Base64 {
-    
-    private static String _map = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/=";
-    
-    public static byte [] decode(String s) {
-
-        if (s == null || s.length() < 4)
-            return new byte [] {};
-        
-        s = s.replaceAll("[^A-Za-z0-9\\+\\/\\=]+", "");
-        
-        if (s.length() < 4)
-            return new byte [] {};
-        
-        int padding = 0;
-
-        if (s.charAt(s.length() - 1) == '=')
-            padding++;
-        if (s.charAt(s.length() - 2) == '=')
-            padding++;
-
-        byte [] input = s.getBytes();
-        byte [] output = new byte [((s.length() / 4) * 3) - padding];
-        
-        int outputIndex = 0;
-
-        for (int i = 0; i < input.length; i += 4) {
-
-            int e =
-                _map.indexOf(input[i])     << 18 |
-                _map.indexOf(input[i + 1]) << 12 |
-                _map.indexOf(input[i + 2]) << 6  |
-                _map.indexOf(input[i + 3]);
-            
-            output[outputIndex++] = (byte) ((e >> 16) & 0xFF);
-            
-            if (input[i + 2] != '=') {
-                output[outputIndex++] = (byte) ((e >> 8)  & 0xFF);
-
-                if (input[i + 3] != '=') {
-                    output[outputIndex++] = (byte) (e & 0xFF);
-                }
-            }
-        }
-
-        return output;
-    }
-
-}
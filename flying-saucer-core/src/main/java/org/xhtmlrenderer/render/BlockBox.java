@@ -687,6 +687,7 @@ public class BlockBox extends Box implements InlinePaintable {
             setLeftMBP((int) margin.left() + (int) border.left() + (int) padding.left());
             setRightMBP((int) padding.right() + (int) border.right() + (int) margin.right());
             if (c.isPrint() && getStyle().isDynamicAutoWidth()) {
+                setLayoutPageDependent(true);
                 setContentWidth(calcEffPageRelativeWidth(c));
             } else {
                 setContentWidth((getContainingBlockWidth() - getLeftMBP() - getRightMBP()));
@@ -750,10 +751,15 @@ public class BlockBox extends Box implements InlinePaintable {
 
     private void calcClearance(LayoutContext c) {
         if (getStyle().isCleared() && ! getStyle().isFloated()) {
+            int y = getY();
             c.translate(0, -getY());
             c.getBlockFormattingContext().clear(c, this);
             c.translate(0, getY());
             calcCanvasLocation();
+            if (getY() != y) {
+                // the clearance depends on where the box is relative to the floats
+                setLayoutPageDependent(true);
+            }
         }
     }
 
@@ -763,6 +769,7 @@ public class BlockBox extends Box implements InlinePaintable {
             PageBox first = c.getRootLayer().getFirstPage(c, this);
             if (first != null && first.getTop() + c.getExtraSpaceTop() > getAbsY()) {
                 int diff = first.getTop() + c.getExtraSpaceTop() - getAbsY();
+                setLayoutPageDependent(true);
                 setY(getY() + diff);
                 c.translate(0, diff);
                 calcCanvasLocation();
@@ -817,6 +824,11 @@ public class BlockBox extends Box implements InlinePaintable {
             c.getRootLayer().addPageSequence(this);
         }
 
+        if (c.isPrint() && (pushedLayer || style.isFloated() || style.isRunning() ||
+                style.isKeepWithInline() || ! style.isIdent(CSSName.PAGE, IdentValue.AUTO))) {
+            setLayoutPageDependent(true);
+        }
+
         calcDimensions(c);
         calcShrinkToFitWidthIfNeeded(c);
         collapseMargins(c);
@@ -826,6 +838,7 @@ public class BlockBox extends Box implements InlinePaintable {
         if (c.isPrint()) {
             PageBox firstPage = c.getRootLayer().getFirstPage(c, this);
             if (firstPage != null && firstPage.getTop() == getAbsY() - getPageClearance()) {
+                setLayoutPageDependent(true);
                 resetTopMargin(c);
             }
         }
@@ -880,6 +893,7 @@ public class BlockBox extends Box implements InlinePaintable {
                         c.getBlockFormattingContext().getFloatManager().getClearDelta(
                                 c, getTy() + getHeight());
                 if (delta > 0) {
+                    setLayoutPageDependent(true);
                     setHeight(getHeight() + delta);
                     setChildrenHeight(getChildrenHeight() + delta);
                 }
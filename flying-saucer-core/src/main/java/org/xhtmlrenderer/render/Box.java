@@ -98,6 +98,8 @@ public abstract class Box implements Styleable {
 
     private boolean _anonymous;
 
+    private boolean _layoutPageDependent;
+
     protected Box() {
     }
 
@@ -521,6 +523,7 @@ public abstract class Box implements Styleable {
         setContentWidth(0);
 
         _workingMargin = null;
+        _layoutPageDependent = false;
 
         String anchorName = c.getNamespaceHandler().getAnchorName(getElement());
         if (anchorName != null) {
@@ -571,6 +574,7 @@ public abstract class Box implements Styleable {
     }
 
     public int forcePageBreakBefore(LayoutContext c, IdentValue pageBreakValue, boolean pendingPageName) {
+        setLayoutPageDependent(true);
         PageBox page = c.getRootLayer().getFirstPage(c, this);
         if (page == null) {
             XRLog.layout(Level.WARNING, "Box has no page");
@@ -623,6 +627,7 @@ public abstract class Box implements Styleable {
     }
 
     public void forcePageBreakAfter(LayoutContext c, IdentValue pageBreakValue) {
+        setLayoutPageDependent(true);
         boolean needSecondPageBreak = false;
         PageBox page = c.getRootLayer().getLastPage(c, this);
 
@@ -758,6 +763,39 @@ public abstract class Box implements Styleable {
         return getContainingBlock().getContentWidth();
     }
 
+    /**
+     * Returns <code>true</code> if the top margin currently in effect differs
+     * from the one specified in the style (e.g. because it was collapsed with
+     * an adjoining margin).  Such a margin is reset when the box starts a page.
+     */
+    public boolean isTopMarginCollapsed(CssContext cssContext) {
+        return _workingMargin != null &&
+                _workingMargin.top() != getStyleMargin(cssContext).top();
+    }
+
+    /**
+     * Returns whether the layout of this box or of any box below it depended
+     * on the absolute position of the box in the paged document (a page
+     * break, page-top margin handling, a page-relative width, a named page,
+     * floated or positioned content, ...).  If not, the box can be moved to a
+     * different position by translating it instead of laying it out again.
+     */
+    public boolean isLayoutPageDependent() {
+        if (_layoutPageDependent) {
+            return true;
+        }
+        for (int i = 0; i < getChildCount(); i++) {
+            if (getChild(i).isLayoutPageDependent()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void setLayoutPageDependent(boolean layoutPageDependent) {
+        _layoutPageDependent = layoutPageDependent;
+    }
+
     protected void resetTopMargin(CssContext cssContext) {
         if (_workingMargin != null) {
             RectPropertySet styleMargin = getStyleMargin(cssContext);
@@ -304,10 +304,10 @@ public class InlineLayoutBox extends Box implements InlinePaintable {
     //PDF/UA
     private void paintInlineText(RenderingContext c, InlineText inlineText){
     	//PDF/UA Check is not marked as tagged for no repeat it
-        if(!inlineText.isTagged()){
+        if(!inlineText.isTagged(c)){
         	inlineText.paint(c);
         	//PDF/UA mark as tagged for no repeat it
-        	inlineText.setTagged(true);
+        	inlineText.setTagged(c);
         }
     }
     
@@ -702,6 +702,19 @@ public class InlineLayoutBox extends Box implements InlinePaintable {
         setAbsY(lineBox.getAbsY() + getY());
     }
     
+    public boolean isLayoutPageDependent() {
+        if (super.isLayoutPageDependent()) {
+            return true;
+        }
+        for (int i = 0; i < getInlineChildCount(); i++) {
+            Object obj = getInlineChild(i);
+            if (obj instanceof Box && ((Box)obj).isLayoutPageDependent()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
     public void calcChildLocations() {
         for (int i = 0; i < getInlineChildCount(); i++) {
             Object obj = getInlineChild(i);
@@ -58,15 +58,15 @@ public class InlineText {
     private boolean _trimmedTrailingSpace;
     private Text _textNode;
     
-    // PDF/UA marked as tagged 
-    private boolean _tagged = false;
+    // PDF/UA marked as tagged by the rendering context that painted it
+    private RenderingContext _taggedBy;
     
-    public boolean isTagged() {
-		return _tagged;
+    public boolean isTagged(RenderingContext c) {
+		return _taggedBy == c;
 	}
 
-	public void setTagged(boolean _tagged) {
-		this._tagged = _tagged;
+	public void setTagged(RenderingContext c) {
+		_taggedBy = c;
 	}
 
 	public void trimTrailingSpace(LayoutContext c) {
@@ -120,6 +120,13 @@ public class InlineText {
     public void setMasterText(String masterText) {
         _masterText = masterText;
     }
+    
+    /**
+     * Returns the length of the text fragment without creating it.
+     */
+    public int getSubstringLength() {
+        return _end - _start;
+    }
 
     public int getX() {
         return _x;
@@ -268,17 +275,17 @@ public class InlineText {
     
     public void selectAll() {
         _selectionStart = 0;
-        _selectionEnd = (short)getSubstring().length();
+        _selectionEnd = (short)getSubstringLength();
     }
     
     public String getTextExportText() {
-        char[] ch = getSubstring().toCharArray();
-        StringBuffer result = new StringBuffer();
+        String master = getMasterText();
+        StringBuffer result = new StringBuffer(getSubstringLength() + 2);
         if (isTrimmedLeadingSpace()) {
             result.append(' ');
         }
-        for (int i = 0; i < ch.length; i++) {
-            char c = ch[i];
+        for (int i = _start; i < _end; i++) {
+            char c = master.charAt(i);
             if (c != '\n') {
                 result.append(c);
             }
@@ -306,12 +313,11 @@ public class InlineText {
     }
     
     public void countJustifiableChars(CharCounts counts) {
-        String s = getSubstring();
-        int len = s.length();
+        String s = getMasterText();
         int spaces = 0;
         int other = 0;
         
-        for (int i = 0; i < len; i++) {
+        for (int i = _start; i < _end; i++) {
             char c = s.charAt(i);
             if (c == ' ' || c == '\u00a0' || c == '\u3000') {
                 spaces++;
@@ -325,11 +331,10 @@ public class InlineText {
     }
     
     public float calcTotalAdjustment(JustificationInfo info) {
-        String s = getSubstring();
-        int len = s.length();
+        String s = getMasterText();
 
         float result = 0.0f;
-        for (int i = 0; i < len; i++) {
+        for (int i = _start; i < _end; i++) {
             char c = s.charAt(i);
             if (c == ' ' || c == '\u00a0' || c == '\u3000') {
                 result += info.getSpaceAdjust();
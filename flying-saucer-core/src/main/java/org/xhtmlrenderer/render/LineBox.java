@@ -419,6 +419,12 @@ public class LineBox extends Box implements InlinePaintable {
         setAbsY(parent.getAbsY() + parent.getTy() + getY());        
     }
     
+    public boolean isLayoutPageDependent() {
+        // Floated and absolutely positioned content is positioned relative
+        // to the page or to an enclosing block formatting context
+        return getNonFlowContent().size() > 0 || super.isLayoutPageDependent();
+    }
+
     public void calcChildLocations() {
         super.calcChildLocations();
         
@@ -633,6 +639,7 @@ public class LineBox extends Box implements InlinePaintable {
            } else if (pageBox.getTop() + c.getExtraSpaceTop() > getAbsY()) {
                int diff = pageBox.getTop() + c.getExtraSpaceTop() - getAbsY();
                
+               setLayoutPageDependent(true);
                setY(getY() + diff);
                calcCanvasLocation();
            }
@@ -24,9 +24,11 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import org.w3c.dom.Element;
 import org.w3c.dom.css.CSSPrimitiveValue;
@@ -41,10 +43,13 @@ import org.xhtmlrenderer.css.style.CalculatedStyle;
 import org.xhtmlrenderer.css.style.CssContext;
 import org.xhtmlrenderer.css.style.derived.LengthValue;
 import org.xhtmlrenderer.css.style.derived.RectPropertySet;
+import org.xhtmlrenderer.css.extend.ContentFunction;
+import org.xhtmlrenderer.extend.RenderMetrics;
 import org.xhtmlrenderer.layout.BoxBuilder;
 import org.xhtmlrenderer.layout.Layer;
 import org.xhtmlrenderer.layout.LayoutContext;
 import org.xhtmlrenderer.newtable.TableBox;
+import org.xhtmlrenderer.util.MetricsTimer;
 
 public class PageBox {
     private static final MarginArea[] MARGIN_AREA_DEFS = new MarginArea[] {
@@ -323,6 +328,10 @@ public class PageBox {
                 Point p = container.getArea().getPaintingPosition(
                         c, this, additionalClearance, mode);
                 
+                if (container.isShared()) {
+                    clearTagged(table);
+                }
+                
                 c.getOutputDevice().translate(p.x, p.y);
                 table.getLayer().paint(c);
                 c.getOutputDevice().translate(-p.x, -p.y);
@@ -330,6 +339,29 @@ public class PageBox {
         }
     }
 
+    /**
+     * Margin areas shared with other pages are painted once per page, but
+     * inline text is only painted while it hasn't been tagged by the current
+     * rendering context yet.
+     */
+    private static void clearTagged(Box box) {
+        if (box instanceof InlineLayoutBox) {
+            InlineLayoutBox iB = (InlineLayoutBox)box;
+            for (int i = 0; i < iB.getInlineChildCount(); i++) {
+                Object child = iB.getInlineChild(i);
+                if (child instanceof InlineText) {
+                    ((InlineText)child).setTagged(null);
+                } else if (child instanceof Box) {
+                    clearTagged((Box)child);
+                }
+            }
+        } else {
+            for (int i = 0; i < box.getChildCount(); i++) {
+                clearTagged(box.getChild(i));
+            }
+        }
+    }
+
     public int getPageNo() {
         return _pageNo;
     }
@@ -364,9 +396,84 @@ public class PageBox {
     }
     
     public void layout(LayoutContext c) {
+        layout(c, null);
+    }
+    
+    /**
+     * Lays out the page.  If <code>marginAreaCache</code> is not
+     * <code>null</code>, pages whose margin content resolves to the same
+     * @page rules and the same running elements share a single laid out
+     * copy of their margin areas.  Page counters don't affect the key since
+     * they are re-evaluated at paint time anyway.
+     */
+    public void layout(LayoutContext c, Map marginAreaCache) {
         c.setPage(this);
         retrievePageMetadata(c);
+        
+        List key = null;
+        if (marginAreaCache != null) {
+            key = createMarginAreaKey(c);
+            if (key != null) {
+                MarginAreaContainer[] cached = (MarginAreaContainer[])marginAreaCache.get(key);
+                if (cached != null) {
+                    for (int i = 0; i < cached.length; i++) {
+                        if (cached[i] != null) {
+                            cached[i].setShared(true);
+                        }
+                    }
+                    _marginAreas = cached;
+                    MetricsTimer.count(c.getSharedContext(), RenderMetrics.COUNT_CACHE_HITS, 1);
+                    return;
+                }
+            }
+        }
+        
         layoutMarginAreas(c);
+        
+        if (key != null) {
+            marginAreaCache.put(key, _marginAreas);
+        }
+    }
+    
+    /**
+     * Returns a key identifying everything the margin area layout of this
+     * page depends on or <code>null</code> if the margin content can't be
+     * shared (i.e. it uses a static content function whose value may differ
+     * from page to page).
+     */
+    private List createMarginAreaKey(LayoutContext c) {
+        List result = new ArrayList();
+        result.add(_pageInfo);
+        for (Iterator i = _pageInfo.getMarginBoxes().values().iterator(); i.hasNext(); ) {
+            List decls = (List)i.next();
+            for (Iterator j = decls.iterator(); j.hasNext(); ) {
+                PropertyDeclaration decl = (PropertyDeclaration)j.next();
+                if (decl.getCSSName() != CSSName.CONTENT) {
+                    continue;
+                }
+                List values = ((PropertyValue)decl.getValue()).getValues();
+                if (values == null) {
+                    continue;
+                }
+                for (Iterator k = values.iterator(); k.hasNext(); ) {
+                    PropertyValue value = (PropertyValue)k.next();
+                    if (value.getPropertyValueType() != PropertyValue.VALUE_TYPE_FUNCTION) {
+                        continue;
+                    }
+                    FSFunction func = value.getFunction();
+                    if (BoxBuilder.isElementFunction(func)) {
+                        result.add(BoxBuilder.getRunningBlock(c, value));
+                    } else {
+                        ContentFunction contentFunction = 
+                            c.getContentFunctionFactory().lookupFunction(c, func);
+                        if (contentFunction != null && contentFunction.isStatic()) {
+                            return null;
+                        }
+                    }
+                }
+            }
+        }
+        return result;
     }
     
     // HACK Would much prefer to do this in ITextRenderer or ITextOutputDevice
@@ -479,11 +586,20 @@ public class PageBox {
     private static class MarginAreaContainer {
         private final MarginArea _area;
         private final TableBox _table;
+        private boolean _shared;
         
         public MarginAreaContainer(MarginArea area, TableBox table) {
             _area = area;
             _table = table;
         }
+        
+        public boolean isShared() {
+            return _shared;
+        }
+        
+        public void setShared(boolean shared) {
+            _shared = shared;
+        }
 
         public MarginArea getArea() {
             return _area;
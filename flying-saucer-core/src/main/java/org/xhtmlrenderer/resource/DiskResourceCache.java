@@ -0,0 +1,378 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+
+import org.xhtmlrenderer.util.XRLog;
+
+/**
+ * <p>A cache of resources in a directory which may be shared by several processes, e.g. all render workers on a
+ * machine, so that a newly started one finds the fonts, images and stylesheets the others have already
+ * downloaded. It is used by {@link HttpResourceFetcher#setDiskCache(DiskResourceCache)}.</p>
+ *
+ * <p>The content of each resource is stored once, in a file named by its SHA-256 hash, however many keys refer
+ * to it. Content is memory-mapped when it is read, so it is shared with the other processes through the page
+ * cache instead of being copied to each heap. Files are written under a temporary name and then renamed, so
+ * nobody sees a partly written file.</p>
+ *
+ * <p>When the content files take up more than the maximum size, the least recently used ones are deleted until
+ * they take up 90% of it. Every process checks this after it has added a tenth of the maximum size, so the
+ * directory may grow past its maximum for a while if several processes add to it at once.</p>
+ */
+public class DiskResourceCache {
+    private static final int FORMAT = 1;
+    private static final String TEMP_SUFFIX = ".tmp";
+    /**
+     * temporary files older than this are left over from a crash
+     */
+    private static final long TEMP_FILE_AGE = 60 * 60 * 1000;
+    /**
+     * smaller files are read into the heap; mapping them costs more than it saves
+     */
+    private static final int MAP_THRESHOLD = 64 * 1024;
+    /**
+     * {@link #touch(Entry)} updates the files of an entry at most this often
+     */
+    private static final long TOUCH_INTERVAL = 60 * 1000;
+
+    private final File _content;
+    private final File _index;
+    private final long _maxSize;
+
+    private long _addedSinceCheck = Long.MAX_VALUE;
+
+    /**
+     * Opens a cache directory, creating it if necessary.
+     *
+     * @param directory the directory
+     * @param maxSize the number of bytes the content files may take up
+     * @throws IOException if the directory could not be created
+     */
+    public DiskResourceCache(File directory, long maxSize) throws IOException {
+        _content = new File(directory, "content");
+        _index = new File(directory, "index");
+        _maxSize = maxSize;
+        if (! (_content.isDirectory() || _content.mkdirs()) || ! (_index.isDirectory() || _index.mkdirs())) {
+            throw new IOException("Unable to create cache directory " + directory);
+        }
+    }
+
+    /**
+     * Looks up a resource.
+     *
+     * @param key the key it was stored under, e.g. its URI
+     * @return the resource, or null if it isn't in the cache
+     */
+    public Entry get(String key) {
+        File indexFile = new File(_index, hash(key));
+        try {
+            DataInputStream in = new DataInputStream(new FileInputStream(indexFile));
+            String contentHash;
+            long length;
+            Properties attributes = new Properties();
+            try {
+                if (in.readInt() != FORMAT || ! in.readUTF().equals(key)) {
+                    return null;
+                }
+                contentHash = in.readUTF();
+                length = in.readLong();
+                for (int i = in.readInt(); i > 0; i--) {
+                    attributes.setProperty(in.readUTF(), in.readUTF());
+                }
+            } finally {
+                in.close();
+            }
+
+            File contentFile = new File(_content, contentHash);
+            ByteBuffer content = read(contentFile, length);
+            if (content == null) {
+                // evicted, or written by a crashed process
+                indexFile.delete();
+                return null;
+            }
+            Entry entry = new Entry(attributes, content, contentFile, indexFile);
+            touch(entry);
+            return entry;
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            XRLog.load(Level.WARNING, "Unable to read " + key + " from the cache directory: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores a resource, replacing what was stored under the same key.
+     *
+     * @param key the key to store it under, e.g. its URI
+     * @param attributes anything else to keep, e.g. the HTTP headers needed to revalidate the resource
+     * @param content the content of the resource; its position and limit are not changed
+     * @return the stored entry, with the given content, or null if it couldn't be stored
+     */
+    public Entry put(String key, Properties attributes, ByteBuffer content) {
+        try {
+            String contentHash = hash(content);
+            File contentFile = new File(_content, contentHash);
+            boolean added = false;
+            if (contentFile.isFile()) {
+                contentFile.setLastModified(System.currentTimeMillis());
+            } else {
+                write(contentFile, content.duplicate());
+                added = true;
+            }
+
+            ByteArrayOutputStream index = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(index);
+            out.writeInt(FORMAT);
+            out.writeUTF(key);
+            out.writeUTF(contentHash);
+            out.writeLong(content.remaining());
+            out.writeInt(attributes.size());
+            for (Iterator i = attributes.entrySet().iterator(); i.hasNext(); ) {
+                Map.Entry attribute = (Map.Entry) i.next();
+                out.writeUTF((String) attribute.getKey());
+                out.writeUTF((String) attribute.getValue());
+            }
+            out.close();
+            File indexFile = new File(_index, hash(key));
+            write(indexFile, ByteBuffer.wrap(index.toByteArray()));
+
+            if (added) {
+                added(content.remaining());
+            }
+            return new Entry(attributes, content, contentFile, indexFile);
+        } catch (IOException e) {
+            XRLog.load(Level.WARNING, "Unable to write " + key + " to the cache directory: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Marks an entry as used, so that it isn't evicted before entries used less recently. To be called when an
+     * entry is used again without {@link #get(String)}, e.g. from a cache in memory. Does nothing if it was
+     * marked less than a minute ago.
+     *
+     * @param entry an entry returned by this cache
+     */
+    public void touch(Entry entry) {
+        long now = System.currentTimeMillis();
+        if (now - entry._touched >= TOUCH_INTERVAL) {
+            entry._touched = now;
+            entry._contentFile.setLastModified(now);
+            entry._indexFile.setLastModified(now);
+        }
+    }
+
+    /**
+     * Removes the entry for a key. Its content is kept until it is evicted, as other keys may refer to it.
+     *
+     * @param key the key
+     */
+    public void remove(String key) {
+        new File(_index, hash(key)).delete();
+    }
+
+    private static ByteBuffer read(File file, long length) throws IOException {
+        RandomAccessFile in;
+        try {
+            in = new RandomAccessFile(file, "r");
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+        try {
+            FileChannel channel = in.getChannel();
+            if (channel.size() != length) {
+                return null;
+            } else if (length < MAP_THRESHOLD) {
+                byte[] b = new byte[(int) length];
+                in.readFully(b);
+                return ByteBuffer.wrap(b).asReadOnlyBuffer();
+            } else {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void write(File file, ByteBuffer data) throws IOException {
+        File temp = File.createTempFile("cache", TEMP_SUFFIX, file.getParentFile());
+        try {
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                FileChannel channel = out.getChannel();
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            } finally {
+                out.close();
+            }
+            if (! temp.renameTo(file)) {
+                // some platforms don't replace existing files
+                file.delete();
+                if (! temp.renameTo(file)) {
+                    throw new IOException("Unable to rename " + temp + " to " + file);
+                }
+            }
+            temp = null;
+        } finally {
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+    }
+
+    private synchronized void added(long bytes) {
+        if (_addedSinceCheck != Long.MAX_VALUE) {
+            _addedSinceCheck += bytes;
+        }
+        if (_addedSinceCheck > _maxSize / 10) {
+            _addedSinceCheck = 0;
+            evict();
+        }
+    }
+
+    private void evict() {
+        File[] files = _content.listFiles();
+        if (files == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long size = 0;
+        List content = new ArrayList(files.length);
+        for (int i = 0; i < files.length; i++) {
+            File file = files[i];
+            if (file.getName().endsWith(TEMP_SUFFIX)) {
+                if (file.lastModified() < now - TEMP_FILE_AGE) {
+                    file.delete();
+                }
+            } else {
+                size += file.length();
+                content.add(file);
+            }
+        }
+        if (size <= _maxSize) {
+            return;
+        }
+
+        File[] sorted = (File[]) content.toArray(new File[content.size()]);
+        Arrays.sort(sorted, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                long m1 = ((File) o1).lastModified();
+                long m2 = ((File) o2).lastModified();
+                return m1 < m2 ? -1 : (m1 == m2 ? 0 : 1);
+            }
+        });
+        long target = _maxSize / 10 * 9;
+        long cutoff = 0;
+        for (int i = 0; i < sorted.length && size > target; i++) {
+            long length = sorted[i].length();
+            cutoff = sorted[i].lastModified();
+            if (sorted[i].delete()) {
+                size -= length;
+            }
+        }
+
+        // index entries not used since then most likely refer to deleted content; the others are removed
+        // when they are next read
+        File[] index = _index.listFiles();
+        for (int i = 0; index != null && i < index.length; i++) {
+            if (index[i].lastModified() <= cutoff) {
+                index[i].delete();
+            }
+        }
+    }
+
+    private static String hash(String key) {
+        try {
+            return hash(ByteBuffer.wrap(key.getBytes("UTF-8")));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String hash(ByteBuffer data) {
+        byte[] digest;
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(data.duplicate());
+            digest = md.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        StringBuffer result = new StringBuffer(digest.length * 2);
+        for (int i = 0; i < digest.length; i++) {
+            result.append(Character.forDigit((digest[i] >> 4) & 0xF, 16));
+            result.append(Character.forDigit(digest[i] & 0xF, 16));
+        }
+        return result.toString();
+    }
+
+    /**
+     * A resource found in the cache.
+     */
+    public static final class Entry {
+        private final Properties _attributes;
+        private final ByteBuffer _content;
+        private final File _contentFile;
+        private final File _indexFile;
+        private volatile long _touched;
+
+        private Entry(Properties attributes, ByteBuffer content, File contentFile, File indexFile) {
+            _attributes = attributes;
+            _content = content;
+            _contentFile = contentFile;
+            _indexFile = indexFile;
+        }
+
+        /**
+         * @return the attributes the resource was stored with
+         */
+        public Properties getAttributes() {
+            return _attributes;
+        }
+
+        /**
+         * @return the content, read-only and possibly memory-mapped
+         */
+        public ByteBuffer getContent() {
+            return _content;
+        }
+    }
+}
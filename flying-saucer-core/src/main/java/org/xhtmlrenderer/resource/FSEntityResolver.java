@@ -21,15 +21,17 @@
 package org.xhtmlrenderer.resource;
 
 import org.xhtmlrenderer.util.GeneralUtil;
+import org.xhtmlrenderer.util.IOUtil;
 import org.xhtmlrenderer.util.XRLog;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.ext.EntityResolver2;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.StringReader;
 import java.net.URL;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Level;
@@ -59,8 +61,16 @@ public class FSEntityResolver implements EntityResolver2 {
      */
     private static FSEntityResolver instance;
 
+    private static final String HTML5_DTD = "/resources/schema/html5/entities.dtd";
+
     private final Map entities = new HashMap();
 
+    /**
+     * public ID -> LocalEntity; the DTDs are read for almost every document, so they are kept in memory instead
+     * of being read from the jar each time
+     */
+    private final Map cache = Collections.synchronizedMap(new HashMap());
+
     // fill the list of URLs
     /**
      * Constructor for the FSEntityResolver object
@@ -99,17 +109,18 @@ public class FSEntityResolver implements EntityResolver2 {
             throws SAXException {
 
         InputSource local = null;
-        String url = (String) getEntities().get(publicID);
+        String url = (String) entities.get(publicID);
         if (url != null) {
-            URL realUrl = GeneralUtil.getURLFromClasspath(this, url);
-            InputStream is = null;
-            try {
-                is = realUrl.openStream();
-            } catch (IOException e) {
-                e.printStackTrace();
+            LocalEntity entity = (LocalEntity) cache.get(publicID);
+            if (entity == null) {
+                URL realUrl = GeneralUtil.getURLFromClasspath(this, url);
+                entity = LocalEntity.read(realUrl);
+                if (entity != null) {
+                    cache.put(publicID, entity);
+                }
             }
 
-            if (is == null) {
+            if (entity == null) {
                 XRLog.xmlEntities(Level.WARNING,
                         "Can't find a local reference for Entity for public ID: " + publicID +
                         " and expected to. The local URL should be: " + url + ". Not finding " +
@@ -117,9 +128,9 @@ public class FSEntityResolver implements EntityResolver2 {
                         "should be included with the renderer and so not finding it means it is " +
                         "not on the CLASSPATH, and should be. Will let parser use the default in " +
                         "this case.");
+            } else {
+                local = entity.newInputSource();
             }
-            local = new InputSource(is);
-            local.setSystemId(realUrl.toExternalForm());
             XRLog.xmlEntities(Level.FINE, "Entity public: " + publicID + " -> " + url +
                     (local == null ? ", NOT FOUND" : " (local)"));
         } else if ("about:legacy-compat".equals(systemID)) {
@@ -145,20 +156,55 @@ public class FSEntityResolver implements EntityResolver2 {
         return name.equalsIgnoreCase("html") ? newHTML5DoctypeSource() : null;
     }
 
-    private static InputSource newHTML5DoctypeSource() {
-        URL dtd = FSEntityResolver.class
-                .getResource("/resources/schema/html5/entities.dtd");
-        if (dtd == null) {
-            throw new IllegalStateException("Could not find " +
-                    "/resources/schema/html5/entities.dtd on the classpath");
+    private InputSource newHTML5DoctypeSource() {
+        LocalEntity entity = (LocalEntity) cache.get(HTML5_DTD);
+        if (entity == null) {
+            entity = LocalEntity.read(FSEntityResolver.class.getResource(HTML5_DTD));
+            if (entity == null) {
+                throw new IllegalStateException("Could not find " +
+                        HTML5_DTD + " on the classpath");
+            }
+            cache.put(HTML5_DTD, entity);
         }
-        return new InputSource(dtd.toExternalForm());
+        return entity.newInputSource();
     }
 
     private static InputSource newEmptySource() {
         return new InputSource(new StringReader(""));
     }
 
+    /**
+     * The content of a local copy of a DTD or entity set.
+     */
+    private static class LocalEntity {
+        private final String systemId;
+        private final byte[] content;
+
+        private LocalEntity(String systemId, byte[] content) {
+            this.systemId = systemId;
+            this.content = content;
+        }
+
+        static LocalEntity read(URL url) {
+            if (url == null) {
+                return null;
+            }
+            try {
+                return new LocalEntity(url.toExternalForm(), IOUtil.readBytes(url.openStream()));
+            } catch (IOException e) {
+                XRLog.xmlEntities(Level.WARNING, "Unable to read " + url, e);
+                return null;
+            }
+        }
+
+        InputSource newInputSource() {
+            // the system ID is still needed to resolve relative references, e.g. to the entity sets
+            InputSource source = new InputSource(new ByteArrayInputStream(content));
+            source.setSystemId(systemId);
+            return source;
+        }
+    }
+
     /**
      * Gets an instance of this class.
      *
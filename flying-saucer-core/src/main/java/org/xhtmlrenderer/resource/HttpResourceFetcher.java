@@ -0,0 +1,581 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.resource;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.CookieHandler;
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Semaphore;
+
+import org.xhtmlrenderer.util.ByteBufferInputStream;
+import org.xhtmlrenderer.util.IOUtil;
+
+/**
+ * <p>A {@link ResourceFetcher} which caches what it loads from HTTP servers, so that unchanged stylesheets, fonts
+ * and images aren't downloaded again for every document.</p>
+ * <pre>
+ * HttpResourceFetcher fetcher = new HttpResourceFetcher();
+ * fetcher.setMemoryCacheSize(64 * 1024 * 1024);
+ * fetcher.setDiskCache(new DiskResourceCache(new File("/var/cache/renderer"), 1024 * 1024 * 1024));
+ * userAgent.setResourceFetcher(fetcher);
+ * </pre>
+ * <ul>
+ * <li>A response is served from the cache without asking the server while it is fresh according to its
+ * <code>Cache-Control: max-age</code> or <code>Expires</code> header. After that, or if it has no expiry, it is
+ * revalidated with <code>If-None-Match</code> and <code>If-Modified-Since</code> and only downloaded again if it
+ * has changed. Responses marked <code>no-store</code> or <code>private</code>, responses with neither an expiry
+ * nor an <code>ETag</code> or <code>Last-Modified</code> header, and responses to requests carrying an
+ * <code>Authorization</code> header or cookies aren't cached.</li>
+ * <li>A response with a <code>Vary</code> header is only used for requests with the same values of the headers
+ * it names; one varying on <code>*</code> isn't cached.</li>
+ * <li>The memory cache holds up to {@link #setMemoryCacheSize(long)} bytes, dropping the least recently used
+ * responses first. If a {@link DiskResourceCache} is set, responses are also written there, and found again by
+ * other fetchers, e.g. in other processes or after a restart. Responses the disk cache memory-maps take up no
+ * heap, so they don't count towards the size of the memory cache; up to 256 of them are kept besides it.</li>
+ * <li>Responses are always read to their end, so the JDK keeps the connections alive and reuses them.</li>
+ * <li>At most {@link #setMaxConnectionsPerHost(int)} requests to one host run at a time; others wait.</li>
+ * <li>Redirects are followed, also from http to https, up to five times.</li>
+ * </ul>
+ * <p>Other URIs, e.g. <code>file:</code> URIs, are opened with the same timeouts but aren't cached.</p>
+ *
+ * <p>The settings should be changed before the fetcher is first used.</p>
+ */
+public class HttpResourceFetcher implements ResourceFetcher {
+    private static final int MAX_REDIRECTS = 5;
+    private static final int MAX_MAPPED_ENTRIES = 256;
+
+    private int _connectTimeout = 10000;
+    private int _readTimeout = 30000;
+    private int _maxConnectionsPerHost = 4;
+    private long _memoryCacheSize = 16 * 1024 * 1024;
+    private DiskResourceCache _diskCache;
+
+    /**
+     * URI -> Entry, least recently used first
+     */
+    private final LinkedHashMap _cache = new LinkedHashMap(16, 0.75f, true);
+    private long _cachedBytes;
+
+    /**
+     * URI -> Entry whose body is mapped by the disk cache, least recently used first; not counted in
+     * <code>_cachedBytes</code>
+     */
+    private final LinkedHashMap _mapped = new LinkedHashMap(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > MAX_MAPPED_ENTRIES;
+        }
+    };
+
+    /**
+     * host -> Semaphore
+     */
+    private final Map _hostPermits = new HashMap();
+
+    /**
+     * Sets the time to wait for a connection to be established.
+     *
+     * @param millis the timeout in milliseconds, 0 to wait forever; 10 seconds by default
+     */
+    public void setConnectTimeout(int millis) {
+        _connectTimeout = millis;
+    }
+
+    /**
+     * Sets the time to wait for data from a server.
+     *
+     * @param millis the timeout in milliseconds, 0 to wait forever; 30 seconds by default
+     */
+    public void setReadTimeout(int millis) {
+        _readTimeout = millis;
+    }
+
+    /**
+     * Sets the number of requests which may run against the same host at the same time.
+     *
+     * @param max the maximum number of requests per host, 4 by default
+     */
+    public void setMaxConnectionsPerHost(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("max must be at least 1");
+        }
+        _maxConnectionsPerHost = max;
+    }
+
+    /**
+     * Sets the number of bytes the memory cache may hold. Responses larger than that are only cached on disk.
+     *
+     * @param bytes the size of the cache, 16 MB by default; 0 turns the memory cache off
+     */
+    public synchronized void setMemoryCacheSize(long bytes) {
+        _memoryCacheSize = bytes;
+        if (bytes == 0) {
+            _mapped.clear();
+        }
+        trimMemoryCache();
+    }
+
+    /**
+     * Sets a cache directory in which responses are kept in addition to the memory cache. It may be shared with
+     * other fetchers and processes.
+     *
+     * @param cache the cache, or null to cache in memory only
+     */
+    public void setDiskCache(DiskResourceCache cache) {
+        _diskCache = cache;
+    }
+
+    /**
+     * Empties the memory cache. The disk cache is kept.
+     */
+    public synchronized void clearCache() {
+        _cache.clear();
+        _mapped.clear();
+        _cachedBytes = 0;
+    }
+
+    public InputStream open(String uri) throws IOException {
+        URL url = new URL(uri);
+        if (! isHttp(url)) {
+            URLConnection connection = url.openConnection();
+            connection.setConnectTimeout(_connectTimeout);
+            connection.setReadTimeout(_readTimeout);
+            return connection.getInputStream();
+        }
+        return new ByteBufferInputStream(fetch(url));
+    }
+
+    /**
+     * Called for each HTTP request before it is sent, e.g. to add headers for authentication; also for requests
+     * which are then answered from the cache, as the headers decide whether a cached response may be used. Does
+     * nothing by default.
+     *
+     * @param connection the connection, not connected yet
+     */
+    protected void configure(HttpURLConnection connection) {
+    }
+
+    private ByteBuffer fetch(URL url) throws IOException {
+        for (int redirects = 0; ; redirects++) {
+            String uri = url.toExternalForm();
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(_connectTimeout);
+            connection.setReadTimeout(_readTimeout);
+            connection.setInstanceFollowRedirects(false);
+            configure(connection);
+            // can't be read once connected
+            Map requestHeaders = connection.getRequestProperties();
+
+            Entry entry = getCached(uri);
+            if (entry != null && ! entry.matches(requestHeaders)) {
+                entry = null;
+            }
+            long now = System.currentTimeMillis();
+            if (entry != null && entry.expires > now) {
+                return entry.body;
+            }
+
+            Semaphore permits = getPermits(url);
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to connect to " + url.getHost());
+            }
+            try {
+                if (entry != null) {
+                    if (entry.etag != null) {
+                        connection.setRequestProperty("If-None-Match", entry.etag);
+                    }
+                    if (entry.lastModified > 0) {
+                        connection.setIfModifiedSince(entry.lastModified);
+                    }
+                }
+                boolean credentials = sendsCredentials(connection, requestHeaders);
+
+                int status = connection.getResponseCode();
+                if (status == HttpURLConnection.HTTP_NOT_MODIFIED && entry != null) {
+                    discard(connection);
+                    store(uri, newEntry(uri, connection, requestHeaders, credentials, entry.body, now, entry));
+                    return entry.body;
+                } else if (isRedirect(status)) {
+                    String location = connection.getHeaderField("Location");
+                    discard(connection);
+                    if (location == null) {
+                        throw new IOException("Redirect without a location from " + uri);
+                    } else if (redirects == MAX_REDIRECTS) {
+                        throw new IOException("Too many redirects from " + uri);
+                    }
+                    url = new URL(url, location);
+                } else if (status == HttpURLConnection.HTTP_NOT_FOUND || status == HttpURLConnection.HTTP_GONE) {
+                    discard(connection);
+                    throw new FileNotFoundException(uri);
+                } else if (status < 200 || status >= 300) {
+                    discard(connection);
+                    throw new IOException("Server returned HTTP " + status + " for " + uri);
+                } else {
+                    ByteBuffer body = ByteBuffer.wrap(IOUtil.readBytes(connection.getInputStream())).asReadOnlyBuffer();
+                    if (status == HttpURLConnection.HTTP_OK) {
+                        store(uri, newEntry(uri, connection, requestHeaders, credentials, body, now, null));
+                    }
+                    return body;
+                }
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private static boolean isHttp(URL url) {
+        return url.getProtocol().equals("http") || url.getProtocol().equals("https");
+    }
+
+    private static boolean isRedirect(int status) {
+        return status == HttpURLConnection.HTTP_MOVED_PERM || status == HttpURLConnection.HTTP_MOVED_TEMP ||
+                status == HttpURLConnection.HTTP_SEE_OTHER || status == 307 || status == 308;
+    }
+
+    /**
+     * Reads what is left of a response, so that the connection can be reused.
+     */
+    private static void discard(HttpURLConnection connection) {
+        try {
+            InputStream is = connection.getResponseCode() >= 400 ?
+                    connection.getErrorStream() : connection.getInputStream();
+            if (is != null) {
+                IOUtil.readBytes(is);
+            }
+        } catch (IOException e) {
+            // the connection won't be reused
+        }
+    }
+
+    /**
+     * Whether a request carries credentials, in which case its response isn't cached. By default, true if it has
+     * an <code>Authorization</code> or <code>Cookie</code> header, or the default <code>CookieHandler</code> adds
+     * cookies to it. The JDK's connections don't show an <code>Authorization</code> header, so a subclass which
+     * sets one in {@link #configure(HttpURLConnection)} should override this method to return true for it.
+     *
+     * @param connection the connection, not connected yet
+     * @param requestHeaders the request headers the connection shows, see
+     * {@link URLConnection#getRequestProperties()}
+     * @return true if the response may not be cached
+     * @throws IOException if the cookie handler fails
+     */
+    protected boolean sendsCredentials(HttpURLConnection connection, Map requestHeaders) throws IOException {
+        if (getHeader(requestHeaders, "Authorization") != null || getHeader(requestHeaders, "Cookie") != null) {
+            return true;
+        }
+        CookieHandler cookieHandler = CookieHandler.getDefault();
+        if (cookieHandler != null) {
+            try {
+                Map cookies = cookieHandler.get(connection.getURL().toURI(), requestHeaders);
+                return getHeader(cookies, "Cookie") != null || getHeader(cookies, "Cookie2") != null;
+            } catch (URISyntaxException e) {
+                // no cookies for it then
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the values of a header in a map of header names to lists of values, joined by commas, or null if
+     * there are none. Names are compared ignoring case.
+     */
+    private static String getHeader(Map headers, String name) {
+        StringBuffer result = null;
+        for (Iterator i = headers.entrySet().iterator(); i.hasNext(); ) {
+            Map.Entry header = (Map.Entry) i.next();
+            if (name.equalsIgnoreCase((String) header.getKey())) {
+                for (Iterator j = ((Collection) header.getValue()).iterator(); j.hasNext(); ) {
+                    if (result == null) {
+                        result = new StringBuffer();
+                    } else {
+                        result.append(',');
+                    }
+                    result.append(j.next());
+                }
+            }
+        }
+        return result == null ? null : result.toString();
+    }
+
+    private Semaphore getPermits(URL url) {
+        String host = url.getHost().toLowerCase();
+        synchronized (_hostPermits) {
+            Semaphore permits = (Semaphore) _hostPermits.get(host);
+            if (permits == null) {
+                permits = new Semaphore(_maxConnectionsPerHost, true);
+                _hostPermits.put(host, permits);
+            }
+            return permits;
+        }
+    }
+
+    /**
+     * Creates the cache entry for a response, or returns null if it may not be cached.
+     *
+     * @param requestHeaders the headers of the request, from which those the response varies on are kept
+     * @param credentials whether the request carried an <code>Authorization</code> header or cookies
+     * @param previous the entry which was revalidated, whose validators are kept if the server doesn't send new
+     * ones; or null
+     */
+    private static Entry newEntry(String uri, HttpURLConnection connection, Map requestHeaders, boolean credentials,
+                                  ByteBuffer body, long now, Entry previous) {
+        if (credentials) {
+            return null;
+        }
+        boolean noCache = false;
+        long maxAge = -1;
+        String cacheControl = connection.getHeaderField("Cache-Control");
+        if (cacheControl != null) {
+            String[] directives = cacheControl.split(",");
+            for (int i = 0; i < directives.length; i++) {
+                String directive = directives[i].trim().toLowerCase();
+                if (directive.equals("no-store") || directive.equals("private") || directive.startsWith("private=")) {
+                    return null;
+                } else if (directive.equals("no-cache")) {
+                    noCache = true;
+                } else if (directive.startsWith("max-age=")) {
+                    try {
+                        maxAge = Long.parseLong(directive.substring(8).replace('"', ' ').trim());
+                    } catch (NumberFormatException e) {
+                        noCache = true;
+                    }
+                }
+            }
+        }
+
+        long expires = 0;
+        if (! noCache) {
+            if (maxAge >= 0) {
+                expires = now + maxAge * 1000;
+            } else if (connection.getExpiration() > 0) {
+                // relative to the server's clock
+                long date = connection.getDate();
+                expires = date > 0 ? now + (connection.getExpiration() - date) : connection.getExpiration();
+            }
+        }
+
+        String etag = connection.getHeaderField("ETag");
+        long lastModified = connection.getLastModified();
+        if (previous != null) {
+            if (etag == null) {
+                etag = previous.etag;
+            }
+            if (lastModified == 0) {
+                lastModified = previous.lastModified;
+            }
+        }
+
+        if (expires <= now && etag == null && lastModified == 0) {
+            return null;
+        }
+
+        Map vary = null;
+        for (int i = 0; connection.getHeaderField(i) != null; i++) {
+            if ("Vary".equalsIgnoreCase(connection.getHeaderFieldKey(i))) {
+                String[] names = connection.getHeaderField(i).split(",");
+                for (int j = 0; j < names.length; j++) {
+                    String name = names[j].trim().toLowerCase();
+                    if (name.equals("*")) {
+                        return null;
+                    } else if (name.length() > 0) {
+                        if (vary == null) {
+                            vary = new HashMap();
+                        }
+                        vary.put(name, getHeader(requestHeaders, name));
+                    }
+                }
+            }
+        }
+        if (vary == null && previous != null) {
+            // a 304 needn't repeat the Vary header, and the request matched the previous one
+            vary = previous.vary;
+        }
+        return new Entry(uri, body, etag, lastModified, expires, vary);
+    }
+
+    private Entry getCached(String uri) {
+        Entry entry;
+        synchronized (this) {
+            entry = (Entry) _cache.get(uri);
+            if (entry == null) {
+                entry = (Entry) _mapped.get(uri);
+            }
+        }
+        if (entry != null) {
+            if (entry.diskEntry != null && _diskCache != null) {
+                // so that it isn't evicted from the disk cache as unused
+                _diskCache.touch(entry.diskEntry);
+            }
+        } else if (_diskCache != null) {
+            entry = readFromDisk(uri);
+            if (entry != null) {
+                putInMemory(entry);
+            }
+        }
+        return entry;
+    }
+
+    private void store(String uri, Entry entry) {
+        if (entry == null) {
+            synchronized (this) {
+                Entry old = (Entry) _cache.remove(uri);
+                if (old != null) {
+                    _cachedBytes -= old.body.remaining();
+                }
+                _mapped.remove(uri);
+            }
+            if (_diskCache != null) {
+                _diskCache.remove(uri);
+            }
+        } else {
+            if (_diskCache != null) {
+                writeToDisk(entry);
+            }
+            putInMemory(entry);
+        }
+    }
+
+    private synchronized void putInMemory(Entry entry) {
+        Entry old = (Entry) _cache.remove(entry.uri);
+        if (old != null) {
+            _cachedBytes -= old.body.remaining();
+        }
+        _mapped.remove(entry.uri);
+        if (entry.body.isDirect()) {
+            // mapped by the disk cache, so it takes up no heap
+            if (_memoryCacheSize > 0) {
+                _mapped.put(entry.uri, entry);
+            }
+        } else if (entry.body.remaining() <= _memoryCacheSize) {
+            _cache.put(entry.uri, entry);
+            _cachedBytes += entry.body.remaining();
+            trimMemoryCache();
+        }
+    }
+
+    private void trimMemoryCache() {
+        for (Iterator i = _cache.values().iterator(); _cachedBytes > _memoryCacheSize && i.hasNext(); ) {
+            Entry entry = (Entry) i.next();
+            i.remove();
+            _cachedBytes -= entry.body.remaining();
+        }
+    }
+
+    private Entry readFromDisk(String uri) {
+        DiskResourceCache.Entry cached = _diskCache.get(uri);
+        if (cached == null) {
+            return null;
+        }
+        Properties attributes = cached.getAttributes();
+        Map vary = null;
+        for (Iterator i = attributes.keySet().iterator(); i.hasNext(); ) {
+            String key = (String) i.next();
+            if (key.startsWith("vary.")) {
+                if (vary == null) {
+                    vary = new HashMap();
+                }
+                String value = attributes.getProperty(key);
+                vary.put(key.substring(5), value.length() == 0 ? null : value.substring(1));
+            }
+        }
+        try {
+            Entry entry = new Entry(uri, cached.getContent(), attributes.getProperty("etag"),
+                    Long.parseLong(attributes.getProperty("last-modified", "0")),
+                    Long.parseLong(attributes.getProperty("expires", "0")), vary);
+            entry.diskEntry = cached;
+            return entry;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void writeToDisk(Entry entry) {
+        Properties attributes = new Properties();
+        if (entry.etag != null) {
+            attributes.setProperty("etag", entry.etag);
+        }
+        attributes.setProperty("last-modified", Long.toString(entry.lastModified));
+        attributes.setProperty("expires", Long.toString(entry.expires));
+        if (entry.vary != null) {
+            for (Iterator i = entry.vary.entrySet().iterator(); i.hasNext(); ) {
+                Map.Entry header = (Map.Entry) i.next();
+                // "" if the request didn't have the header, so that it can be told apart from an empty one
+                String value = (String) header.getValue();
+                attributes.setProperty("vary." + header.getKey(), value == null ? "" : "=" + value);
+            }
+        }
+        entry.diskEntry = _diskCache.put(entry.uri, attributes, entry.body);
+    }
+
+    private static final class Entry {
+        private final String uri;
+        private final ByteBuffer body;
+        private final String etag;
+        private final long lastModified;
+        private final long expires;
+        /**
+         * lower case header name -> the value it had in the request, or null; null if the response doesn't vary
+         */
+        private final Map vary;
+        /**
+         * the entry in the disk cache, to be touched when this one is used; null if none
+         */
+        private volatile DiskResourceCache.Entry diskEntry;
+
+        private Entry(String uri, ByteBuffer body, String etag, long lastModified, long expires, Map vary) {
+            this.uri = uri;
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expires = expires;
+            this.vary = vary;
+        }
+
+        /**
+         * Whether the response may be used for a request with these headers.
+         */
+        private boolean matches(Map requestHeaders) {
+            if (vary == null) {
+                return true;
+            }
+            for (Iterator i = vary.entrySet().iterator(); i.hasNext(); ) {
+                Map.Entry header = (Map.Entry) i.next();
+                String value = getHeader(requestHeaders, (String) header.getKey());
+                if (value == null ? header.getValue() != null : ! value.equals(header.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
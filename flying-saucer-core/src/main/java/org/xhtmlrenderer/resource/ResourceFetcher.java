@@ -0,0 +1,40 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Loads the bytes of a resource, e.g. over HTTP. Set one with
+ * {@link org.xhtmlrenderer.swing.NaiveUserAgent#setResourceFetcher(ResourceFetcher)} to change how the user agent
+ * connects to servers; {@link HttpResourceFetcher} adds caching, timeouts and connection limits.
+ *
+ * <p>A fetcher may be used by several threads at once, so implementations must be thread safe.</p>
+ */
+public interface ResourceFetcher {
+    /**
+     * Opens a stream for a resource.
+     *
+     * @param uri the absolute URI of the resource
+     * @return a stream of the resource's bytes, closed by the caller
+     * @throws java.io.FileNotFoundException if there is no resource at the URI
+     * @throws IOException if the resource could not be loaded
+     */
+    public InputStream open(String uri) throws IOException;
+}
@@ -24,11 +24,16 @@ import java.io.InputStream;
 import java.io.Reader;
 import java.lang.ref.Reference;
 import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.logging.Level;
 
 import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.Source;
@@ -36,12 +41,16 @@ import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMResult;
-import javax.xml.transform.sax.SAXSource;
 
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xhtmlrenderer.dom.CompactDocumentBuilder;
+import org.xhtmlrenderer.dom.SAXDocumentBuilder;
 import org.xhtmlrenderer.util.Configuration;
 import org.xhtmlrenderer.util.XRLog;
 import org.xhtmlrenderer.util.XRRuntimeException;
+import org.xml.sax.Attributes;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.ErrorHandler;
 import org.xml.sax.InputSource;
@@ -170,7 +179,9 @@ public class XMLResource extends AbstractResource {
     private static class XMLResourceBuilder {
 
         private final XMLReaderPool parserPool = new XMLReaderPool();
+        private final DOMBuilderPool builderPool = new DOMBuilderPool();
         private final IdentityTransformerPool traxPool = new IdentityTransformerPool();
+        private final boolean compactDocument = Configuration.isTrue("xr.load.compact-document", false);
 
         XMLResource createXMLResource(XMLResource target) {
             Document document;
@@ -178,7 +189,11 @@ public class XMLResource extends AbstractResource {
             long st = System.currentTimeMillis();
             XMLReader xmlReader = parserPool.get();
             try {
-                document = transform(new SAXSource(xmlReader, target.getResourceInputSource()));
+                if (compactDocument) {
+                    document = parseCompact(xmlReader, target.getResourceInputSource());
+                } else {
+                    document = parse(xmlReader, target.getResourceInputSource());
+                }
             } finally {
                 parserPool.release(xmlReader);
             }
@@ -226,6 +241,25 @@ public class XMLResource extends AbstractResource {
             return (Document) result.getNode();
         }
 
+        private Document parse(XMLReader xmlReader, InputSource source) {
+            DOMBuilder builder = builderPool.get();
+            try {
+                return builder.build(xmlReader, source);
+            } catch (Exception ex) {
+                throw new XRRuntimeException("Can't load the XML resource (using SAX). " + ex.getMessage(), ex);
+            } finally {
+                builderPool.release(builder);
+            }
+        }
+
+        private Document parseCompact(XMLReader xmlReader, InputSource source) {
+            try {
+                return CompactDocumentBuilder.parse(xmlReader, source);
+            } catch (Exception ex) {
+                throw new XRRuntimeException("Can't load the XML resource (using compact document). " + ex.getMessage(), ex);
+            }
+        }
+
     } // class XMLResourceBuilder
 
 
@@ -235,7 +269,7 @@ public class XMLResource extends AbstractResource {
                 .isFalse("xr.load.ignore-element-content-whitespace", true);
 
         XMLReaderPool() {
-            this(Configuration.valueAsInt("xr.load.parser-pool-capacity", 3));
+            this(Configuration.valueAsInt("xr.load.parser-pool-capacity", 64));
         }
 
         XMLReaderPool(int capacity) {
@@ -379,6 +413,136 @@ public class XMLResource extends AbstractResource {
     } // class SpacePreservingFilter
 
 
+    /**
+     * Builds a DOM document from the SAX events of an XMLReader. The document is the one an identity
+     * transformation from a SAXSource into a DOMResult gives, without the transformer and the serializer it puts
+     * in between; except that comments inside the DTD are left out.
+     */
+    private static class DOMBuilder extends SAXDocumentBuilder {
+
+        private static final String XMLNS_URI = "http://www.w3.org/2000/xmlns/";
+
+        private final DocumentBuilder documentBuilder;
+
+        private final List<Node> stack = new ArrayList<Node>();
+        private Document document;
+
+        DOMBuilder(DocumentBuilder documentBuilder) {
+            this.documentBuilder = documentBuilder;
+        }
+
+        @Override
+        public Document getDocument() {
+            return document;
+        }
+
+        @Override
+        protected void createDocument(String documentURI) {
+            document = documentBuilder.newDocument();
+            stack.clear();
+            stack.add(document);
+        }
+
+        @Override
+        protected void finishDocument() {
+            stack.clear();
+        }
+
+        @Override
+        protected void setDocumentInfo(String xmlVersion, String inputEncoding) {
+            if (xmlVersion != null) {
+                document.setXmlVersion(xmlVersion);
+            }
+        }
+
+        @Override
+        protected void addElement(String uri, String qName, List namespaces, Attributes atts) {
+            Element element = document.createElementNS(uri.length() == 0 ? null : uri, qName);
+
+            for (int i = 0; i < namespaces.size(); i += 2) {
+                String prefix = (String) namespaces.get(i);
+                element.setAttributeNS(XMLNS_URI, prefix.length() == 0 ? "xmlns" : "xmlns:" + prefix,
+                        (String) namespaces.get(i + 1));
+            }
+
+            for (int i = 0; i < atts.getLength(); i++) {
+                String attrQName = atts.getQName(i);
+                if (atts.getLocalName(i).length() == 0) {
+                    element.setAttribute(attrQName, atts.getValue(i));
+                    if ("ID".equals(atts.getType(i))) {
+                        element.setIdAttribute(attrQName, true);
+                    }
+                } else {
+                    String attrURI = atts.getURI(i).length() == 0 ? null : atts.getURI(i);
+                    element.setAttributeNS(attrURI, attrQName, atts.getValue(i));
+                    if ("ID".equals(atts.getType(i))) {
+                        element.setIdAttributeNS(attrURI, atts.getLocalName(i), true);
+                    }
+                }
+            }
+
+            current().appendChild(element);
+            stack.add(element);
+        }
+
+        @Override
+        protected void closeElement() {
+            stack.remove(stack.size() - 1);
+        }
+
+        @Override
+        protected void addText(String text) {
+            current().appendChild(document.createTextNode(text));
+        }
+
+        @Override
+        protected void addComment(String data) {
+            current().appendChild(document.createComment(data));
+        }
+
+        @Override
+        protected void addProcessingInstruction(String target, String data) {
+            current().appendChild(document.createProcessingInstruction(target, data));
+        }
+
+        @Override
+        protected void clear() {
+            // pooled, so don't keep the document
+            document = null;
+            stack.clear();
+        }
+
+        private Node current() {
+            return stack.get(stack.size() - 1);
+        }
+
+    } // class DOMBuilder
+
+
+    private static class DOMBuilderPool extends ObjectPool<DOMBuilder> {
+
+        private final DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
+
+        DOMBuilderPool() {
+            this(Configuration.valueAsInt("xr.load.parser-pool-capacity", 64));
+        }
+
+        DOMBuilderPool(int capacity) {
+            super(capacity);
+        }
+
+        @Override
+        protected DOMBuilder newValue() {
+            try {
+                return new DOMBuilder(domFactory.newDocumentBuilder());
+            } catch (ParserConfigurationException ex) {
+                throw new XRRuntimeException("Failed on configuring DOM document builder.", ex);
+            }
+        }
+
+    } // class DOMBuilderPool
+
+
     private static class IdentityTransformerPool extends ObjectPool<Transformer> {
 
         private final TransformerFactory traxFactory;
@@ -393,7 +557,7 @@ public class XMLResource extends AbstractResource {
         }
 
         IdentityTransformerPool() {
-            this(Configuration.valueAsInt("xr.load.parser-pool-capacity", 3));
+            this(Configuration.valueAsInt("xr.load.parser-pool-capacity", 64));
         }
 
         IdentityTransformerPool(int capacity) {
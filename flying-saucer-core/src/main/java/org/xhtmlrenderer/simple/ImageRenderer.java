@@ -144,6 +144,34 @@ public class ImageRenderer {
 		}
 	}
 
+	/**
+	 * Renders a document at a given URL once, constrained to <code>width</code>, and writes thumbnails of it at
+	 * each of the given widths using the FSImageWriter provided. The thumbnails are painted from the same layout
+	 * at each scale rather than scaled down from a full size image.
+	 *
+	 * @param url url for the XML file to render
+	 * @param fsw writer used to encode each thumbnail
+	 * @param paths path of the image file to create for each thumbnail
+	 * @param width Width in pixels to which the document should be constrained.
+	 * @param thumbnailWidths width in pixels of each thumbnail
+	 * @return the thumbnails, in the order of <code>thumbnailWidths</code>
+	 *
+	 * @throws java.io.IOException if the input URL, or an output path location is invalid
+	 */
+	public static BufferedImage[] renderThumbnailsToOutput(String url, FSImageWriter fsw, String[] paths,
+			int width, int[] thumbnailWidths) throws IOException {
+		if (paths.length != thumbnailWidths.length) {
+			throw new IllegalArgumentException("Need one path per thumbnail width");
+		}
+
+		Java2DRenderer renderer = new Java2DRenderer(url, url, width);
+		BufferedImage[] images = renderer.renderThumbnails(0, thumbnailWidths);
+		for (int i = 0; i < images.length; i++) {
+			fsw.write(images[i], paths[i]);
+		}
+		return images;
+	}
+
 	/**
 	 * Renders a file or URL to an image file. Command line use: first
 	 * argument is URL or file path, second argument is path to image file to generate.
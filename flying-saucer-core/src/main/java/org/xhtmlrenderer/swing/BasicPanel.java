@@ -44,6 +44,7 @@ import org.w3c.dom.Document;
 import org.xhtmlrenderer.css.style.CalculatedStyle;
 import org.xhtmlrenderer.css.style.derived.RectPropertySet;
 import org.xhtmlrenderer.extend.NamespaceHandler;
+import org.xhtmlrenderer.extend.RenderMetrics;
 import org.xhtmlrenderer.extend.UserAgentCallback;
 import org.xhtmlrenderer.layout.Layer;
 import org.xhtmlrenderer.layout.SharedContext;
@@ -54,6 +55,7 @@ import org.xhtmlrenderer.resource.XMLResource;
 import org.xhtmlrenderer.simple.NoNamespaceHandler;
 import org.xhtmlrenderer.simple.extend.FormSubmissionListener;
 import org.xhtmlrenderer.util.Configuration;
+import org.xhtmlrenderer.util.MetricsTimer;
 import org.xhtmlrenderer.util.Uu;
 import org.xhtmlrenderer.util.XRLog;
 import org.xml.sax.InputSource;
@@ -154,10 +156,15 @@ public abstract class BasicPanel extends RootPanel implements FormSubmissionList
             }
 
             long start = System.currentTimeMillis();
-            if (!c.isPrint()) {
-                root.paint(c);
-            } else {
-                paintPagedView(c, root);
+            MetricsTimer timer = MetricsTimer.start(getSharedContext(), RenderMetrics.PHASE_PAINT);
+            try {
+                if (!c.isPrint()) {
+                    root.paint(c);
+                } else {
+                    paintPagedView(c, root);
+                }
+            } finally {
+                timer.stop();
             }
             long after = System.currentTimeMillis();
             if (Configuration.isTrue("xr.incremental.repaint.print-timing", false)) {
@@ -20,21 +20,97 @@
 package org.xhtmlrenderer.swing;
 
 import java.awt.Rectangle;
-import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.xhtmlrenderer.context.StyleReference;
+import org.xhtmlrenderer.css.constants.CSSName;
+import org.xhtmlrenderer.css.newmatch.CascadedStyle;
+import org.xhtmlrenderer.css.style.CalculatedStyle;
+import org.xhtmlrenderer.css.style.FSDerivedValue;
 import org.xhtmlrenderer.layout.LayoutContext;
 import org.xhtmlrenderer.layout.PaintingInfo;
+import org.xhtmlrenderer.layout.SharedContext;
+import org.xhtmlrenderer.render.BlockBox;
 import org.xhtmlrenderer.render.Box;
+import org.xhtmlrenderer.render.InlineLayoutBox;
 
 /**
  * A HoverListener is used to respond to a mouse hovering over a Box in a {@link org.xhtmlrenderer.swing.BasicPanel}.
  * In particular, it applies any :hover selectors that apply to the Box in question, and resets those styles
  * as the mouse exits the Box.
+ * <p/>
+ * Only the hovered element and its descendants are restyled, and the panel does no more work than the changed
+ * properties require: none if no property changed, a repaint if only properties like colors and backgrounds
+ * changed, a layout of the existing boxes for other properties, and a new box tree only if the change affects
+ * which boxes are generated, e.g. <code>display</code> or generated content.
  */
 public class HoverListener extends DefaultFSMouseListener {
+    private static final int UNCHANGED = 0;
+    private static final int REPAINT = 1;
+    private static final int RELAYOUT = 2;
+    private static final int REBUILD = 3;
+
+    private static final CSSName[] PROPERTIES;
+
+    /**
+     * properties which only affect how boxes are painted
+     */
+    private static final Set PAINT_PROPERTIES = new HashSet(Arrays.asList(new CSSName[] {
+            CSSName.COLOR,
+            CSSName.BACKGROUND_COLOR,
+            CSSName.BACKGROUND_IMAGE,
+            CSSName.BACKGROUND_REPEAT,
+            CSSName.BACKGROUND_ATTACHMENT,
+            CSSName.BACKGROUND_POSITION,
+            CSSName.BACKGROUND_SIZE,
+            CSSName.BORDER_TOP_COLOR,
+            CSSName.BORDER_RIGHT_COLOR,
+            CSSName.BORDER_BOTTOM_COLOR,
+            CSSName.BORDER_LEFT_COLOR,
+            CSSName.BORDER_TOP_LEFT_RADIUS,
+            CSSName.BORDER_TOP_RIGHT_RADIUS,
+            CSSName.BORDER_BOTTOM_RIGHT_RADIUS,
+            CSSName.BORDER_BOTTOM_LEFT_RADIUS,
+            CSSName.CURSOR,
+            CSSName.VISIBILITY }));
+
+    /**
+     * properties which BoxBuilder uses to decide which boxes to generate
+     */
+    private static final Set BOX_PROPERTIES = new HashSet(Arrays.asList(new CSSName[] {
+            CSSName.DISPLAY,
+            CSSName.FLOAT,
+            CSSName.POSITION,
+            CSSName.CONTENT,
+            CSSName.COUNTER_INCREMENT,
+            CSSName.COUNTER_RESET,
+            CSSName.QUOTES,
+            CSSName.WHITE_SPACE,
+            CSSName.TAB_SIZE,
+            CSSName.CAPTION_SIDE,
+            CSSName.PAGE,
+            CSSName.FS_PAGE_SEQUENCE }));
+
+    private static final String[] PSEUDO_ELEMENTS = { "before", "after", "first-line", "first-letter" };
+
+    static {
+        List properties = new ArrayList();
+        for (Iterator i = CSSName.allCSS2PrimitivePropertyNames(); i.hasNext(); ) {
+            properties.add(CSSName.getByPropertyName((String) i.next()));
+        }
+        PROPERTIES = (CSSName[]) properties.toArray(new CSSName[properties.size()]);
+    }
+
+    /**
+     * the block box containing all boxes of the previously hovered element
+     */
     private Box _previouslyHovered;
 
     /**
@@ -56,41 +132,62 @@ public class HoverListener extends DefaultFSMouseListener {
             return;
         }
 
-        boolean needRepaint = false;
-
         Element currentlyHovered = getHoveredElement(c.getCss(), box);
 
         if (currentlyHovered == panel.hovered_element) {
             return;
         }
 
+        Element previouslyHovered = panel.hovered_element;
         panel.hovered_element = currentlyHovered;
 
+        int change = UNCHANGED;
+        List restyled = new ArrayList(2);
         boolean targetedRepaint = true;
         Rectangle repaintRegion = null;
 
-        // If we moved out of the old block then unstyle it
-        if (_previouslyHovered != null) {
-            needRepaint = true;
-            _previouslyHovered.restyle(c);
+        // If we moved out of the old element then unstyle it
+        if (previouslyHovered != null) {
+            Box target = _previouslyHovered;
+            if (target != null && ! isAttached(target, panel.getRootBox())) {
+                // the boxes were replaced by a rebuild, so this one can't be restyled any more
+                target = null;
+            }
 
-            PaintingInfo paintInfo = _previouslyHovered.getPaintingInfo();
+            int previousChange = restyleElement(c, previouslyHovered);
+            if (previousChange != UNCHANGED && target == null) {
+                previousChange = REBUILD;
+            }
+            if (previousChange == REPAINT || previousChange == RELAYOUT) {
+                restyleBoxes(c, target, previouslyHovered);
+                restyled.add(target);
+            }
+            if (previousChange == REPAINT) {
+                PaintingInfo paintInfo = target.getPaintingInfo();
 
-            if (paintInfo == null) {
-                targetedRepaint = false;
-            } else {
-                repaintRegion = new Rectangle(paintInfo.getAggregateBounds());
+                if (paintInfo == null) {
+                    targetedRepaint = false;
+                } else {
+                    repaintRegion = new Rectangle(paintInfo.getAggregateBounds());
+                }
             }
+            change = previousChange;
 
             _previouslyHovered = null;
         }
 
         if (currentlyHovered != null) {
-            needRepaint = true;
-            Box target = box.getRestyleTarget();
-            target.restyle(c);
+            Box target = getRestyleTarget(c, box, currentlyHovered);
 
-            if (targetedRepaint) {
+            int currentChange = restyleElement(c, currentlyHovered);
+            if (currentChange != UNCHANGED && target == null) {
+                currentChange = REBUILD;
+            }
+            if (currentChange == REPAINT || currentChange == RELAYOUT) {
+                restyleBoxes(c, target, currentlyHovered);
+                restyled.add(target);
+            }
+            if (currentChange == REPAINT && targetedRepaint) {
                 PaintingInfo paintInfo = target.getPaintingInfo();
 
                 if (paintInfo == null) {
@@ -103,11 +200,22 @@ public class HoverListener extends DefaultFSMouseListener {
                     }
                 }
             }
+            change = Math.max(change, currentChange);
 
             _previouslyHovered = target;
         }
 
-        if (needRepaint) {
+        if (change == RELAYOUT) {
+            for (Iterator i = restyled.iterator(); i.hasNext(); ) {
+                styleText(c, (Box) i.next());
+            }
+        }
+
+        if (change == REBUILD) {
+            panel.rebuild();
+        } else if (change == RELAYOUT) {
+            panel.relayout();
+        } else if (change == REPAINT) {
             if (targetedRepaint) {
                 panel.repaint(repaintRegion);
             } else {
@@ -136,6 +244,165 @@ public class HoverListener extends DefaultFSMouseListener {
         return element;
     }
 
+    /**
+     * Finds the block box containing all boxes of an element: the element's own box if it is a block, or
+     * the nearest block around it if it is inline, as inline boxes may be broken across lines.
+     */
+    private Box getRestyleTarget(LayoutContext c, Box box, Element e) {
+        boolean inline = c.getSharedContext().getStyle(e).isInline();
+        for (Box b = box; b != null; b = b.getParent()) {
+            if (b instanceof BlockBox && ! b.isAnonymous() && b.getElement() != null) {
+                if (inline ? b.getElement() != e && isDescendant(e, b.getElement()) : b.getElement() == e) {
+                    return b;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Computes the styles of an element and its descendants again.
+     *
+     * @return how much the styles changed, from UNCHANGED to REBUILD
+     */
+    private int restyleElement(LayoutContext c, Element e) {
+        SharedContext sharedContext = c.getSharedContext();
+        String oldPseudoElementStyles = getPseudoElementStyles(c.getCss(), e);
+        CalculatedStyle oldStyle = sharedContext.getStyle(e);
+        CalculatedStyle style = sharedContext.getStyle(e, true);
+
+        int result;
+        if (! oldPseudoElementStyles.equals(getPseudoElementStyles(c.getCss(), e))) {
+            result = REBUILD;
+        } else {
+            result = compare(oldStyle, style);
+        }
+
+        // the whole subtree has to be restyled, even where nothing changes, so that a rebuild uses the
+        // new styles
+        for (Node n = e.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n.getNodeType() == Node.ELEMENT_NODE) {
+                result = Math.max(result, restyleElement(c, (Element) n));
+            }
+        }
+        return result;
+    }
+
+    private String getPseudoElementStyles(StyleReference css, Element e) {
+        StringBuffer result = new StringBuffer();
+        for (int i = 0; i < PSEUDO_ELEMENTS.length; i++) {
+            CascadedStyle style = css.getPseudoElementStyle(e, PSEUDO_ELEMENTS[i]);
+            if (style != null) {
+                result.append(PSEUDO_ELEMENTS[i]).append('{').append(style.getFingerprint()).append('}');
+            }
+        }
+        return result.toString();
+    }
+
+    private int compare(CalculatedStyle oldStyle, CalculatedStyle style) {
+        int result = UNCHANGED;
+        for (int i = 0; i < PROPERTIES.length && result != REBUILD; i++) {
+            CSSName name = PROPERTIES[i];
+            if (! isSameValue(oldStyle.valueByName(name), style.valueByName(name))) {
+                if (BOX_PROPERTIES.contains(name)) {
+                    result = REBUILD;
+                } else if (PAINT_PROPERTIES.contains(name) ||
+                        (name == CSSName.TEXT_DECORATION && style.isInline())) {
+                    // restyling an inline box recalculates its decorations, but line boxes only do so
+                    // during layout
+                    result = Math.max(result, REPAINT);
+                } else {
+                    result = RELAYOUT;
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean isSameValue(FSDerivedValue v1, FSDerivedValue v2) {
+        if (v1 == v2) {
+            return true;
+        }
+        if (v1.isIdent() || v2.isIdent() || v1.getClass() != v2.getClass()) {
+            return false;
+        }
+        String s1 = v1.asString();
+        return s1 == null ? v2.asString() == null : s1.equals(v2.asString());
+    }
+
+    /**
+     * Restyles the boxes of an element, which are all inside the given block box.
+     */
+    private void restyleBoxes(LayoutContext c, Box target, Element e) {
+        if (target.getElement() == e) {
+            target.restyle(c);
+        } else {
+            restyleDescendantBoxes(c, target, e);
+        }
+    }
+
+    private void restyleDescendantBoxes(LayoutContext c, Box box, Element e) {
+        for (int i = 0; i < box.getChildCount(); i++) {
+            restyleBoxOrDescendants(c, box.getChild(i), e);
+        }
+        if (box instanceof InlineLayoutBox) {
+            InlineLayoutBox iB = (InlineLayoutBox) box;
+            for (int i = 0; i < iB.getInlineChildCount(); i++) {
+                Object child = iB.getInlineChild(i);
+                if (child instanceof Box) {
+                    restyleBoxOrDescendants(c, (Box) child, e);
+                }
+            }
+        }
+    }
+
+    private void restyleBoxOrDescendants(LayoutContext c, Box box, Element e) {
+        if (box.getElement() != null && isDescendant(box.getElement(), e)) {
+            box.restyle(c);
+        } else {
+            restyleDescendantBoxes(c, box, e);
+        }
+    }
+
+    /**
+     * Restyles the inline content of the blocks in a subtree. Line boxes are created from it again when the
+     * blocks are laid out, but it is only styled when it is built.
+     */
+    private void styleText(LayoutContext c, Box box) {
+        if (box instanceof BlockBox && ((BlockBox) box).getChildrenContentType() == BlockBox.CONTENT_INLINE) {
+            BlockBox block = (BlockBox) box;
+            block.styleText(c);
+            for (Iterator i = block.getInlineContent().iterator(); i.hasNext(); ) {
+                Object child = i.next();
+                if (child instanceof BlockBox) {
+                    styleText(c, (BlockBox) child);
+                }
+            }
+        } else {
+            for (int i = 0; i < box.getChildCount(); i++) {
+                styleText(c, box.getChild(i));
+            }
+        }
+    }
+
+    // true if node is ancestor or one of its descendants
+    private boolean isDescendant(Node node, Node ancestor) {
+        for (Node n = node; n != null; n = n.getParentNode()) {
+            if (n == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isAttached(Box box, Box root) {
+        Box b = box;
+        while (b.getParent() != null) {
+            b = b.getParent();
+        }
+        return b == root;
+    }
+
     /**
      * Resets the tracking information related to the currently hovered element.
      */
@@ -55,7 +55,8 @@ class ImageLoadWorker extends Thread {
                 if (ImageLoadQueue.isKillSwitch(loadItem)) {
                     break;
                 }
-                final ImageResource ir = ImageResourceLoader.loadImageResourceFromUri(loadItem._uri);
+                final ImageResource ir = ImageResourceLoader.loadImageResourceFromUri(
+                        loadItem._uri, loadItem._targetWidth, loadItem._targetHeight);
                 FSImage awtfsImage = ir.getImage();
                 BufferedImage newImg = (BufferedImage) ((AWTFSImage) awtfsImage).getImage();
                 XRLog.load(Level.FINE, this + ", loaded " + loadItem._uri);
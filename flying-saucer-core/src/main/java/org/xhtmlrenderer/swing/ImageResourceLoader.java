@@ -9,8 +9,6 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.logging.Level;
 
-import javax.imageio.ImageIO;
-
 import org.xhtmlrenderer.extend.FSImage;
 import org.xhtmlrenderer.resource.ImageResource;
 import org.xhtmlrenderer.util.Configuration;
@@ -65,6 +63,21 @@ public class ImageResourceLoader {
     }
 
     public static ImageResource loadImageResourceFromUri(final String uri) {
+        return loadImageResourceFromUri(uri, -1, -1);
+    }
+
+    /**
+     * Loads the image at the given URI, which will be drawn at <code>width</code> by <code>height</code> pixels.
+     * If both dimensions are known and the image is much larger, it is subsampled while decoding (see
+     * {@link ImageUtil#readImage(InputStream, int, int)}); the result is then not the full resolution image,
+     * but still needs to be scaled to the exact target size.
+     *
+     * @param uri the image URI
+     * @param width the target width, or -1 if unknown
+     * @param height the target height, or -1 if unknown
+     * @return the loaded image, or a transparent placeholder if it could not be loaded
+     */
+    public static ImageResource loadImageResourceFromUri(final String uri, final int width, final int height) {
         if (ImageUtil.isEmbeddedBase64Image(uri)) {
             return loadEmbeddedBase64ImageResource(uri);
         } else {
@@ -75,7 +88,7 @@ public class ImageResourceLoader {
                 sr.connect();
                 is = sr.bufferedStream();
                 try {
-                    BufferedImage img = ImageIO.read(is);
+                    BufferedImage img = ImageUtil.readImage(is, width, height);
                     if (img == null) {
                         throw new IOException("ImageIO.read() returned null");
                     }
@@ -143,15 +156,17 @@ public class ImageResourceLoader {
                 if (ir == null) {
                     if (isImmediateLoadUri(uri)) {
                         XRLog.load(Level.FINE, "Load immediate: " + uri);
-                        ir = loadImageResourceFromUri(uri);
-                        FSImage awtfsImage = ir.getImage();
-                        BufferedImage newImg = ((AWTFSImage) awtfsImage).getImage();
-                        loaded(ir, -1, -1);
                         if (width > -1 && height > -1) {
+                            // may be subsampled, so don't cache it as the base size
+                            ir = loadImageResourceFromUri(uri, width, height);
+                            BufferedImage newImg = ((AWTFSImage) ir.getImage()).getImage();
                             XRLog.load(Level.FINE, this + ", scaling " + uri + " to " + width + ", " + height);
                             newImg = ImageUtil.getScaledInstance(newImg, width, height);
                             ir = new ImageResource(ir.getImageUri(), AWTFSImage.createImage(newImg));
                             loaded(ir, width, height);
+                        } else {
+                            ir = loadImageResourceFromUri(uri);
+                            loaded(ir, -1, -1);
                         }
                     } else {
                         XRLog.load(Level.FINE, "Image cache miss, URI not yet loaded, queueing: " + uri);
@@ -117,7 +117,7 @@ public class Java2DOutputDevice extends AbstractOutputDevice implements OutputDe
         for (int i = 0; i < inlineText.getSelectionStart(); i++) {
             vector.setGlyphPosition(i, new Point2D.Float(-100000, -100000));
         }
-        for (int i = inlineText.getSelectionEnd(); i < inlineText.getSubstring().length(); i++) {
+        for (int i = inlineText.getSelectionEnd(); i < inlineText.getSubstringLength(); i++) {
             vector.setGlyphPosition(i, new Point2D.Float(-100000, -100000));
         }
         if(inlineText.getParent().getStyle().isTextJustify()) {
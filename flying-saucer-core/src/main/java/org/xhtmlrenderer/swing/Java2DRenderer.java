@@ -27,24 +27,31 @@ import java.util.Map;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.xhtmlrenderer.css.style.CalculatedStyle;
 import org.xhtmlrenderer.extend.NamespaceHandler;
+import org.xhtmlrenderer.extend.RenderMetrics;
 import org.xhtmlrenderer.extend.UserAgentCallback;
 import org.xhtmlrenderer.extend.UserInterface;
 import org.xhtmlrenderer.layout.BoxBuilder;
+import org.xhtmlrenderer.layout.Layer;
 import org.xhtmlrenderer.layout.LayoutContext;
 import org.xhtmlrenderer.layout.SharedContext;
 import org.xhtmlrenderer.render.BlockBox;
 import org.xhtmlrenderer.render.Box;
+import org.xhtmlrenderer.render.PageBox;
 import org.xhtmlrenderer.render.RenderingContext;
 import org.xhtmlrenderer.render.ViewportBox;
 import org.xhtmlrenderer.simple.extend.XhtmlNamespaceHandler;
 import org.xhtmlrenderer.util.Configuration;
+import org.xhtmlrenderer.util.FSImageWriter;
+import org.xhtmlrenderer.util.FSImageWriterPipeline;
 import org.xhtmlrenderer.util.ImageUtil;
+import org.xhtmlrenderer.util.MetricsTimer;
 
 /**
  * <p>Renders an XML files, formatted with CSS, as an image. Input is a document in the form of file or URL,
  * and output is a BufferedImage. A Java2DRenderer is not intended to be re-used for multiple document
- * sources; just create new Java2DRenderers for each one you need. Java2DRenderer is not thread-safe.
+ * sources; just create new Java2DRenderers for each one you need. See below for thread-safety.
  * Standard usage pattern is</p>
  *
  * <pre>
@@ -65,7 +72,17 @@ import org.xhtmlrenderer.util.ImageUtil;
  * {@link #getImage()}, or else override the {@link #createBufferedImage(int, int)} to have full control over
  * the image we render to.</p>
  *
- * <p>Not thread-safe.</p>
+ * <p>Individual pages can be rendered with {@link #renderPageToImage(int, float)}. Call {@link #setPaged(boolean)}
+ * before the first call to lay the document out in pages as defined by its <code>@page</code> rules; otherwise the
+ * whole document is a single page. Putting the SharedContext in print mode alone doesn't paginate, so
+ * {@link #getImage()} still renders one continuous image.</p>
+ *
+ * <p>Configuring a renderer and {@link #getImage()} are not thread-safe. Once it is configured,
+ * {@link #renderTile(BufferedImage, int, int, float)}, {@link #renderPage(BufferedImage, int, float)} and the
+ * methods built on them may be called from several threads, but they paint sequentially: the document is laid
+ * out once, and painting the shared box tree has side effects, so only one tile or page is painted at a time.
+ * Other threads calling in wait for it. To overlap work, encode finished images on other threads, e.g. with an
+ * {@link org.xhtmlrenderer.util.FSImageWriterPipeline}.</p>
  *
  * @see ITextRenderer
  */
@@ -96,6 +113,7 @@ public class Java2DRenderer {
 	private int height;
 	private static final int NO_HEIGHT = -1;
 	private Map renderingHints;
+	private boolean paged;
 
 
 	/**
@@ -279,9 +297,7 @@ public class Java2DRenderer {
 	 */
 	public BufferedImage getImage() {
 		if (!rendered) {
-            setDocument((doc == null ? loadDocument(sourceDocument) : doc), sourceDocumentBase, new XhtmlNamespaceHandler());
-
-			layout(this.width);
+			ensureLayout();
 
 			height = this.height == -1 ? root.getHeight() : this.height;
 			outputImage = createBufferedImage(this.width, height);
@@ -296,7 +312,12 @@ public class Java2DRenderer {
 			rc.setOutputDevice(outputDevice);
 			sharedContext.getTextRenderer().setup(rc.getFontContext());
 
-			root.getLayer().paint(rc);
+			MetricsTimer timer = MetricsTimer.start(sharedContext, RenderMetrics.PHASE_PAINT);
+			try {
+				root.getLayer().paint(rc);
+			} finally {
+				timer.stop();
+			}
 
 			newG.dispose();
 			rendered = true;
@@ -305,6 +326,326 @@ public class Java2DRenderer {
 		return outputImage;
 	}
 
+	/**
+	 * Sets whether the document is laid out in pages as defined by its <code>@page</code> rules, see
+	 * {@link #renderPage(BufferedImage, int, float)}. Puts the SharedContext in print mode when enabled. Has to be
+	 * called before the document is laid out. Defaults to false.
+	 *
+	 * @param paged true to break the document into pages
+	 */
+	public void setPaged(boolean paged) {
+		this.paged = paged;
+		if (paged) {
+			sharedContext.setPrint(true);
+		}
+	}
+
+	/**
+	 * Returns the number of pages in the document. The document is only broken into pages if
+	 * {@link #setPaged(boolean)} was enabled; otherwise the whole document is a single page. Lays out the document
+	 * if necessary.
+	 *
+	 * @return the number of pages
+	 */
+	public int getPageCount() {
+		ensureLayout();
+
+		return paged ? root.getLayer().getPages().size() : 1;
+	}
+
+	/**
+	 * Renders a single page of the document into a new image. The document is laid out once and reused for every
+	 * page requested; only the boxes which intersect the requested page are painted. Unlike {@link #getImage()}
+	 * each call returns a new image.
+	 *
+	 * @param pageNo the zero-based page index, see {@link #getPageCount()}
+	 * @param scale scale factor applied to the page size, 1 renders at the renderer's resolution
+	 * @return The page rendered as a BufferedImage.
+	 */
+	public BufferedImage renderPageToImage(int pageNo, float scale) {
+		Dimension size = getPageSize(pageNo);
+		BufferedImage image = createBufferedImage(
+				(int) Math.ceil(size.width * scale), (int) Math.ceil(size.height * scale));
+		renderPage(image, pageNo, scale);
+		return image;
+	}
+
+	/**
+	 * Renders a page of the document at several widths, e.g. for previews of different sizes. The document is
+	 * laid out once and the same box tree is painted directly at each scale, so text and borders stay sharp
+	 * instead of being downsampled from a full size image as with {@link ImageUtil#scaleMultiple}. Each
+	 * thumbnail keeps the aspect ratio of the page.
+	 *
+	 * @param pageNo the zero-based page index, see {@link #getPageCount()}; 0 for the whole document when not
+	 * paged
+	 * @param widths the width in pixels of each thumbnail
+	 * @return one image per requested width, in the same order
+	 */
+	public BufferedImage[] renderThumbnails(int pageNo, int[] widths) {
+		Dimension size = getPageSize(pageNo);
+		BufferedImage[] thumbnails = new BufferedImage[widths.length];
+		for (int i = 0; i < widths.length; i++) {
+			if (widths[i] < 1) {
+				throw new IllegalArgumentException("Thumbnail width must be at least 1, was " + widths[i]);
+			}
+			float scale = (float) widths[i] / size.width;
+			int height = Math.max(1, Math.round(size.height * scale));
+			thumbnails[i] = createBufferedImage(widths[i], height);
+			renderPage(thumbnails[i], pageNo, scale);
+		}
+		return thumbnails;
+	}
+
+	/**
+	 * Returns the size of a page in pixels, before scaling. Lays out the document if necessary.
+	 *
+	 * @param pageNo the zero-based page index, see {@link #getPageCount()}
+	 * @return the size of the page
+	 */
+	public Dimension getPageSize(int pageNo) {
+		int pageCount = getPageCount();
+		if (pageNo < 0 || pageNo >= pageCount) {
+			throw new IllegalArgumentException("Page " + pageNo + " is not between 0 " +
+					"and " + (pageCount - 1));
+		}
+
+		if (paged) {
+			synchronized (this) {
+				PageBox page = (PageBox) root.getLayer().getPages().get(pageNo);
+				RenderingContext c = newRenderingContext(outputDevice.getGraphics());
+				return new Dimension(page.getWidth(c), page.getHeight(c));
+			}
+		} else {
+			return getDocumentSize();
+		}
+	}
+
+	/**
+	 * Returns the size of the whole document in pixels, before scaling. This is the size of the image returned
+	 * by {@link #getImage()}. Lays out the document if necessary.
+	 *
+	 * @return the size of the document
+	 */
+	public Dimension getDocumentSize() {
+		ensureLayout();
+
+		return new Dimension(this.width, this.height == NO_HEIGHT ? root.getHeight() : this.height);
+	}
+
+	/**
+	 * Renders a single page of the document into an existing image, for example a buffer that is reused for
+	 * every page. The image is cleared first; the page is painted from its top left corner and clipped to the
+	 * image.
+	 *
+	 * @param image the image to paint into
+	 * @param pageNo the zero-based page index, see {@link #getPageCount()}
+	 * @param scale scale factor applied to the page
+	 */
+	public void renderPage(BufferedImage image, int pageNo, float scale) {
+		int pageCount = getPageCount();
+		if (pageNo < 0 || pageNo >= pageCount) {
+			throw new IllegalArgumentException("Page " + pageNo + " is not between 0 " +
+					"and " + (pageCount - 1));
+		}
+
+		if (! paged) {
+			renderTile(image, 0, 0, scale);
+			return;
+		}
+
+		ImageUtil.clearImage(image);
+		Graphics2D g = createGraphics(image, scale);
+		try {
+			synchronized (this) {
+				MetricsTimer timer = MetricsTimer.start(sharedContext, RenderMetrics.PHASE_PAINT);
+				try {
+					RenderingContext c = newRenderingContext(g);
+					PageBox page = (PageBox) root.getLayer().getPages().get(pageNo);
+					c.setPageCount(pageCount);
+					c.setPage(pageNo, page);
+
+					page.paintBackground(c, 0, Layer.PAGED_MODE_PRINT);
+					page.paintMarginAreas(c, 0, Layer.PAGED_MODE_PRINT);
+					page.paintBorder(c, 0, Layer.PAGED_MODE_PRINT);
+
+					g.clip(page.getPrintClippingBounds(c));
+
+					int top = -page.getPaintingTop() + page.getMarginBorderPadding(c, CalculatedStyle.TOP);
+					int left = page.getMarginBorderPadding(c, CalculatedStyle.LEFT);
+
+					g.translate(left, top);
+					root.getLayer().paint(c);
+				} finally {
+					timer.stop();
+				}
+			}
+		} finally {
+			g.dispose();
+		}
+	}
+
+	/**
+	 * Renders a rectangular region of the (continuous, non-paged) document into an existing image. The region
+	 * starts at <code>x, y</code> in document coordinates and has the size of the image divided by
+	 * <code>scale</code>. The image is cleared first. Only boxes which intersect the region are painted, so a
+	 * long document can be written out as a series of tiles using a single, reused buffer instead of one image
+	 * of the full document height.
+	 *
+	 * <p>Each call paints through its own {@link Java2DOutputDevice}. Calls may be made from several threads, but
+	 * painting is sequential: a call waits while another thread paints the shared box tree.</p>
+	 *
+	 * @param image the image to paint into
+	 * @param x left edge of the region, in document pixels
+	 * @param y top edge of the region, in document pixels
+	 * @param scale scale factor applied to the region
+	 */
+	public void renderTile(BufferedImage image, int x, int y, float scale) {
+		renderTile(image, (double) x, (double) y, scale);
+	}
+
+	/**
+	 * Like {@link #renderTile(BufferedImage, int, int, float)}, but the region may start between document
+	 * pixels. {@link #writeTiles} passes the exact document position of each tile's pixel offset, so the
+	 * right (bottom) edge of one tile and the left (top) edge of the next map to the same document coordinate.
+	 */
+	private void renderTile(BufferedImage image, double x, double y, float scale) {
+		ensureLayout();
+
+		ImageUtil.clearImage(image);
+		Graphics2D g = createGraphics(image, scale);
+		try {
+			g.translate(-x, -y);
+			int clipLeft = (int) Math.floor(x);
+			int clipTop = (int) Math.floor(y);
+			g.clip(new Rectangle(clipLeft, clipTop,
+					(int) Math.ceil(x + image.getWidth() / scale) - clipLeft,
+					(int) Math.ceil(y + image.getHeight() / scale) - clipTop));
+			synchronized (this) {
+				MetricsTimer timer = MetricsTimer.start(sharedContext, RenderMetrics.PHASE_PAINT);
+				try {
+					root.getLayer().paint(newRenderingContext(g));
+				} finally {
+					timer.stop();
+				}
+			}
+		} finally {
+			g.dispose();
+		}
+	}
+
+	/**
+	 * Renders the whole document as tiles of at most <code>tileWidth</code> by <code>tileHeight</code> pixels
+	 * (after scaling) and writes each tile to its own file in <code>directory</code>, named
+	 * <code>prefix-row-column.format</code>. A single buffer is reused for all full-size tiles. When paged
+	 * each page is written as one tile instead, named <code>prefix-page.format</code>, reusing a single buffer
+	 * for pages of the same size.
+	 *
+	 * @param writer the writer used to encode each tile; its format determines the file extension
+	 * @param directory the directory to write the tiles to
+	 * @param prefix file name prefix for the tiles
+	 * @param tileWidth maximum tile width in pixels
+	 * @param tileHeight maximum tile height in pixels
+	 * @param scale scale factor applied to the document
+	 * @throws IOException if a tile could not be written
+	 */
+	public void writeTiles(FSImageWriter writer, File directory, String prefix,
+			int tileWidth, int tileHeight, float scale) throws IOException {
+		writeTiles(writer, null, directory, prefix, tileWidth, tileHeight, scale);
+	}
+
+	/**
+	 * Like {@link #writeTiles(FSImageWriter, File, String, int, int, float)}, but hands each tile to
+	 * <code>pipeline</code> so tiles are encoded on its threads while the next ones are rendered. Each tile
+	 * gets its own buffer; the pipeline bounds how many are alive at once. Waits for the pipeline to write all
+	 * tiles before returning, see {@link FSImageWriterPipeline#flush()}; the pipeline stays open, so it can be
+	 * used for more documents and has to be closed by the caller.
+	 *
+	 * @param pipeline the pipeline used to encode the tiles
+	 * @param directory the directory to write the tiles to
+	 * @param prefix file name prefix for the tiles
+	 * @param tileWidth maximum tile width in pixels
+	 * @param tileHeight maximum tile height in pixels
+	 * @param scale scale factor applied to the document
+	 * @throws IOException if a tile could not be written
+	 */
+	public void writeTiles(FSImageWriterPipeline pipeline, File directory, String prefix,
+			int tileWidth, int tileHeight, float scale) throws IOException {
+		writeTiles(pipeline.getWriter(), pipeline, directory, prefix, tileWidth, tileHeight, scale);
+		pipeline.flush();
+	}
+
+	private void writeTiles(FSImageWriter writer, FSImageWriterPipeline pipeline, File directory, String prefix,
+			int tileWidth, int tileHeight, float scale) throws IOException {
+		String extension = "." + writer.getImageFormat();
+
+		if (paged) {
+			int pageCount = getPageCount();
+			BufferedImage buffer = null;
+			for (int i = 0; i < pageCount; i++) {
+				Dimension size = getPageSize(i);
+				int w = (int) Math.ceil(size.width * scale);
+				int h = (int) Math.ceil(size.height * scale);
+
+				// pages usually share a size, so a single buffer is reused unless a pipeline still holds it
+				BufferedImage page;
+				if (pipeline == null && buffer != null && buffer.getWidth() == w && buffer.getHeight() == h) {
+					page = buffer;
+				} else {
+					page = createBufferedImage(w, h);
+					buffer = page;
+				}
+
+				renderPage(page, i, scale);
+				writeTile(writer, pipeline, page, new File(directory, prefix + "-" + i + extension));
+			}
+			return;
+		}
+
+		Dimension size = getDocumentSize();
+		int totalWidth = (int) Math.ceil(size.width * scale);
+		int totalHeight = (int) Math.ceil(size.height * scale);
+
+		BufferedImage buffer = null;
+		for (int row = 0, top = 0; top < totalHeight; row++, top += tileHeight) {
+			for (int column = 0, left = 0; left < totalWidth; column++, left += tileWidth) {
+				int w = Math.min(tileWidth, totalWidth - left);
+				int h = Math.min(tileHeight, totalHeight - top);
+
+				BufferedImage tile;
+				if (pipeline == null && w == tileWidth && h == tileHeight) {
+					if (buffer == null) {
+						buffer = createBufferedImage(tileWidth, tileHeight);
+					}
+					tile = buffer;
+				} else {
+					tile = createBufferedImage(w, h);
+				}
+
+				renderTile(tile, left / (double) scale, top / (double) scale, scale);
+				writeTile(writer, pipeline, tile,
+						new File(directory, prefix + "-" + row + "-" + column + extension));
+			}
+		}
+	}
+
+	private void writeTile(FSImageWriter writer, FSImageWriterPipeline pipeline, BufferedImage tile, File file)
+			throws IOException {
+		if (pipeline == null) {
+			writer.write(tile, file.getPath());
+		} else {
+			pipeline.write(tile, file.getPath());
+		}
+	}
+
+	private Graphics2D createGraphics(BufferedImage image, float scale) {
+		Graphics2D g = (Graphics2D) image.getGraphics();
+		if ( renderingHints != null ) {
+			g.addRenderingHints(renderingHints);
+		}
+		g.scale(scale, scale);
+		return g;
+	}
+
 	/**
 	 * Returns a BufferedImage using the specified width and height. By default this returns an image compatible
 	 * with the screen (if not in "headless" mode) using the BufferedImage type specified in
@@ -339,18 +680,48 @@ public class Java2DRenderer {
 		);
 	}
 
+	private synchronized void ensureLayout() {
+		if (root == null) {
+			setDocument((doc == null ? loadDocument(sourceDocument) : doc), sourceDocumentBase, new XhtmlNamespaceHandler());
+
+			layout(this.width);
+		}
+	}
+
 	private void layout(int width) {
 		Rectangle rect = new Rectangle(0, 0, width, DEFAULT_HEIGHT);
 		sharedContext.set_TempCanvas(rect);
 		LayoutContext c = newLayoutContext();
-		BlockBox root = BoxBuilder.createRootBox(c, doc);
-		root.setContainingBlock(new ViewportBox(rect));
-		root.layout(c);
+		if (paged) {
+			PageBox first = Layer.createPageBox(c, "first");
+			rect = new Rectangle(0, 0, first.getContentWidth(c), first.getContentHeight(c));
+		}
+		MetricsTimer timer = MetricsTimer.start(sharedContext, RenderMetrics.PHASE_LAYOUT);
+		BlockBox root;
+		try {
+			root = BoxBuilder.createRootBox(c, doc);
+			root.setContainingBlock(new ViewportBox(rect));
+			root.layout(c);
+		} finally {
+			timer.stop();
+		}
+		MetricsTimer.count(sharedContext, RenderMetrics.COUNT_DOCUMENTS, 1);
+		if (paged) {
+			Dimension dim = root.getLayer().getPaintingDimension(c);
+			root.getLayer().trimEmptyPages(c, dim.height);
+			root.getLayer().layoutPages(c);
+			root.getLayer().assignPagePaintingPositions(c, Layer.PAGED_MODE_PRINT);
+		}
 		this.root = root;
 	}
 
 	private Document loadDocument(final String uri) {
-		return sharedContext.getUac().getXMLResource(uri).getDocument();
+		MetricsTimer timer = MetricsTimer.start(sharedContext, RenderMetrics.PHASE_XML_PARSE);
+		try {
+			return sharedContext.getUac().getXMLResource(uri).getDocument();
+		} finally {
+			timer.stop();
+		}
 	}
 
 	private LayoutContext newLayoutContext() {
@@ -362,6 +733,16 @@ public class Java2DRenderer {
 		return result;
 	}
 
+	private RenderingContext newRenderingContext(Graphics2D g) {
+		RenderingContext result = sharedContext.newRenderingContextInstance();
+		result.setFontContext(new Java2DFontContext(g));
+		result.setOutputDevice(new Java2DOutputDevice(g));
+
+		sharedContext.getTextRenderer().setup(result.getFontContext());
+
+		return result;
+	}
+
 	private void init(float dotsPerPoint, int dotsPerPixel) {
 		this.dotsPerPoint = dotsPerPoint;
 
@@ -26,11 +26,13 @@ import java.awt.RenderingHints;
 import java.awt.Toolkit;
 import java.awt.font.GlyphVector;
 import java.awt.geom.Point2D;
+import java.lang.ref.WeakReference;
 import java.util.Map;
 
 import org.xhtmlrenderer.extend.FSGlyphVector;
 import org.xhtmlrenderer.extend.FontContext;
 import org.xhtmlrenderer.extend.OutputDevice;
+import org.xhtmlrenderer.extend.TextRangeRenderer;
 import org.xhtmlrenderer.extend.TextRenderer;
 import org.xhtmlrenderer.render.FSFont;
 import org.xhtmlrenderer.render.FSFontMetrics;
@@ -45,12 +47,18 @@ import org.xhtmlrenderer.util.Configuration;
  * @author   Joshua Marinacci
  * @author   Torbjoern Gannholm
  */
-public class Java2DTextRenderer implements TextRenderer {
+public class Java2DTextRenderer implements TextRenderer, TextRangeRenderer {
     protected float scale;
     protected float threshold;
     protected Object antiAliasRenderingHint;
     protected Object fractionalFontMetricsHint;
 
+    /**
+     * The characters of the last string measured by range; see {@link #getChars(String)}.  Only weakly
+     * reachable, so they don't outlive the layout that measured them.
+     */
+    private volatile WeakReference lastMeasured;
+
     public Java2DTextRenderer() {
         scale = Configuration.valueAsFloat("xr.text.scale", 1.0f);
         threshold = Configuration.valueAsFloat("xr.text.aa-fontsize-threshhold", 25);
@@ -192,6 +200,16 @@ public class Java2DTextRenderer implements TextRenderer {
     }
     
     public int getWidth(FontContext fc, FSFont font, String string) {
+        // measuring a String copies it to an array anyway
+        char[] chars = string.toCharArray();
+        return getWidth(fc, font, chars, 0, chars.length);
+    }
+
+    public int getWidth(FontContext fc, FSFont font, String string, int start, int end) {
+        return getWidth(fc, font, getChars(string), start, end);
+    }
+
+    private int getWidth(FontContext fc, FSFont font, char[] chars, int start, int end) {
         Object fracHint = null;
         Graphics2D graphics = ((Java2DFontContext)fc).getGraphics();
         fracHint = graphics.getRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS);
@@ -200,15 +218,40 @@ public class Java2DTextRenderer implements TextRenderer {
         int width = 0;
         if(fractionalFontMetricsHint == RenderingHints.VALUE_FRACTIONALMETRICS_ON) {
             width = (int)Math.round(
-                    graphics.getFontMetrics(awtFont).getStringBounds(string, graphics).getWidth());            
+                    graphics.getFontMetrics(awtFont).getStringBounds(chars, start, end, graphics).getWidth());
         } else {
             width = (int)Math.ceil(
-                    graphics.getFontMetrics(awtFont).getStringBounds(string, graphics).getWidth());
+                    graphics.getFontMetrics(awtFont).getStringBounds(chars, start, end, graphics).getWidth());
         }
         graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, fracHint);
         return width;
     }
 
+    /**
+     * The line breaker measures many ranges of the same string in a row, so
+     * the character array of the last one is kept.  (Measuring a String
+     * copies it to a new array every time.)
+     */
+    private char[] getChars(String string) {
+        WeakReference ref = lastMeasured;
+        MeasuredText last = ref == null ? null : (MeasuredText) ref.get();
+        if (last == null || last.text != string) {
+            last = new MeasuredText(string);
+            lastMeasured = new WeakReference(last);
+        }
+        return last.chars;
+    }
+
+    private static class MeasuredText {
+        private final String text;
+        private final char[] chars;
+
+        MeasuredText(String text) {
+            this.text = text;
+            this.chars = text.toCharArray();
+        }
+    }
+
     public float getFontScale() {
         return this.scale;
     }
@@ -21,6 +21,7 @@ package org.xhtmlrenderer.swing;
 
 import java.awt.Image;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -32,17 +33,35 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
+
 import javax.imageio.ImageIO;
 
 import org.xhtmlrenderer.event.DocumentListener;
+import org.xhtmlrenderer.extend.ResourcePrefetcher;
 import org.xhtmlrenderer.extend.UserAgentCallback;
 import org.xhtmlrenderer.resource.CSSResource;
 import org.xhtmlrenderer.resource.ImageResource;
+import org.xhtmlrenderer.resource.ResourceFetcher;
 import org.xhtmlrenderer.resource.XMLResource;
+import org.xhtmlrenderer.util.Configuration;
+import org.xhtmlrenderer.util.DataURIUtil;
 import org.xhtmlrenderer.util.FontUtil;
+import org.xhtmlrenderer.util.IOUtil;
 import org.xhtmlrenderer.util.ImageUtil;
 import org.xhtmlrenderer.util.XRLog;
 
@@ -63,15 +82,28 @@ import org.xhtmlrenderer.util.XRLog;
  *
  * @author Torbjoern Gannholm
  */
-public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
+public class NaiveUserAgent implements UserAgentCallback, ResourcePrefetcher, DocumentListener {
 
     private static final int DEFAULT_IMAGE_CACHE_SIZE = 16;
+    private static final long DEFAULT_MAX_PREFETCHED_BYTES = 16 * 1024 * 1024;
     /**
      * a (simple) LRU cache
      */
     protected LinkedHashMap _imageCache;
     private int _imageCacheCapacity;
     private String _baseURL;
+    private ResourceFetcher _resourceFetcher;
+    private ExecutorService _prefetchExecutor;
+    /**
+     * resolved URI -> Prefetch started by {@link #prefetch(Collection)}
+     */
+    private final Map _prefetched = new HashMap();
+    private long _maxPrefetchedBytes = Configuration.valueAsLong("xr.load.prefetch-max-bytes",
+            DEFAULT_MAX_PREFETCHED_BYTES);
+    /**
+     * the bytes held by the prefetches in _prefetched, guarded by it
+     */
+    private long _prefetchedBytes;
 
     /**
      * Creates a new instance of NaiveUserAgent with a max image cache of 16 images.
@@ -127,7 +159,10 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
             if (FontUtil.isEmbeddedBase64Font(uri)) {
                 is = FontUtil.getEmbeddedBase64Data(uri);
             } else {
-                is = openStream(resolvedUri);
+                is = openPrefetched(resolvedUri);
+                if (is == null) {
+                    is = openStream(resolvedUri);
+                }
             }
         } catch (java.net.MalformedURLException e) {
             XRLog.exception("bad URL given: " + resolvedUri, e);
@@ -139,7 +174,210 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
         return is;
     }
     
+    /**
+     * Sets the executor used by {@link #prefetch(Collection)}, for example one which runs each fetch on a thread of
+     * its own. If none is set, a pool of daemon threads is created when it's first needed, with as many threads as
+     * the configuration key <code>xr.load.prefetch-threads</code> asks for; if that is 0, nothing is prefetched.
+     * The executor is not shut down by this class.
+     *
+     * @param executor the executor, or null to use the configured pool
+     */
+    public synchronized void setPrefetchExecutor(ExecutorService executor) {
+        _prefetchExecutor = executor;
+    }
+
+    private synchronized ExecutorService getPrefetchExecutor() {
+        if (_prefetchExecutor == null) {
+            int threads = Configuration.valueAsInt("xr.load.prefetch-threads", 0);
+            if (threads > 0) {
+                ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                        threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue(), new ThreadFactory() {
+                            public Thread newThread(Runnable r) {
+                                Thread t = new Thread(r, "NaiveUserAgent-prefetch");
+                                t.setDaemon(true);
+                                return t;
+                            }
+                        });
+                executor.allowCoreThreadTimeOut(true);
+                _prefetchExecutor = executor;
+            }
+        }
+        return _prefetchExecutor;
+    }
+
+    /**
+     * Sets how many bytes the resources fetched by {@link #prefetch(Collection)} may take up until they are
+     * requested; a resource which doesn't fit anymore is dropped and loaded again when it's needed. The default
+     * is the configuration key <code>xr.load.prefetch-max-bytes</code>, or 16 MB.
+     *
+     * @param maxBytes the maximum number of bytes held
+     */
+    public void setMaxPrefetchedBytes(long maxBytes) {
+        synchronized (_prefetched) {
+            _maxPrefetchedBytes = maxBytes;
+        }
+    }
+
+    /**
+     * Returns true if {@link #prefetch(Collection)} fetches anything, that is if there is an executor to fetch
+     * resources on.
+     *
+     * @return true if prefetching is on
+     */
+    public boolean isPrefetchEnabled() {
+        return getPrefetchExecutor() != null;
+    }
+
+    /**
+     * Starts fetching resources in the background, so that the network latency of a document's images, fonts
+     * and stylesheets overlaps instead of adding up. When {@link #resolveAndOpenStream(String)} is next called
+     * for one of the URIs, it waits for the fetch to complete and returns the bytes instead of opening a new
+     * connection; if the fetch failed, or the resource didn't fit into the bytes set by
+     * {@link #setMaxPrefetchedBytes(long)}, the resource is loaded again as usual. URIs for which
+     * {@link #isPrefetchable(String)} is false, images already in the cache and URIs which are already being
+     * fetched are skipped.
+     *
+     * <p>{@link #openStream(String)} is called on the threads of the executor, so overrides of it and of
+     * {@link #openConnection(String)} must be thread safe.</p>
+     *
+     * @param uris the URIs to fetch, possibly relative
+     */
+    public void prefetch(Collection uris) {
+        ExecutorService executor = getPrefetchExecutor();
+        if (executor == null) {
+            return;
+        }
+        for (Iterator i = uris.iterator(); i.hasNext(); ) {
+            final String uri = resolveURI((String) i.next());
+            if (uri == null || ! isPrefetchable(uri) || _imageCache.containsKey(uri)) {
+                continue;
+            }
+            synchronized (_prefetched) {
+                if (! _prefetched.containsKey(uri)) {
+                    final Prefetch prefetch = new Prefetch();
+                    prefetch.future = executor.submit(new Callable() {
+                        public Object call() throws IOException {
+                            return readPrefetched(uri, prefetch);
+                        }
+                    });
+                    _prefetched.put(uri, prefetch);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a prefetched resource, or returns null if it was dropped meanwhile or doesn't fit into the bytes left
+     * for prefetched resources.
+     */
+    private byte[] readPrefetched(String uri, Prefetch prefetch) throws IOException {
+        InputStream is = openStream(uri);
+        try {
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            byte[] buf = new byte[10240];
+            int i;
+            while ((i = is.read(buf)) != -1) {
+                result.write(buf, 0, i);
+                synchronized (_prefetched) {
+                    if (prefetch.dropped || _prefetchedBytes + result.size() > _maxPrefetchedBytes) {
+                        XRLog.load(Level.FINE, "Not prefetching " + uri + ", too many bytes are prefetched");
+                        return null;
+                    }
+                }
+            }
+            synchronized (_prefetched) {
+                if (prefetch.dropped || _prefetchedBytes + result.size() > _maxPrefetchedBytes) {
+                    return null;
+                }
+                prefetch.size = result.size();
+                _prefetchedBytes += prefetch.size;
+            }
+            return result.toByteArray();
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * Whether a resource should be fetched by {@link #prefetch(Collection)}. By default, everything but
+     * <code>file:</code>, <code>jar:</code> and <code>data:</code> URIs is, as these are quick to load
+     * when they're needed.
+     *
+     * @param uri the resolved URI
+     * @return true if the resource should be fetched in the background
+     */
+    protected boolean isPrefetchable(String uri) {
+        return ! (uri.startsWith("file:") || uri.startsWith("jar:") || uri.startsWith("data:"));
+    }
+
+    /**
+     * Cancels all prefetches and drops the resources which were fetched but never requested, for example images
+     * of elements which aren't displayed.
+     */
+    public void clearPrefetched() {
+        synchronized (_prefetched) {
+            for (Iterator i = _prefetched.values().iterator(); i.hasNext(); ) {
+                Prefetch prefetch = (Prefetch) i.next();
+                prefetch.future.cancel(true);
+                prefetch.dropped = true;
+                _prefetchedBytes -= prefetch.size;
+            }
+            _prefetched.clear();
+        }
+    }
+
+    private InputStream openPrefetched(String uri) {
+        Prefetch prefetch;
+        synchronized (_prefetched) {
+            prefetch = (Prefetch) _prefetched.remove(uri);
+        }
+        if (prefetch == null) {
+            return null;
+        }
+        try {
+            byte[] bytes = (byte[]) prefetch.future.get();
+            synchronized (_prefetched) {
+                _prefetchedBytes -= prefetch.size;
+            }
+            return bytes == null ? null : new ByteArrayInputStream(bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            XRLog.load(Level.FINE, "Prefetching " + uri + " failed, loading it again: " + e.getCause());
+        } catch (CancellationException e) {
+            // cleared while we were waiting, load it again
+        }
+        return null;
+    }
+
+    private static class Prefetch {
+        Future future;
+        // the bytes counted in _prefetchedBytes, once fetched
+        int size;
+        // set when cleared, so that the bytes aren't counted anymore
+        boolean dropped;
+    }
+
+    /**
+     * Sets the fetcher used to load resources, for example an
+     * {@link org.xhtmlrenderer.resource.HttpResourceFetcher} to cache them. If none is set, resources are loaded
+     * through {@link #openConnection(String)}; if one is set, that method is not used.
+     *
+     * @param fetcher the fetcher, or null to open a new connection for every resource
+     */
+    public void setResourceFetcher(ResourceFetcher fetcher) {
+        _resourceFetcher = fetcher;
+    }
+
+    public ResourceFetcher getResourceFetcher() {
+        return _resourceFetcher;
+    }
+
     protected InputStream openStream(String uri) throws MalformedURLException, IOException {
+        ResourceFetcher fetcher = _resourceFetcher;
+        if (fetcher != null) {
+            return fetcher.open(uri);
+        }
         return openConnection(uri).getInputStream();
     }
 
@@ -230,8 +468,16 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
     public ImageResource getImageResource(String uri) {
         ImageResource ir;
         if (ImageUtil.isEmbeddedBase64Image(uri)) {
-            BufferedImage image = ImageUtil.loadEmbeddedBase64Image(uri);
-            ir = createImageResource(null, image);
+            // keyed by a hash so that the cache doesn't keep the whole data URI
+            String key = DataURIUtil.getCacheKey(uri);
+            ir = (ImageResource) _imageCache.get(key);
+            if (ir == null) {
+                BufferedImage image = ImageUtil.loadEmbeddedBase64Image(uri);
+                ir = createImageResource(null, image);
+                if (image != null) {
+                    _imageCache.put(key, ir);
+                }
+            }
         } else {
             uri = resolveURI(uri);
             ir = (ImageResource) _imageCache.get(uri);
@@ -307,26 +553,9 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
         InputStream is = resolveAndOpenStream(uri);
         if (is==null) return null;
         try {
-            ByteArrayOutputStream result = new ByteArrayOutputStream();
-            byte[] buf = new byte[10240];
-            int i;
-            while ((i = is.read(buf)) != -1) {
-                result.write(buf, 0, i);
-            }
-            is.close();
-            is = null;
-
-            return result.toByteArray();
+            return IOUtil.readBytes(is);
         } catch (IOException e) {
             return null;
-        } finally {
-            if (is != null) {
-                try {
-                    is.close();
-                } catch (IOException e) {
-                    // ignore
-                }
-            }
         }
     }
 
@@ -414,6 +643,7 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
 
     public void documentStarted() {
         shrinkImageCache();
+        clearPrefetched();
     }
 
     public void documentLoaded() { /* ignore*/ }
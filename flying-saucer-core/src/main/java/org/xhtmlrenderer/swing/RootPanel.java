@@ -53,6 +53,7 @@ import org.xhtmlrenderer.css.style.derived.StringValue;
 import org.xhtmlrenderer.event.DocumentListener;
 import org.xhtmlrenderer.extend.FSCanvas;
 import org.xhtmlrenderer.extend.NamespaceHandler;
+import org.xhtmlrenderer.extend.RenderMetrics;
 import org.xhtmlrenderer.extend.UserInterface;
 import org.xhtmlrenderer.layout.BoxBuilder;
 import org.xhtmlrenderer.layout.Layer;
@@ -64,6 +65,7 @@ import org.xhtmlrenderer.render.PageBox;
 import org.xhtmlrenderer.render.RenderingContext;
 import org.xhtmlrenderer.render.ViewportBox;
 import org.xhtmlrenderer.util.Configuration;
+import org.xhtmlrenderer.util.MetricsTimer;
 import org.xhtmlrenderer.util.XRLog;
 
 
@@ -316,22 +318,28 @@ public class RootPanel extends JPanel implements Scrollable, UserInterface, FSCa
             }
 
             long start = System.currentTimeMillis();
+            MetricsTimer timer = MetricsTimer.start(getSharedContext(), RenderMetrics.PHASE_LAYOUT);
+            BlockBox root;
+            Rectangle initialExtents;
+            try {
+                root = (BlockBox)getRootBox();
+                if (root != null && isNeedRelayout()) {
+                    root.reset(c);
+                } else {
+                    root = BoxBuilder.createRootBox(c, doc);
+                    setRootBox(root);
+                }
 
-            BlockBox root = (BlockBox)getRootBox();
-            if (root != null && isNeedRelayout()) {
-                root.reset(c);
-            } else {
-                root = BoxBuilder.createRootBox(c, doc);
-                setRootBox(root);
-            }
-
-            initFontFromComponent(root);
-
-            Rectangle initialExtents = getInitialExtents(c);
-            root.setContainingBlock(new ViewportBox(initialExtents));
+                initFontFromComponent(root);
 
-            root.layout(c);
+                initialExtents = getInitialExtents(c);
+                root.setContainingBlock(new ViewportBox(initialExtents));
 
+                root.layout(c);
+            } finally {
+                timer.stop();
+            }
+            MetricsTimer.count(getSharedContext(), RenderMetrics.COUNT_DOCUMENTS, 1);
             long end = System.currentTimeMillis();
 
             XRLog.layout(Level.INFO, "Layout took " + (end - start) + "ms");
@@ -541,6 +549,17 @@ public class RootPanel extends JPanel implements Scrollable, UserInterface, FSCa
         }
     }
 
+    /**
+     * Drops the box tree, so that the next layout builds it again from the document, e.g. after a style change
+     * which affects which boxes are generated. {@link #relayout()} reuses the existing boxes instead.
+     */
+    protected void rebuild() {
+        if (doc != null) {
+            setRootBox(null);
+            repaint();
+        }
+    }
+
     public double getLayoutWidth() {
         if (enclosingScrollPane != null) {
             return enclosingScrollPane.getViewportBorderBounds().width;
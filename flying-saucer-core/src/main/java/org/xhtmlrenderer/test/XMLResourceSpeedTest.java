@@ -0,0 +1,60 @@
+package org.xhtmlrenderer.test;
+
+import org.xhtmlrenderer.resource.FSEntityResolver;
+import org.xhtmlrenderer.resource.XMLResource;
+import org.xhtmlrenderer.util.IOUtil;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import javax.xml.transform.sax.SAXSource;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+
+/**
+ * Compares loading documents with {@link XMLResource#load(InputSource)}, which builds the DOM from the SAX events
+ * directly, against the identity transformation {@link XMLResource#load(javax.xml.transform.Source)} uses.
+ * <pre>
+ * java org.xhtmlrenderer.test.XMLResourceSpeedTest tests/profiling/xhtml/hamlet.xhtml ...
+ * </pre>
+ */
+public class XMLResourceSpeedTest {
+    private static final int WARMUP = 5;
+    private static final int RUNS = 20;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            args = new String[] { "tests/profiling/xhtml/hamlet.xhtml" };
+        }
+        for (int i = 0; i < args.length; i++) {
+            byte[] document = IOUtil.readBytes(new FileInputStream(new File(args[i])));
+            for (int j = 0; j < WARMUP; j++) {
+                loadWithSAX(document);
+                loadWithTrAX(document);
+            }
+
+            long sax = 0;
+            long trax = 0;
+            for (int j = 0; j < RUNS; j++) {
+                long start = System.nanoTime();
+                loadWithSAX(document);
+                sax += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                loadWithTrAX(document);
+                trax += System.nanoTime() - start;
+            }
+            System.out.println(args[i] + ": SAX " + sax / RUNS / 1000 + " us, TrAX " + trax / RUNS / 1000 + " us");
+        }
+    }
+
+    private static void loadWithSAX(byte[] document) {
+        XMLResource.load(new InputSource(new ByteArrayInputStream(document)));
+    }
+
+    private static void loadWithTrAX(byte[] document) throws Exception {
+        XMLReader xmlReader = XMLResource.newXMLReader();
+        xmlReader.setEntityResolver(FSEntityResolver.instance());
+        XMLResource.load(new SAXSource(xmlReader, new InputSource(new ByteArrayInputStream(document))));
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.util;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An InputStream reading the remaining bytes of a {@link ByteBuffer}, e.g. of a memory-mapped file, without
+ * copying them to the heap first. The stream reads from a duplicate, so the position of the buffer itself isn't
+ * changed.
+ */
+public class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer _buffer;
+
+    public ByteBufferInputStream(ByteBuffer buffer) {
+        _buffer = buffer.duplicate();
+        _buffer.mark();
+    }
+
+    public int read() {
+        return _buffer.hasRemaining() ? _buffer.get() & 0xFF : -1;
+    }
+
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (! _buffer.hasRemaining()) {
+            return -1;
+        }
+        int n = Math.min(len, _buffer.remaining());
+        _buffer.get(b, off, n);
+        return n;
+    }
+
+    public long skip(long n) {
+        int skipped = (int) Math.max(0, Math.min(n, _buffer.remaining()));
+        _buffer.position(_buffer.position() + skipped);
+        return skipped;
+    }
+
+    public int available() {
+        return _buffer.remaining();
+    }
+
+    public boolean markSupported() {
+        return true;
+    }
+
+    public synchronized void mark(int readlimit) {
+        _buffer.mark();
+    }
+
+    public synchronized void reset() {
+        _buffer.reset();
+    }
+}
@@ -862,6 +862,10 @@ public class Configuration {
         props.setProperty("xr.load.string-interning", "false");
         props.setProperty("xr.load.namespaces", "false");
         props.setProperty("xr.load.namespace-prefixes", "false");
+        props.setProperty("xr.load.compact-document", "false");
+        props.setProperty("xr.load.prefetch-threads", "0");
+        props.setProperty("xr.load.prefetch-max-bytes", "16777216");
+        props.setProperty("xr.load.parser-pool-capacity", "64");
         props.setProperty("xr.layout.whitespace.experimental", "true");
         props.setProperty("xr.layout.bad-sizing-hack", "false");
         props.setProperty("xr.renderer.viewport-repaint", "true");
@@ -883,6 +887,7 @@ public class Configuration {
         props.setProperty("xr.use.listeners", "true");
         props.setProperty("xr.image.buffered", "false");
         props.setProperty("xr.image.scale", "LOW");
+        props.setProperty("xr.image.subsample", "true");
         props.setProperty("xr.image.render-quality", "java.awt.RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR");
         return props;
     }
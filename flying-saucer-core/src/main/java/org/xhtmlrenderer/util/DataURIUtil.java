@@ -0,0 +1,190 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.util;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Decodes <code>data:</code> URIs. Embedded images and fonts can be several megabytes long, so the data is
+ * decoded straight from the URI into an array of the right size, without copying it to substrings or
+ * intermediate arrays first.
+ */
+public class DataURIUtil {
+    private static final byte[] BASE64_VALUES = new byte[128];
+
+    /**
+     * URI -> cache key; the same URI is usually looked up many times, e.g. for every page it is shown on
+     */
+    private static final Map CACHE_KEYS = Collections.synchronizedMap(new WeakHashMap());
+
+    static {
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < BASE64_VALUES.length; i++) {
+            BASE64_VALUES[i] = -1;
+        }
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_VALUES[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    /**
+     * Finds the data of a base 64 encoded data URI.
+     *
+     * @param uri the URI, e.g. <code>data:image/png;base64,iVBORw0...</code>
+     * @return the index of the first character after the comma, or -1 if the URI isn't base 64 encoded
+     */
+    public static int indexOfBase64Data(CharSequence uri) {
+        int comma = -1;
+        for (int i = 0; i < uri.length(); i++) {
+            if (uri.charAt(i) == ',') {
+                comma = i;
+                break;
+            }
+        }
+        if (comma < 7 || uri.charAt(comma - 7) != ';') {
+            return -1;
+        }
+        String base64 = "base64";
+        for (int i = 0; i < base64.length(); i++) {
+            if (Character.toLowerCase(uri.charAt(comma - 6 + i)) != base64.charAt(i)) {
+                return -1;
+            }
+        }
+        return comma + 1;
+    }
+
+    /**
+     * Decodes the base 64 data of a data URI.
+     *
+     * @param uri the URI
+     * @return the decoded data, or null if the URI isn't base 64 encoded
+     * @throws IllegalArgumentException if the data isn't valid base 64
+     */
+    public static byte[] decodeBase64(CharSequence uri) {
+        int start = indexOfBase64Data(uri);
+        return start == -1 ? null : decodeBase64(uri, start, uri.length());
+    }
+
+    /**
+     * Decodes base 64 data in the standard alphabet of RFC 4648. Whitespace and line breaks are skipped, and the
+     * <code>=</code> padding at the end may be left out.
+     *
+     * @param s the characters to decode
+     * @param start the index of the first character
+     * @param end the index after the last character
+     * @return the decoded data
+     * @throws IllegalArgumentException if the data contains other characters, is truncated or is padded wrongly
+     */
+    public static byte[] decodeBase64(CharSequence s, int start, int end) {
+        int count = 0;
+        int padding = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (isWhitespace(c)) {
+                continue;
+            } else if (c == '=') {
+                padding++;
+            } else if (c < 128 && BASE64_VALUES[c] != -1 && padding == 0) {
+                count++;
+            } else {
+                throw new IllegalArgumentException("Invalid character '" + c + "' in base 64 data at index " + i);
+            }
+        }
+        if (count % 4 == 1) {
+            throw new IllegalArgumentException("Truncated base 64 data");
+        } else if (padding > 0 && (count % 4 == 0 || (count + padding) % 4 != 0)) {
+            throw new IllegalArgumentException("Wrong padding of base 64 data");
+        }
+
+        byte[] result = new byte[count / 4 * 3 + Math.max(0, count % 4 - 1)];
+        int bits = 0;
+        int quantum = 0;
+        int pos = 0;
+        for (int i = start; i < end && pos < result.length; i++) {
+            char c = s.charAt(i);
+            if (c < 128 && BASE64_VALUES[c] != -1) {
+                quantum = (quantum << 6) | BASE64_VALUES[c];
+                bits += 6;
+                if (bits >= 8) {
+                    bits -= 8;
+                    result[pos++] = (byte) (quantum >> bits);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    /**
+     * Returns a short key identifying a data URI by a hash of its content, so that a cache doesn't have to keep
+     * the whole URI as its key.
+     *
+     * @param uri the URI
+     * @return a key like <code>data:sha-256,1f3a...</code>
+     */
+    public static String getCacheKey(String uri) {
+        String key = (String) CACHE_KEYS.get(uri);
+        if (key == null) {
+            key = hash(uri);
+            CACHE_KEYS.put(uri, key);
+        }
+        return key;
+    }
+
+    private static String hash(CharSequence uri) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        byte[] buf = new byte[8192];
+        int pos = 0;
+        for (int i = 0; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (c < 0x80) {
+                buf[pos++] = (byte) c;
+            } else {
+                // 0xFF never appears in ASCII, so this can't be confused with other characters
+                buf[pos++] = (byte) 0xFF;
+                buf[pos++] = (byte) (c >> 8);
+                buf[pos++] = (byte) c;
+            }
+            if (pos > buf.length - 3) {
+                md.update(buf, 0, pos);
+                pos = 0;
+            }
+        }
+        md.update(buf, 0, pos);
+
+        byte[] digest = md.digest();
+        StringBuffer result = new StringBuffer("data:sha-256,");
+        for (int i = 0; i < digest.length; i++) {
+            result.append(Character.forDigit((digest[i] >> 4) & 0xF, 16));
+            result.append(Character.forDigit(digest[i] & 0xF, 16));
+        }
+        return result.toString();
+    }
+}
@@ -24,9 +24,11 @@ import javax.imageio.ImageIO;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.ImageWriter;
 import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.util.Iterator;
+import java.util.LinkedList;
 
 /**
  * <p>Writes out BufferedImages to some outputstream, like a file. Allows image writer parameters to be specified and
@@ -52,14 +54,24 @@ import java.util.Iterator;
  * </pre>
  * <p>The method {@link #newJpegWriter(float)} creates a writer for JPG images; you just need to specify the
  * output quality. Note that for the JPG format, your image or BufferedImage shouldn't be ARGB.</p>
+ * <p>The underlying ImageWriters are created once and reused by later calls to <code>write</code>, including
+ * calls from different threads; their ImageWriteParam is set up for each image, so changed compression settings
+ * apply to the next image written. Call {@link #dispose()} when the writer is no
+ * longer needed. To encode a stream of images on background threads, see {@link FSImageWriterPipeline}.</p>
  */
 public class FSImageWriter {
     private String imageFormat;
-    private float writeCompressionQuality;
-    private int writeCompressionMode;
-    private String writeCompressionType;
+    private volatile float writeCompressionQuality;
+    private volatile int writeCompressionMode;
+    private volatile String writeCompressionType;
+    private volatile int outputImageType = -1;
     public static final String DEFAULT_IMAGE_FORMAT = "png";
 
+    /**
+     * Idle ImageWriters available for reuse.
+     */
+    private final LinkedList writerPool = new LinkedList();
+
 
     /**
      * New image writer for the PNG image format
@@ -81,6 +93,15 @@ public class FSImageWriter {
         this.writeCompressionQuality = 1.0f;
     }
 
+    /**
+     * Returns the informal name of the image format written, e.g. "png".
+     *
+     * @return the image format
+     */
+    public String getImageFormat() {
+        return imageFormat;
+    }
+
     /**
      * Convenience method for initializing a writer for the JPEG image format.
      *
@@ -139,15 +160,16 @@ public class FSImageWriter {
      * @throws IOException If the file could not be written.
      */
     public void write(BufferedImage bimg, OutputStream os) throws IOException {
-        ImageWriter writer = null;
+        ImageWriter writer = borrowWriter();
+        boolean ok = false;
         ImageOutputStream ios = null;
         try {
-            writer = lookupImageWriterForFormat(imageFormat);
+            ImageWriteParam param = getImageWriteParameters(writer);
             ios = ImageIO.createImageOutputStream(os);
             writer.setOutput(ios);
-            ImageWriteParam iwparam = getImageWriteParameters(writer);
 
-            writer.write(null, new IIOImage(bimg, null, null), iwparam);
+            writer.write(null, new IIOImage(convertToOutputType(bimg), null, null), param);
+            ok = true;
         } finally {
             if (ios != null) {
                 try {
@@ -161,16 +183,76 @@ public class FSImageWriter {
                     // ignore
                 }
             }
-            if (writer != null) {
+            if (ok) {
+                writer.setOutput(null);
+                returnWriter(writer);
+            } else {
                 writer.dispose();
             }
         }
     }
 
+    /**
+     * Disposes of the ImageWriters kept for reuse. The FSImageWriter may still be used afterwards; new
+     * ImageWriters are created as needed.
+     */
+    public void dispose() {
+        synchronized (writerPool) {
+            for (Iterator i = writerPool.iterator(); i.hasNext(); ) {
+                ((ImageWriter) i.next()).dispose();
+            }
+            writerPool.clear();
+        }
+    }
+
+    private ImageWriter borrowWriter() throws IOException {
+        synchronized (writerPool) {
+            if (! writerPool.isEmpty()) {
+                return (ImageWriter) writerPool.removeFirst();
+            }
+        }
+
+        ImageWriter writer = lookupImageWriterForFormat(imageFormat);
+        if (writer == null) {
+            throw new IOException("No ImageWriter found for image format " + imageFormat);
+        }
+        return writer;
+    }
+
+    private void returnWriter(ImageWriter writer) {
+        synchronized (writerPool) {
+            writerPool.addLast(writer);
+        }
+    }
+
+    /**
+     * Sets the BufferedImage type images are converted to before they are encoded, e.g.
+     * <code>BufferedImage.TYPE_BYTE_GRAY</code> or <code>BufferedImage.TYPE_BYTE_INDEXED</code>. Encoders
+     * such as PNG write one byte per pixel for these types, which is considerably faster and smaller than
+     * full RGB output, at the cost of color fidelity. Images already of the given type are written as-is.
+     *
+     * @param type a BufferedImage type, or -1 (the default) to write images in their own type
+     */
+    public void setOutputImageType(int type) {
+        this.outputImageType = type;
+    }
+
+    private BufferedImage convertToOutputType(BufferedImage bimg) {
+        if (outputImageType == -1 || bimg.getType() == outputImageType) {
+            return bimg;
+        }
+
+        BufferedImage result = new BufferedImage(bimg.getWidth(), bimg.getHeight(), outputImageType);
+        Graphics2D g = result.createGraphics();
+        g.drawImage(bimg, 0, 0, null);
+        g.dispose();
+        return result;
+    }
+
     /**
      * Returns the image output parameters to control the output image quality, compression, etc. By default
      * this uses the compression values set in this class. Override this method to get full control over the
-     * ImageWriteParam used in image output.
+     * ImageWriteParam used in image output. It is called for every image written.
      *
      * @param writer The ImageWriter we are going to use for image output.
      * @return ImageWriteParam configured for image output.
@@ -0,0 +1,194 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.util;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Encodes a stream of images, such as the pages or tiles produced by
+ * {@link org.xhtmlrenderer.swing.Java2DRenderer}, on a pool of background threads using an
+ * {@link FSImageWriter}. Rendering the next image can then overlap with encoding the previous ones.</p>
+ * <pre>
+ * FSImageWriterPipeline pipeline = new FSImageWriterPipeline(new FSImageWriter(), 4, 8);
+ * try {
+ *     for (...) {
+ *         pipeline.write(renderer.renderPageToImage(i, 1f), "page-" + i + ".png");
+ *     }
+ * } finally {
+ *     pipeline.close();
+ * }
+ * </pre>
+ * <p>At most <code>maxPending</code> images are queued or being encoded at any time; <code>write</code> blocks
+ * until one of them is finished, which bounds the memory held by the pipeline. Images passed to
+ * <code>write</code> must not be modified afterwards, so a reused render buffer can't be submitted.</p>
+ * <p>If an image fails to encode, the next call to <code>write</code>, <code>flush</code> or <code>close</code>
+ * throws the exception; an <code>Error</code>, such as running out of memory in the encoder, is thrown as it
+ * is.</p>
+ */
+public class FSImageWriterPipeline {
+    private final FSImageWriter writer;
+    private final ExecutorService executor;
+    private final Semaphore pending;
+    private final int maxPending;
+
+    private volatile Throwable failure;
+
+    /**
+     * Creates a new pipeline.
+     *
+     * @param writer     the writer used to encode each image
+     * @param threads    the number of encoding threads
+     * @param maxPending the maximum number of images queued or being encoded
+     */
+    public FSImageWriterPipeline(FSImageWriter writer, int threads, int maxPending) {
+        if (threads < 1 || maxPending < 1) {
+            throw new IllegalArgumentException("threads and maxPending must be at least 1");
+        }
+        this.writer = writer;
+        this.maxPending = maxPending;
+        this.pending = new Semaphore(maxPending);
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "FSImageWriterPipeline");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Returns the writer used to encode each image.
+     *
+     * @return the writer
+     */
+    public FSImageWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Queues an image to be written to a file, blocking while the pipeline is full.
+     *
+     * @param bimg     Image to write.
+     * @param filePath Path for file to write.
+     * @throws IOException If an earlier image could not be written.
+     */
+    public void write(final BufferedImage bimg, final String filePath) throws IOException {
+        submit(new WriteTask() {
+            public void write() throws IOException {
+                writer.write(bimg, filePath);
+            }
+        });
+    }
+
+    /**
+     * Queues an image to be written to a stream, blocking while the pipeline is full. The stream is closed
+     * once the image has been written.
+     *
+     * @param bimg Image to write.
+     * @param os   outputstream to write to
+     * @throws IOException If an earlier image could not be written.
+     */
+    public void write(final BufferedImage bimg, final OutputStream os) throws IOException {
+        submit(new WriteTask() {
+            public void write() throws IOException {
+                try {
+                    writer.write(bimg, os);
+                } finally {
+                    os.close();
+                }
+            }
+        });
+    }
+
+    private void submit(final WriteTask task) throws IOException {
+        checkFailure();
+        try {
+            pending.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to queue image");
+        }
+        executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    task.write();
+                } catch (Throwable e) {
+                    failure = e;
+                } finally {
+                    pending.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits for all queued images to be written. The pipeline can still be used afterwards.
+     *
+     * @throws IOException If an image could not be written.
+     */
+    public void flush() throws IOException {
+        try {
+            pending.acquire(maxPending);
+            pending.release(maxPending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for images to be written");
+        }
+        checkFailure();
+    }
+
+    /**
+     * Waits for all queued images to be written and stops the encoding threads.
+     *
+     * @throws IOException If an image could not be written.
+     */
+    public void close() throws IOException {
+        executor.shutdown();
+        try {
+            pending.acquire(maxPending);
+            pending.release(maxPending);
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for images to be written");
+        }
+        checkFailure();
+    }
+
+    private interface WriteTask {
+        void write() throws IOException;
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable e = failure;
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        } else if (e instanceof Error) {
+            throw (Error) e;
+        } else if (e != null) {
+            throw new IOException("Unable to write image: " + e.getMessage(), e);
+        }
+    }
+}
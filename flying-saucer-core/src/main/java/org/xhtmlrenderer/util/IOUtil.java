@@ -45,6 +45,27 @@ public class IOUtil {
         }
     }
 
+    /**
+     * Reads a stream to its end and closes it.
+     *
+     * @param is the stream
+     * @return the bytes read
+     * @throws IOException if the stream could not be read
+     */
+    public static byte[] readBytes(InputStream is) throws IOException {
+        try {
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            byte[] buf = new byte[10240];
+            int i;
+            while ((i = is.read(buf)) != -1) {
+                result.write(buf, 0, i);
+            }
+            return result.toByteArray();
+        } finally {
+            is.close();
+        }
+    }
+
     public static void deleteAllFiles(final File dir) throws IOException {
         File[] files = dir.listFiles();
         for (int i = 0; i < files.length; i++) {
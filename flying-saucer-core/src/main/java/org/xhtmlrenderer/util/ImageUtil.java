@@ -23,13 +23,16 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.logging.Level;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 /**
  * Static utility methods for working with images. Meant to suggest "best practices" for the most straightforward
@@ -210,6 +213,57 @@ public class ImageUtil {
         return getScaledInstance(opt, orgImage);
     }
 
+    /**
+     * Reads an image which will be drawn at <code>targetWidth</code> by <code>targetHeight</code> pixels. If the
+     * image is much larger than that, the ImageReader only decodes every n-th row and column of the source, so a
+     * large photo shown as a small picture never has to be held in memory at its full resolution. At least twice
+     * the target size is kept in each direction so the result can still be scaled down smoothly with
+     * {@link #getScaledInstance(BufferedImage, int, int)}.
+     *
+     * <p>If either target dimension is unknown (less than 1), or subsampling is disabled with the
+     * <code>xr.image.subsample</code> configuration property, this is the same as
+     * {@link ImageIO#read(InputStream)}.</p>
+     *
+     * @param is the stream to read the image from; it is not closed
+     * @param targetWidth the width the image will be drawn at, or -1 if unknown
+     * @param targetHeight the height the image will be drawn at, or -1 if unknown
+     * @return the decoded image, or null if no registered ImageReader can read the stream
+     * @throws IOException if the image could not be read
+     */
+    public static BufferedImage readImage(InputStream is, int targetWidth, int targetHeight) throws IOException {
+        if (targetWidth < 1 || targetHeight < 1 || !Configuration.isTrue("xr.image.subsample", true)) {
+            return ImageIO.read(is);
+        }
+
+        ImageInputStream iis = ImageIO.createImageInputStream(is);
+        if (iis == null) {
+            return null;
+        }
+        try {
+            Iterator readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = (ImageReader) readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.min(
+                        reader.getWidth(0) / (targetWidth * 2), reader.getHeight(0) / (targetHeight * 2));
+                if (subsampling > 1) {
+                    XRLog.load(Level.FINE, "Subsampling image by " + subsampling + " for " +
+                            targetWidth + "x" + targetHeight);
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        } finally {
+            iis.close();
+        }
+    }
+
     /**
      * Scales one image to multiple dimensions, using the same ScalingOptions for each. The method follows the same
      * process for scaling as {@link #getScaledInstance(ScalingOptions,java.awt.Image)}.
@@ -219,6 +273,7 @@ public class ImageUtil {
      * @param dimensions List of dimensions to scale to; one output image will be produced for each dimension. Will
      *                   not check for duplicate dimensions.
      * @return List of buffered images in the given dimensions.
+     * @see org.xhtmlrenderer.swing.Java2DRenderer#renderThumbnails(int, int[])
      */
     public static java.util.List scaleMultiple(ScalingOptions opt, BufferedImage img, java.util.List dimensions) {
         java.util.List scaledImages = new ArrayList(dimensions.size());
@@ -287,14 +342,11 @@ public class ImageUtil {
      * @return The binary content
      */
     public static byte[] getEmbeddedBase64Image(String imageDataUri) {
-        int b64Index = imageDataUri.indexOf("base64,");
-        if (b64Index != -1) {
-            String b64encoded = imageDataUri.substring(b64Index + "base64,".length());
-            return Base64.getDecoder().decode(b64encoded);
-        } else {
+        byte[] result = DataURIUtil.decodeBase64(imageDataUri);
+        if (result == null) {
             XRLog.load(Level.SEVERE, "Embedded XHTML images must be encoded in base 64.");
         }
-        return null;
+        return result;
     }
     
     /**
@@ -0,0 +1,251 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import org.xhtmlrenderer.extend.RenderMetrics;
+
+/**
+ * <p>A {@link RenderMetrics} which adds up all phases and counters and publishes the totals as attributes of an
+ * MBean. For each phase there are three attributes, e.g. <code>layout.count</code>,
+ * <code>layout.timeMillis</code> and <code>layout.allocatedBytes</code>; each counter is an attribute of its own,
+ * e.g. <code>pages</code>. The <code>reset</code> operation sets everything back to zero.</p>
+ *
+ * <p>Updates take no lock: the cascade is reported once per element, possibly from several threads at a time.</p>
+ * <pre>
+ * JMXRenderMetrics metrics = new JMXRenderMetrics();
+ * metrics.register("org.xhtmlrenderer:type=RenderMetrics");
+ * ...
+ * renderer.getSharedContext().setRenderMetrics(metrics);
+ * </pre>
+ */
+public class JMXRenderMetrics implements RenderMetrics, DynamicMBean {
+    private static final String[] PHASES = {
+            PHASE_XML_PARSE, PHASE_CSS, PHASE_CASCADE, PHASE_BOX_BUILD, PHASE_LAYOUT, PHASE_PAGINATION,
+            PHASE_PAINT, PHASE_PDF_WRITE };
+    private static final String[] COUNTERS = {
+            COUNT_DOCUMENTS, COUNT_BOXES, COUNT_LINE_BOXES, COUNT_RELAYOUTS, COUNT_PAGES, COUNT_FONTS_LOADED,
+            COUNT_IMAGES_LOADED, COUNT_CACHE_HITS };
+
+    private static final String COUNT_SUFFIX = ".count";
+    private static final String TIME_SUFFIX = ".timeMillis";
+    private static final String ALLOCATED_SUFFIX = ".allocatedBytes";
+
+    // name -> Totals { count, nanos, allocated bytes }; copied on write, as
+    // names other than the predefined ones are rare
+    private volatile Map _phases = new LinkedHashMap();
+    // name -> Totals { total }
+    private volatile Map _counters = new LinkedHashMap();
+
+    public JMXRenderMetrics() {
+        for (int i = 0; i < PHASES.length; i++) {
+            _phases.put(PHASES[i], new Totals());
+        }
+        for (int i = 0; i < COUNTERS.length; i++) {
+            _counters.put(COUNTERS[i], new Totals());
+        }
+    }
+
+    /**
+     * Registers this MBean with the platform MBean server.
+     *
+     * @param objectName the name to register under, e.g. <code>org.xhtmlrenderer:type=RenderMetrics</code>
+     * @throws JMException if the MBean could not be registered
+     */
+    public void register(String objectName) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(objectName));
+    }
+
+    public void phaseCompleted(String phase, long elapsedNanos, long allocatedBytes) {
+        Totals totals = (Totals) _phases.get(phase);
+        if (totals == null) {
+            totals = addPhase(phase);
+        }
+        totals.add(0, 1);
+        totals.add(1, elapsedNanos);
+        if (allocatedBytes > 0) {
+            totals.add(2, allocatedBytes);
+        }
+    }
+
+    public void count(String counter, long amount) {
+        Totals total = (Totals) _counters.get(counter);
+        if (total == null) {
+            total = addCounter(counter);
+        }
+        total.add(0, amount);
+    }
+
+    private synchronized Totals addPhase(String phase) {
+        Totals result = (Totals) _phases.get(phase);
+        if (result == null) {
+            Map phases = new LinkedHashMap(_phases);
+            result = new Totals();
+            phases.put(phase, result);
+            _phases = phases;
+        }
+        return result;
+    }
+
+    private synchronized Totals addCounter(String counter) {
+        Totals result = (Totals) _counters.get(counter);
+        if (result == null) {
+            Map counters = new LinkedHashMap(_counters);
+            result = new Totals();
+            counters.put(counter, result);
+            _counters = counters;
+        }
+        return result;
+    }
+
+    /**
+     * Sets all phases and counters back to zero.
+     */
+    public void reset() {
+        for (Iterator i = _phases.values().iterator(); i.hasNext(); ) {
+            ((Totals) i.next()).reset();
+        }
+        for (Iterator i = _counters.values().iterator(); i.hasNext(); ) {
+            ((Totals) i.next()).reset();
+        }
+    }
+
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Totals total = (Totals) _counters.get(attribute);
+        if (total != null) {
+            return new Long(total.get(0));
+        }
+
+        int dot = attribute.lastIndexOf('.');
+        Totals totals = dot == -1 ? null : (Totals) _phases.get(attribute.substring(0, dot));
+        if (totals != null) {
+            String suffix = attribute.substring(dot);
+            if (suffix.equals(COUNT_SUFFIX)) {
+                return new Long(totals.get(0));
+            } else if (suffix.equals(TIME_SUFFIX)) {
+                return new Long(totals.get(1) / 1000000);
+            } else if (suffix.equals(ALLOCATED_SUFFIX)) {
+                return new Long(totals.get(2));
+            }
+        }
+
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Attribute " + attribute.getName() + " is read-only");
+    }
+
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList result = new AttributeList();
+        for (int i = 0; i < attributes.length; i++) {
+            try {
+                result.add(new Attribute(attributes[i], getAttribute(attributes[i])));
+            } catch (AttributeNotFoundException e) {
+                // left out, as the DynamicMBean contract asks
+            }
+        }
+        return result;
+    }
+
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if (actionName.equals("reset") && (params == null || params.length == 0)) {
+            reset();
+            return null;
+        }
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    public MBeanInfo getMBeanInfo() {
+        List attributes = new ArrayList();
+        for (Iterator i = _phases.keySet().iterator(); i.hasNext(); ) {
+            String phase = (String) i.next();
+            attributes.add(newAttributeInfo(phase + COUNT_SUFFIX, "Number of times " + phase + " was completed"));
+            attributes.add(newAttributeInfo(phase + TIME_SUFFIX, "Total time spent in " + phase));
+            attributes.add(newAttributeInfo(phase + ALLOCATED_SUFFIX, "Total bytes allocated during " + phase));
+        }
+        for (Iterator i = _counters.keySet().iterator(); i.hasNext(); ) {
+            String counter = (String) i.next();
+            attributes.add(newAttributeInfo(counter, "Total number of " + counter));
+        }
+
+        MBeanOperationInfo reset = new MBeanOperationInfo(
+                "reset", "Sets all phases and counters back to zero", null, "void", MBeanOperationInfo.ACTION);
+
+        return new MBeanInfo(getClass().getName(), "Flying Saucer rendering metrics",
+                (MBeanAttributeInfo[]) attributes.toArray(new MBeanAttributeInfo[attributes.size()]),
+                null, new MBeanOperationInfo[] { reset }, null);
+    }
+
+    private static MBeanAttributeInfo newAttributeInfo(String name, String description) {
+        return new MBeanAttributeInfo(name, "long", description, true, false, false);
+    }
+
+    /**
+     * Up to three running totals, striped by thread so that threads updating them at the same time mostly
+     * write to different cache lines. Reading adds up the stripes.
+     */
+    private static class Totals {
+        private static final int STRIPES = 8;
+        // longs per stripe: one 64 byte cache line
+        private static final int STRIPE_SIZE = 8;
+
+        private final AtomicLongArray _values = new AtomicLongArray(STRIPES * STRIPE_SIZE);
+
+        void add(int index, long amount) {
+            int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+            _values.addAndGet(stripe * STRIPE_SIZE + index, amount);
+        }
+
+        long get(int index) {
+            long result = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                result += _values.get(i * STRIPE_SIZE + index);
+            }
+            return result;
+        }
+
+        void reset() {
+            for (int i = 0; i < _values.length(); i++) {
+                _values.set(i, 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * {{{ header & license
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ * }}}
+ */
+package org.xhtmlrenderer.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.xhtmlrenderer.extend.RenderMetrics;
+import org.xhtmlrenderer.layout.SharedContext;
+
+/**
+ * Measures one phase for the {@link RenderMetrics} of a {@link SharedContext}: the elapsed time and, if the JVM
+ * supports it, the bytes allocated by the current thread. Does nothing if no RenderMetrics is set.
+ * <pre>
+ * MetricsTimer timer = MetricsTimer.start(c.getSharedContext(), RenderMetrics.PHASE_LAYOUT);
+ * try {
+ *     ...
+ * } finally {
+ *     timer.stop();
+ * }
+ * </pre>
+ */
+public final class MetricsTimer {
+    private static final MetricsTimer NONE = new MetricsTimer(null, null, false);
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    // com.sun.management.ThreadMXBean.getThreadAllocatedBytes(long), looked up reflectively as that interface
+    // only exists on HotSpot based JVMs; null if it's missing or switched off
+    private static final Method GET_ALLOCATED_BYTES = findGetAllocatedBytes();
+
+    private final RenderMetrics _metrics;
+    private final String _phase;
+    private final long _startTime;
+    private final long _startAllocated;
+
+    private MetricsTimer(RenderMetrics metrics, String phase, boolean measureAllocation) {
+        _metrics = metrics;
+        _phase = phase;
+        _startAllocated = metrics == null || ! measureAllocation ? -1 : getAllocatedBytes();
+        _startTime = metrics == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Starts timing a phase.
+     *
+     * @param context the context whose RenderMetrics is notified, may be null
+     * @param phase the phase, one of the <code>RenderMetrics.PHASE_</code> constants
+     * @return the timer; call {@link #stop()} when the phase is complete
+     */
+    public static MetricsTimer start(SharedContext context, String phase) {
+        return start(context, phase, true);
+    }
+
+    /**
+     * Starts timing a phase, optionally without measuring allocations.  Reading the allocated bytes costs about as
+     * much as a small phase, so phases which run very often, such as the cascade of a single element, only measure
+     * the elapsed time and report -1 bytes.
+     *
+     * @param context the context whose RenderMetrics is notified, may be null
+     * @param phase the phase, one of the <code>RenderMetrics.PHASE_</code> constants
+     * @param measureAllocation whether to measure the bytes allocated during the phase
+     * @return the timer; call {@link #stop()} when the phase is complete
+     */
+    public static MetricsTimer start(SharedContext context, String phase, boolean measureAllocation) {
+        RenderMetrics metrics = context == null ? null : context.getRenderMetrics();
+        return metrics == null ? NONE : new MetricsTimer(metrics, phase, measureAllocation);
+    }
+
+    /**
+     * Reports the phase to the RenderMetrics.
+     */
+    public void stop() {
+        if (_metrics != null) {
+            long elapsed = System.nanoTime() - _startTime;
+            long allocated = _startAllocated == -1 ? -1 : getAllocatedBytes() - _startAllocated;
+            _metrics.phaseCompleted(_phase, elapsed, allocated);
+        }
+    }
+
+    /**
+     * Adds to a counter of the RenderMetrics of a context, if it has one.
+     *
+     * @param context the context whose RenderMetrics is notified, may be null
+     * @param counter the counter, one of the <code>RenderMetrics.COUNT_</code> constants
+     * @param amount the amount to add
+     */
+    public static void count(SharedContext context, String counter, long amount) {
+        RenderMetrics metrics = context == null ? null : context.getRenderMetrics();
+        if (metrics != null) {
+            metrics.count(counter, amount);
+        }
+    }
+
+    private static long getAllocatedBytes() {
+        if (GET_ALLOCATED_BYTES == null) {
+            return -1;
+        }
+        try {
+            return ((Long) GET_ALLOCATED_BYTES.invoke(THREADS, new Object[] {
+                    new Long(Thread.currentThread().getId()) })).longValue();
+        } catch (IllegalAccessException e) {
+            return -1;
+        } catch (InvocationTargetException e) {
+            return -1;
+        }
+    }
+
+    private static Method findGetAllocatedBytes() {
+        try {
+            Class type = Class.forName("com.sun.management.ThreadMXBean");
+            if (! type.isInstance(THREADS)) {
+                return null;
+            }
+            Boolean supported = (Boolean) type.getMethod("isThreadAllocatedMemorySupported", new Class[0]).invoke(
+                    THREADS, new Object[0]);
+            Boolean enabled = (Boolean) type.getMethod("isThreadAllocatedMemoryEnabled", new Class[0]).invoke(
+                    THREADS, new Object[0]);
+            if (! supported.booleanValue() || ! enabled.booleanValue()) {
+                return null;
+            }
+            return type.getMethod("getThreadAllocatedBytes", new Class[] { long.class });
+        } catch (ClassNotFoundException e) {
+            // not a HotSpot based JVM
+            return null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (InvocationTargetException e) {
+            return null;
+        } catch (SecurityException e) {
+            return null;
+        }
+    }
+}
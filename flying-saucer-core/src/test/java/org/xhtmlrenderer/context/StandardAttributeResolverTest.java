@@ -0,0 +1,52 @@
+package org.xhtmlrenderer.context;
+
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xhtmlrenderer.resource.XMLResource;
+import org.xhtmlrenderer.simple.extend.XhtmlNamespaceHandler;
+import org.xml.sax.InputSource;
+
+public class StandardAttributeResolverTest
+        extends TestCase
+{
+    private Element _p;
+    private StandardAttributeResolver _resolver;
+
+    protected void setUp()
+    {
+        Document document = XMLResource.load(new InputSource(new StringReader(
+                "<html xmlns='http://www.w3.org/1999/xhtml'><body>" +
+                "<p id='first' class=' a\tbb  c '/><div class='a bb c'/></body></html>"))).getDocument();
+        _p = (Element) document.getElementsByTagName("p").item(0);
+        _resolver = new StandardAttributeResolver(new XhtmlNamespaceHandler(), null, null);
+    }
+
+    public void testHasClass()
+    {
+        assertTrue(_resolver.hasClass(_p, "a"));
+        assertTrue(_resolver.hasClass(_p, "bb"));
+        assertTrue(_resolver.hasClass(_p, "c"));
+        assertFalse(_resolver.hasClass(_p, "b"));
+        assertFalse(_resolver.hasClass(_p, ""));
+        assertFalse(_resolver.hasClass(_p.getParentNode(), "a"));
+    }
+
+    public void testChangedAttributes()
+    {
+        assertEquals("first", _resolver.getID(_p));
+        assertTrue(_resolver.hasClass(_p, "a"));
+
+        _p.setAttribute("id", "second");
+        _p.setAttribute("class", "d");
+        assertEquals("second", _resolver.getID(_p));
+        assertEquals("d", _resolver.getClass(_p));
+        assertFalse(_resolver.hasClass(_p, "a"));
+        assertTrue(_resolver.hasClass(_p, "d"));
+
+        _p.removeAttribute("class");
+        assertFalse(_resolver.hasClass(_p, "d"));
+    }
+}
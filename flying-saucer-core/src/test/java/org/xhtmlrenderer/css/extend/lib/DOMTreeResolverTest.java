@@ -0,0 +1,76 @@
+package org.xhtmlrenderer.css.extend.lib;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.TestCase;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+public class DOMTreeResolverTest
+        extends TestCase
+{
+    private DOMTreeResolver resolver;
+    private Element parent;
+    private Element[] children;
+
+    protected void setUp() throws Exception
+    {
+        resolver = new DOMTreeResolver();
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        parent = document.createElement("parent");
+        document.appendChild(parent);
+        children = new Element[4];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = document.createElement("child");
+            parent.appendChild(document.createTextNode(" "));
+            parent.appendChild(children[i]);
+        }
+    }
+
+    private void assertPositions(Element[] expected)
+    {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(i, resolver.getPositionOfElement(expected[i]));
+        }
+    }
+
+    public void testPositions()
+    {
+        assertPositions(children);
+        assertPositions(children);
+    }
+
+    public void testInsertBefore()
+    {
+        assertPositions(children);
+        Element first = parent.getOwnerDocument().createElement("child");
+        parent.insertBefore(first, parent.getFirstChild());
+        assertPositions(new Element[] { first, children[0], children[1], children[2], children[3] });
+    }
+
+    public void testRemoveEarlierSibling()
+    {
+        assertPositions(children);
+        parent.removeChild(children[0]);
+        assertEquals(1, resolver.getPositionOfElement(children[2]));
+        assertPositions(new Element[] { children[1], children[2], children[3] });
+    }
+
+    public void testMoveNextToElement()
+    {
+        assertPositions(children);
+        // same number of children, but the last one has a new neighbour
+        parent.appendChild(children[1]);
+        assertEquals(2, resolver.getPositionOfElement(children[3]));
+        assertPositions(new Element[] { children[0], children[2], children[3], children[1] });
+    }
+
+    public void testClearPositions()
+    {
+        assertPositions(children);
+        // moves children[2] forward, but its neighbours are still indexed next to it
+        parent.appendChild(children[0]);
+        resolver.clearPositions(parent);
+        assertPositions(new Element[] { children[1], children[2], children[3], children[0] });
+    }
+}
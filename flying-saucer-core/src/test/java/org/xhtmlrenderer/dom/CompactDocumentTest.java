@@ -0,0 +1,304 @@
+package org.xhtmlrenderer.dom;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.sax.SAXSource;
+
+import junit.framework.TestCase;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xhtmlrenderer.css.extend.lib.DOMTreeResolver;
+import org.xhtmlrenderer.resource.FSEntityResolver;
+import org.xhtmlrenderer.resource.XMLResource;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+/**
+ * Compares a {@link CompactDocument} with the JDK DOM an identity transformation of the same SAX events gives.
+ */
+public class CompactDocumentTest
+        extends TestCase
+{
+    private static final String XHTML_NS = "http://www.w3.org/1999/xhtml";
+    private static final String SVG_NS = "http://www.w3.org/2000/svg";
+
+    private static final String DOCUMENT =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.0 Strict//EN\"\n" +
+            "    \"http://www.w3.org/TR/xhtml1/DTD/xhtml1-strict.dtd\">\n" +
+            "<?xml-stylesheet href=\"style.css\" type=\"text/css\"?>\n" +
+            "<html xmlns=\"http://www.w3.org/1999/xhtml\" xmlns:svg=\"http://www.w3.org/2000/svg\" " +
+            "xml:lang=\"en\" lang=\"en\">\n" +
+            "<head>\n" +
+            "  <title>Compact &amp; JDK</title>\n" +
+            "  <style type=\"text/css\"><![CDATA[ p > a { color: red } ]]></style>\n" +
+            "</head>\n" +
+            "<!-- a comment -->\n" +
+            "<body id=\"body\" class=\"main wide\">\n" +
+            "  <h1 title=\"t\" id=\"title\" class=\"c\" dir=\"ltr\">Title&nbsp;&copy; text</h1>\n" +
+            "  <p id=\"p1\">One <a href=\"#x\" id=\"a1\">link</a> and <em>more<![CDATA[ <cdata> ]]>text</em>.</p>\n" +
+            "  <ul id=\"list\">\n" +
+            "    <li id=\"li1\">first</li>\n" +
+            "    <!-- between -->\n" +
+            "    <li id=\"li2\">second <?pi data?></li>\n" +
+            "    <li id=\"li3\"><span>third</span></li>\n" +
+            "  </ul>\n" +
+            "  <div><svg:svg width=\"10\" height=\"10\"><svg:rect svg:x=\"1\" y=\"2\"/></svg:svg></div>\n" +
+            "  <p id=\"empty\"></p>\n" +
+            "</body>\n" +
+            "</html>\n";
+
+    private Document compact;
+    private Document jdk;
+
+    protected void setUp() throws Exception
+    {
+        compact = CompactDocumentBuilder.parse(newXMLReader(), new InputSource(new StringReader(DOCUMENT)));
+
+        DOMResult result = new DOMResult();
+        TransformerFactory.newInstance().newTransformer().transform(
+                new SAXSource(newXMLReader(), new InputSource(new StringReader(DOCUMENT))), result);
+        jdk = (Document) result.getNode();
+    }
+
+    private static XMLReader newXMLReader() throws Exception
+    {
+        XMLReader result = XMLResource.newXMLReader();
+        result.setEntityResolver(FSEntityResolver.instance());
+        result.setFeature("http://xml.org/sax/features/namespaces", true);
+        result.setFeature("http://xml.org/sax/features/validation", false);
+        return result;
+    }
+
+    public void testNodeStructure()
+    {
+        assertTrue(compact instanceof CompactDocument);
+        assertSameNode(jdk, compact);
+    }
+
+    public void testAttributeOrderAndNamespaces()
+    {
+        Element jdkH1 = (Element) jdk.getElementsByTagName("h1").item(0);
+        Element compactH1 = (Element) compact.getElementsByTagName("h1").item(0);
+        assertSameAttributes(jdkH1, compactH1);
+        assertEquals("ltr", compactH1.getAttribute("dir"));
+        assertEquals("", compactH1.getAttribute("missing"));
+        assertFalse(compactH1.hasAttribute("missing"));
+
+        Element html = compact.getDocumentElement();
+        assertEquals(XHTML_NS, html.getNamespaceURI());
+        assertEquals("en", html.getAttributeNS("http://www.w3.org/XML/1998/namespace", "lang"));
+        assertEquals(SVG_NS, html.getAttributeNS("http://www.w3.org/2000/xmlns/", "svg"));
+
+        Element rect = (Element) compact.getElementsByTagNameNS(SVG_NS, "rect").item(0);
+        assertEquals("svg:rect", rect.getTagName());
+        assertEquals("svg", rect.getPrefix());
+        assertEquals("rect", rect.getLocalName());
+        assertEquals("1", rect.getAttributeNS(SVG_NS, "x"));
+        assertEquals("2", rect.getAttribute("y"));
+        Attr y = rect.getAttributeNode("y");
+        assertNull(y.getNamespaceURI());
+        assertSame(rect, y.getOwnerElement());
+    }
+
+    public void testGetElementById()
+    {
+        String[] ids = { "body", "title", "p1", "a1", "list", "li1", "li2", "li3", "empty" };
+        for (int i = 0; i < ids.length; i++) {
+            Element element = compact.getElementById(ids[i]);
+            assertNotNull(ids[i], element);
+            assertEquals(ids[i], element.getAttribute("id"));
+            assertEquals(jdk.getElementById(ids[i]).getTagName(), element.getTagName());
+        }
+        assertNull(compact.getElementById("missing"));
+        assertTrue(compact.getElementById("p1").getAttributeNode("id").isId());
+    }
+
+    public void testGetTextContent()
+    {
+        assertEquals(jdk.getDocumentElement().getTextContent(), compact.getDocumentElement().getTextContent());
+        String[] ids = { "title", "p1", "list", "li2", "empty" };
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], jdk.getElementById(ids[i]).getTextContent(),
+                    compact.getElementById(ids[i]).getTextContent());
+        }
+        assertEquals("Title\u00a0\u00a9 text", compact.getElementById("title").getTextContent());
+        assertEquals("One link and more <cdata> text.", compact.getElementById("p1").getTextContent());
+    }
+
+    public void testGetElementsByTagName()
+    {
+        String[] names = { "li", "p", "*", "svg:rect", "missing" };
+        for (int i = 0; i < names.length; i++) {
+            assertSameElements(jdk.getElementsByTagName(names[i]), compact.getElementsByTagName(names[i]));
+        }
+        assertSameElements(jdk.getElementsByTagNameNS(XHTML_NS, "li"), compact.getElementsByTagNameNS(XHTML_NS, "li"));
+        assertSameElements(jdk.getElementsByTagNameNS("*", "rect"), compact.getElementsByTagNameNS("*", "rect"));
+
+        Element list = compact.getElementById("list");
+        assertSameElements(jdk.getElementById("list").getElementsByTagName("li"), list.getElementsByTagName("li"));
+        assertEquals(3, list.getElementsByTagName("li").getLength());
+    }
+
+    public void testReadOnly()
+    {
+        Element body = compact.getElementById("body");
+        try {
+            body.setAttribute("class", "x");
+            fail();
+        } catch (DOMException e) {
+            assertEquals(DOMException.NO_MODIFICATION_ALLOWED_ERR, e.code);
+        }
+        try {
+            body.appendChild(compact.getElementById("empty"));
+            fail();
+        } catch (DOMException e) {
+            assertEquals(DOMException.NO_MODIFICATION_ALLOWED_ERR, e.code);
+        }
+    }
+
+    public void testTreeResolverFastPaths()
+    {
+        List compactElements = elements(compact);
+        List jdkElements = elements(jdk);
+        assertEquals(jdkElements.size(), compactElements.size());
+
+        DOMTreeResolver compactResolver = new DOMTreeResolver();
+        DOMTreeResolver jdkResolver = new DOMTreeResolver();
+        for (int i = 0; i < compactElements.size(); i++) {
+            Element c = (Element) compactElements.get(i);
+            Element j = (Element) jdkElements.get(i);
+            assertTrue(c instanceof CompactElement);
+            String name = j.getTagName() + " #" + i;
+
+            assertEquals(name, indexOf(jdkElements, jdkResolver.getParentElement(j)),
+                    indexOf(compactElements, compactResolver.getParentElement(c)));
+            assertEquals(name, indexOf(jdkElements, jdkResolver.getPreviousSiblingElement(j)),
+                    indexOf(compactElements, compactResolver.getPreviousSiblingElement(c)));
+            assertEquals(name, jdkResolver.isFirstChildElement(j), compactResolver.isFirstChildElement(c));
+            assertEquals(name, jdkResolver.isLastChildElement(j), compactResolver.isLastChildElement(c));
+            assertEquals(name, jdkResolver.getPositionOfElement(j), compactResolver.getPositionOfElement(c));
+            assertEquals(name, jdkResolver.getElementName(j), compactResolver.getElementName(c));
+        }
+
+        // the comment and whitespace between the list items don't count
+        Element li2 = compact.getElementById("li2");
+        assertSame(compact.getElementById("li1"), compactResolver.getPreviousSiblingElement(li2));
+        assertEquals(1, compactResolver.getPositionOfElement(li2));
+        assertTrue(compactResolver.isLastChildElement(compact.getElementById("li3")));
+        assertNull(compactResolver.getParentElement(compact.getDocumentElement()));
+    }
+
+    private static void assertSameNode(Node expected, Node actual)
+    {
+        String path = path(expected);
+        assertEquals(path, expected.getNodeType(), actual.getNodeType());
+        assertEquals(path, expected.getNodeName(), actual.getNodeName());
+        assertEquals(path, expected.getNamespaceURI(), actual.getNamespaceURI());
+        assertEquals(path, expected.getLocalName(), actual.getLocalName());
+        assertEquals(path, expected.getPrefix(), actual.getPrefix());
+        assertEquals(path, expected.getNodeValue(), actual.getNodeValue());
+        if (expected.getNodeType() == Node.ELEMENT_NODE) {
+            assertSameAttributes((Element) expected, (Element) actual);
+        }
+
+        Node expectedChild = skipDTDNodes(expected.getFirstChild());
+        Node actualChild = actual.getFirstChild();
+        int index = 0;
+        while (expectedChild != null) {
+            assertNotNull(path + " child " + index, actualChild);
+            assertSame(path, actual, actualChild.getParentNode());
+            assertSame(path, actual.getOwnerDocument() == null ? actual : actual.getOwnerDocument(),
+                    actualChild.getOwnerDocument());
+            assertSame(path, actualChild, actual.getChildNodes().item(index));
+            assertSameNode(expectedChild, actualChild);
+
+            Node next = actualChild.getNextSibling();
+            if (next != null) {
+                assertSame(path, actualChild, next.getPreviousSibling());
+            } else {
+                assertSame(path, actualChild, actual.getLastChild());
+            }
+            expectedChild = skipDTDNodes(expectedChild.getNextSibling());
+            actualChild = next;
+            index++;
+        }
+        assertNull(path, actualChild);
+        assertEquals(path, index, actual.getChildNodes().getLength());
+    }
+
+    private static void assertSameAttributes(Element expected, Element actual)
+    {
+        NamedNodeMap expectedAttributes = expected.getAttributes();
+        NamedNodeMap actualAttributes = actual.getAttributes();
+        assertEquals(expected.getTagName(), expectedAttributes.getLength(), actualAttributes.getLength());
+        for (int i = 0; i < expectedAttributes.getLength(); i++) {
+            Attr e = (Attr) expectedAttributes.item(i);
+            Attr a = (Attr) actualAttributes.item(i);
+            String name = expected.getTagName() + "@" + e.getName();
+            assertEquals(name, e.getName(), a.getName());
+            assertEquals(name, e.getNamespaceURI(), a.getNamespaceURI());
+            assertEquals(name, e.getLocalName(), a.getLocalName());
+            assertEquals(name, e.getValue(), a.getValue());
+            assertEquals(name, e.getValue(), actual.getAttribute(e.getName()));
+        }
+    }
+
+    private static void assertSameElements(NodeList expected, NodeList actual)
+    {
+        assertEquals(expected.getLength(), actual.getLength());
+        for (int i = 0; i < expected.getLength(); i++) {
+            assertEquals(((Element) expected.item(i)).getTagName(), ((Element) actual.item(i)).getTagName());
+            assertEquals(((Element) expected.item(i)).getAttribute("id"), ((Element) actual.item(i)).getAttribute("id"));
+        }
+    }
+
+    /**
+     * The identity transformation adds a document type node, and the comments of the DTD as children of the
+     * document. The compact document has neither. (The test document has no comments outside the root element.)
+     */
+    private static Node skipDTDNodes(Node node)
+    {
+        Node result = node;
+        while (result != null && (result.getNodeType() == Node.DOCUMENT_TYPE_NODE ||
+                (result.getNodeType() == Node.COMMENT_NODE &&
+                        result.getParentNode().getNodeType() == Node.DOCUMENT_NODE))) {
+            result = result.getNextSibling();
+        }
+        return result;
+    }
+
+    private static String path(Node node)
+    {
+        StringBuffer result = new StringBuffer();
+        for (Node n = node; n != null; n = n.getParentNode()) {
+            result.insert(0, "/" + n.getNodeName());
+        }
+        return result.toString();
+    }
+
+    private static List elements(Document document)
+    {
+        List result = new ArrayList();
+        NodeList all = document.getElementsByTagName("*");
+        for (int i = 0; i < all.getLength(); i++) {
+            result.add(all.item(i));
+        }
+        return result;
+    }
+
+    private static int indexOf(List elements, Object element)
+    {
+        return element == null ? -1 : elements.indexOf(element);
+    }
+}
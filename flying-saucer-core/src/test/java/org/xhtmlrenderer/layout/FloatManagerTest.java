@@ -0,0 +1,155 @@
+package org.xhtmlrenderer.layout;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import org.xhtmlrenderer.css.style.CssContext;
+import org.xhtmlrenderer.render.BlockBox;
+
+/**
+ * Checks that the indexed lookups of {@link FloatManager.FloatList} find the same floats as a linear scan over
+ * every float, which is how they were found before the list was indexed.
+ */
+public class FloatManagerTest
+        extends TestCase
+{
+    private final Map _edges = new IdentityHashMap();
+    private final List _added = new ArrayList();
+    private final Random _random = new Random(42);
+
+    private final FloatManager.FloatList _floats = new FloatManager.FloatList()
+    {
+        Rectangle getMarginEdge(CssContext cssCtx, FloatManager.BoxOffset floater)
+        {
+            return new Rectangle((Rectangle) _edges.get(floater));
+        }
+    };
+
+    private BlockBox add(int x, int y, int width, int height)
+    {
+        BlockBox box = new BlockBox();
+        FloatManager.BoxOffset offset = new FloatManager.BoxOffset(box, 0, 0);
+        _edges.put(offset, new Rectangle(x, y, width, height));
+        _floats.add(offset);
+        _added.add(offset);
+        return box;
+    }
+
+    private void remove(BlockBox box)
+    {
+        assertTrue(_floats.remove(box));
+        for (int i = _added.size() - 1; i >= 0; i--) {
+            if (((FloatManager.BoxOffset) _added.get(i)).getBox() == box) {
+                _added.remove(i);
+            }
+        }
+    }
+
+    private int lowestBottom()
+    {
+        int result = 0;
+        for (int i = 0; i < _added.size(); i++) {
+            Rectangle edge = (Rectangle) _edges.get(_added.get(i));
+            result = Math.max(result, edge.y + edge.height);
+        }
+        return result;
+    }
+
+    /**
+     * Adds floats the way CSS 2.1 places them: each starts no higher than the one before, mostly overlapping it
+     * vertically, and every few floats one clears all earlier floats.
+     */
+    private void addFloats(int count)
+    {
+        int top = _added.isEmpty() ? 0 : ((Rectangle) _edges.get(_added.get(_added.size() - 1))).y;
+        for (int i = 0; i < count; i++) {
+            if (_random.nextInt(5) == 0) {
+                top = lowestBottom() + _random.nextInt(3);
+            } else {
+                top += _random.nextInt(20);
+            }
+            add(_random.nextInt(300), top, _random.nextInt(100), _random.nextInt(80));
+        }
+    }
+
+    private void assertSameAsLinearScan()
+    {
+        for (int q = 0; q < 200; q++) {
+            Rectangle query = new Rectangle(_random.nextInt(400) - 50, _random.nextInt(lowestBottom() + 100) - 50,
+                    _random.nextInt(200), _random.nextInt(60));
+
+            List expected = new ArrayList();
+            for (int i = _added.size() - 1; i >= 0; i--) {
+                if (((Rectangle) _edges.get(_added.get(i))).intersects(query)) {
+                    expected.add(new Integer(i));
+                }
+            }
+
+            List actual = new ArrayList();
+            for (int i = _floats.findIntersecting(null, query, _floats.size()); i != -1;
+                    i = _floats.findIntersecting(null, query, i)) {
+                actual.add(new Integer(i));
+                assertSame(_added.get(i), _floats.get(i));
+            }
+
+            assertEquals(query.toString(), expected, actual);
+        }
+        assertEquals(lowestBottom(), Math.max(0, _floats.getLowestY(null)));
+    }
+
+    public void testOverlappingAndClearedFloats()
+    {
+        addFloats(300);
+        assertSameAsLinearScan();
+    }
+
+    public void testFloatsAddedBetweenQueries()
+    {
+        for (int i = 0; i < 20; i++) {
+            addFloats(10);
+            assertSameAsLinearScan();
+        }
+    }
+
+    public void testRemovedFloats()
+    {
+        addFloats(100);
+        assertSameAsLinearScan();
+        for (int i = 0; i < 10; i++) {
+            FloatManager.BoxOffset offset = (FloatManager.BoxOffset) _added.get(_random.nextInt(_added.size()));
+            remove(offset.getBox());
+            assertSameAsLinearScan();
+        }
+        addFloats(50);
+        assertSameAsLinearScan();
+    }
+
+    public void testTallFloatReachesPastLaterFloats()
+    {
+        add(0, 0, 50, 1000);
+        for (int i = 0; i < 20; i++) {
+            add(100, 10 * i, 50, 5);
+        }
+        assertEquals(0, _floats.findIntersecting(null, new Rectangle(0, 900, 10, 10), _floats.size()));
+        assertSameAsLinearScan();
+    }
+
+    public void testUnsortedFloats()
+    {
+        addFloats(50);
+        add(0, 0, 400, 10);
+        addFloats(50);
+        assertSameAsLinearScan();
+    }
+
+    public void testEmpty()
+    {
+        assertEquals(-1, _floats.findIntersecting(null, new Rectangle(0, 0, 10, 10), 0));
+        assertEquals(0, Math.max(0, _floats.getLowestY(null)));
+    }
+}
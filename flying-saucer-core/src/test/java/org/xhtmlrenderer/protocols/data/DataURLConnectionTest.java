@@ -0,0 +1,31 @@
+package org.xhtmlrenderer.protocols.data;
+
+import java.io.IOException;
+import java.net.URL;
+
+import junit.framework.TestCase;
+import org.xhtmlrenderer.util.IOUtil;
+
+public class DataURLConnectionTest
+        extends TestCase
+{
+    private static byte[] read(String uri) throws IOException
+    {
+        return IOUtil.readBytes(new URL(null, uri, new Handler()).openStream());
+    }
+
+    public void testBase64() throws IOException
+    {
+        assertEquals("hello", new String(read("data:text/plain;base64,aGVsbG8="), "US-ASCII"));
+    }
+
+    public void testInvalidBase64IsAnIOException() throws IOException
+    {
+        try {
+            read("data:text/plain;base64,aGVs*G8=");
+            fail("Invalid base64 was decoded");
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.xhtmlrenderer.resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+public class DiskResourceCacheTest
+        extends TestCase
+{
+    private File directory;
+
+    protected void setUp() throws IOException
+    {
+        directory = createTempDirectory();
+    }
+
+    protected void tearDown()
+    {
+        delete(directory);
+    }
+
+    static File createTempDirectory() throws IOException
+    {
+        File result = File.createTempFile("cache", "");
+        assertTrue(result.delete() && result.mkdir());
+        return result;
+    }
+
+    static void delete(File file)
+    {
+        File[] children = file.listFiles();
+        for (int i = 0; children != null && i < children.length; i++) {
+            delete(children[i]);
+        }
+        file.delete();
+    }
+
+    private static String content(DiskResourceCache.Entry entry)
+    {
+        ByteBuffer content = entry.getContent().duplicate();
+        byte[] b = new byte[content.remaining()];
+        content.get(b);
+        return new String(b);
+    }
+
+    public void testRoundTrip() throws IOException
+    {
+        Properties attributes = new Properties();
+        attributes.setProperty("etag", "\"v1\"");
+        new DiskResourceCache(directory, 1024).put("http://example.com/a", attributes, ByteBuffer.wrap("a".getBytes()));
+
+        DiskResourceCache.Entry entry = new DiskResourceCache(directory, 1024).get("http://example.com/a");
+        assertNotNull(entry);
+        assertEquals("a", content(entry));
+        assertEquals("\"v1\"", entry.getAttributes().getProperty("etag"));
+        assertNull(new DiskResourceCache(directory, 1024).get("http://example.com/b"));
+    }
+
+    public void testLargeContentIsMapped() throws IOException
+    {
+        byte[] large = new byte[100 * 1024];
+        large[large.length - 1] = 42;
+        DiskResourceCache cache = new DiskResourceCache(directory, 1024 * 1024);
+        cache.put("large", new Properties(), ByteBuffer.wrap(large));
+
+        ByteBuffer content = cache.get("large").getContent();
+        assertTrue(content.isDirect());
+        assertEquals(large.length, content.remaining());
+        assertEquals(42, content.get(large.length - 1));
+    }
+
+    public void testContentIsStoredOnce() throws IOException
+    {
+        DiskResourceCache cache = new DiskResourceCache(directory, 1024);
+        cache.put("http://example.com/a", new Properties(), ByteBuffer.wrap("same".getBytes()));
+        cache.put("http://example.com/b", new Properties(), ByteBuffer.wrap("same".getBytes()));
+
+        assertEquals("same", content(cache.get("http://example.com/a")));
+        assertEquals("same", content(cache.get("http://example.com/b")));
+        assertEquals(1, new File(directory, "content").listFiles().length);
+    }
+
+    public void testLeastRecentlyUsedContentIsEvicted() throws IOException
+    {
+        DiskResourceCache cache = new DiskResourceCache(directory, 100);
+        cache.put("first", new Properties(), ByteBuffer.wrap(new byte[60]));
+        new File(directory, "content").listFiles()[0].setLastModified(System.currentTimeMillis() - 60000);
+        cache.put("second", new Properties(), ByteBuffer.wrap(new byte[61]));
+
+        assertNull(cache.get("first"));
+        assertNotNull(cache.get("second"));
+    }
+
+    public void testTouchMarksContentAsUsed() throws IOException
+    {
+        DiskResourceCache cache = new DiskResourceCache(directory, 1024);
+        DiskResourceCache.Entry entry = cache.put("http://example.com/a", new Properties(),
+                ByteBuffer.wrap("a".getBytes()));
+        File content = new File(directory, "content").listFiles()[0];
+        assertTrue(content.setLastModified(System.currentTimeMillis() - 3600 * 1000));
+        cache.touch(entry);
+        assertTrue(content.lastModified() > System.currentTimeMillis() - 60 * 1000);
+    }
+}
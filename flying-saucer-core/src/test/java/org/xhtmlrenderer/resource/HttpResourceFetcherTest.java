@@ -0,0 +1,319 @@
+package org.xhtmlrenderer.resource;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+import org.xhtmlrenderer.util.IOUtil;
+
+public class HttpResourceFetcherTest
+        extends TestCase
+{
+    private HttpServer server;
+    private String base;
+    private final Map requests = new HashMap();
+
+    protected void setUp() throws Exception
+    {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler()
+        {
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                String path = exchange.getRequestURI().getPath();
+                count(path);
+                if (path.equals("/fresh")) {
+                    exchange.getResponseHeaders().add("Cache-Control", "max-age=3600");
+                    send(exchange, 200, "fresh");
+                } else if (path.equals("/etag")) {
+                    exchange.getResponseHeaders().add("ETag", "\"v1\"");
+                    if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                        count("/etag 304");
+                        exchange.sendResponseHeaders(304, -1);
+                        exchange.close();
+                    } else {
+                        send(exchange, 200, "etag");
+                    }
+                } else if (path.equals("/no-store")) {
+                    exchange.getResponseHeaders().add("Cache-Control", "no-store, max-age=3600");
+                    send(exchange, 200, "no-store");
+                } else if (path.equals("/private")) {
+                    exchange.getResponseHeaders().add("Cache-Control", "private, max-age=3600");
+                    send(exchange, 200, "private");
+                } else if (path.equals("/vary")) {
+                    exchange.getResponseHeaders().add("Cache-Control", "max-age=3600");
+                    exchange.getResponseHeaders().add("Vary", "Accept-Language");
+                    send(exchange, 200, "vary " + exchange.getRequestHeaders().getFirst("Accept-Language"));
+                } else if (path.equals("/vary-all")) {
+                    exchange.getResponseHeaders().add("Cache-Control", "max-age=3600");
+                    exchange.getResponseHeaders().add("Vary", "*");
+                    send(exchange, 200, "vary-all");
+                } else if (path.equals("/large")) {
+                    exchange.getResponseHeaders().add("Cache-Control", "max-age=3600");
+                    StringBuffer body = new StringBuffer();
+                    while (body.length() < 100 * 1024) {
+                        body.append("large ");
+                    }
+                    send(exchange, 200, body.toString());
+                } else if (path.equals("/redirect")) {
+                    exchange.getResponseHeaders().add("Location", "/fresh");
+                    send(exchange, 302, "");
+                } else {
+                    send(exchange, 404, "not found");
+                }
+            }
+        });
+        server.start();
+        base = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    protected void tearDown()
+    {
+        server.stop(0);
+    }
+
+    private synchronized void count(String key)
+    {
+        Integer count = (Integer) requests.get(key);
+        requests.put(key, new Integer(count == null ? 1 : count.intValue() + 1));
+    }
+
+    private synchronized int requests(String key)
+    {
+        Integer count = (Integer) requests.get(key);
+        return count == null ? 0 : count.intValue();
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException
+    {
+        byte[] bytes = body.getBytes("UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    private static String read(ResourceFetcher fetcher, String uri) throws IOException
+    {
+        InputStream is = fetcher.open(uri);
+        return new String(IOUtil.readBytes(is), "UTF-8");
+    }
+
+    public void testFreshResponseIsServedFromCache() throws IOException
+    {
+        HttpResourceFetcher fetcher = new HttpResourceFetcher();
+        assertEquals("fresh", read(fetcher, base + "/fresh"));
+        assertEquals("fresh", read(fetcher, base + "/fresh"));
+        assertEquals(1, requests("/fresh"));
+    }
+
+    public void testResponseWithETagIsRevalidated() throws IOException
+    {
+        HttpResourceFetcher fetcher = new HttpResourceFetcher();
+        assertEquals("etag", read(fetcher, base + "/etag"));
+        assertEquals("etag", read(fetcher, base + "/etag"));
+        assertEquals(2, requests("/etag"));
+        assertEquals(1, requests("/etag 304"));
+    }
+
+    public void testNoStoreResponseIsNotCached() throws IOException
+    {
+        HttpResourceFetcher fetcher = new HttpResourceFetcher();
+        assertEquals("no-store", read(fetcher, base + "/no-store"));
+        assertEquals("no-store", read(fetcher, base + "/no-store"));
+        assertEquals(2, requests("/no-store"));
+    }
+
+    public void testPrivateResponseIsNotCached() throws IOException
+    {
+        HttpResourceFetcher fetcher = new HttpResourceFetcher();
+        assertEquals("private", read(fetcher, base + "/private"));
+        assertEquals("private", read(fetcher, base + "/private"));
+        assertEquals(2, requests("/private"));
+    }
+
+    public void testResponseToRequestWithCredentialsIsNotCached() throws IOException
+    {
+        HttpResourceFetcher fetcher = new HttpResourceFetcher()
+        {
+            protected void configure(HttpURLConnection connection)
+            {
+                connection.setRequestProperty("Authorization", "Basic dXNlcjpwYXNz");
+            }
+
+            protected boolean sendsCredentials(HttpURLConnection connection, Map requestHeaders)
+            {
+                return true;
+            }
+        };
+        assertEquals("fresh", read(fetcher, base + "/fresh"));
+        assertEquals("fresh", read(fetcher, base + "/fresh"));
+        assertEquals(2, requests("/fresh"));
+
+        fetcher = new HttpResourceFetcher()
+        {
+            protected void configure(HttpURLConnection connection)
+            {
+                connection.setRequestProperty("Cookie", "session=1");
+            }
+        };
+        assertEquals("fresh", read(fetcher, base + "/fresh"));
+        assertEquals("fresh", read(fetcher, base + "/fresh"));
+        assertEquals(4, requests("/fresh"));
+    }
+
+    public void testVaryingResponseIsOnlyUsedForSameHeaders() throws IOException
+    {
+        final String[] language = {"en"};
+        HttpResourceFetcher fetcher = new HttpResourceFetcher()
+        {
+            protected void configure(HttpURLConnection connection)
+            {
+                connection.setRequestProperty("Accept-Language", language[0]);
+            }
+        };
+        assertEquals("vary en", read(fetcher, base + "/vary"));
+        assertEquals("vary en", read(fetcher, base + "/vary"));
+        assertEquals(1, requests("/vary"));
+        language[0] = "de";
+        assertEquals("vary de", read(fetcher, base + "/vary"));
+        assertEquals(2, requests("/vary"));
+    }
+
+    public void testResponseVaryingOnEverythingIsNotCached() throws IOException
+    {
+        HttpResourceFetcher fetcher = new HttpResourceFetcher();
+        assertEquals("vary-all", read(fetcher, base + "/vary-all"));
+        assertEquals("vary-all", read(fetcher, base + "/vary-all"));
+        assertEquals(2, requests("/vary-all"));
+    }
+
+    public void testRedirectIsFollowed() throws IOException
+    {
+        HttpResourceFetcher fetcher = new HttpResourceFetcher();
+        assertEquals("fresh", read(fetcher, base + "/redirect"));
+        assertEquals("fresh", read(fetcher, base + "/fresh"));
+        assertEquals(1, requests("/fresh"));
+    }
+
+    public void testMissingResource() throws IOException
+    {
+        HttpResourceFetcher fetcher = new HttpResourceFetcher();
+        try {
+            fetcher.open(base + "/missing");
+            fail("Expected FileNotFoundException");
+        } catch (FileNotFoundException e) {
+            // expected
+        }
+    }
+
+    public void testMemoryCacheSizeIsRespected() throws IOException
+    {
+        HttpResourceFetcher fetcher = new HttpResourceFetcher();
+        fetcher.setMemoryCacheSize(2);
+        assertEquals("fresh", read(fetcher, base + "/fresh"));
+        assertEquals("fresh", read(fetcher, base + "/fresh"));
+        assertEquals(2, requests("/fresh"));
+    }
+
+    public void testDiskCacheIsSharedBetweenFetchers() throws IOException
+    {
+        File directory = DiskResourceCacheTest.createTempDirectory();
+        try {
+            HttpResourceFetcher fetcher = new HttpResourceFetcher();
+            fetcher.setDiskCache(new DiskResourceCache(directory, 1024 * 1024));
+            assertEquals("fresh", read(fetcher, base + "/fresh"));
+
+            HttpResourceFetcher other = new HttpResourceFetcher();
+            other.setDiskCache(new DiskResourceCache(directory, 1024 * 1024));
+            assertEquals("fresh", read(other, base + "/fresh"));
+            assertEquals(1, requests("/fresh"));
+        } finally {
+            DiskResourceCacheTest.delete(directory);
+        }
+    }
+
+    public void testVaryIsKeptOnDisk() throws IOException
+    {
+        File directory = DiskResourceCacheTest.createTempDirectory();
+        try {
+            HttpResourceFetcher fetcher = new HttpResourceFetcher();
+            fetcher.setDiskCache(new DiskResourceCache(directory, 1024 * 1024));
+            assertEquals("vary null", read(fetcher, base + "/vary"));
+
+            HttpResourceFetcher other = new HttpResourceFetcher();
+            other.setDiskCache(new DiskResourceCache(directory, 1024 * 1024));
+            assertEquals("vary null", read(other, base + "/vary"));
+            assertEquals(1, requests("/vary"));
+
+            HttpResourceFetcher english = new HttpResourceFetcher()
+            {
+                protected void configure(HttpURLConnection connection)
+                {
+                    connection.setRequestProperty("Accept-Language", "en");
+                }
+            };
+            english.setDiskCache(new DiskResourceCache(directory, 1024 * 1024));
+            assertEquals("vary en", read(english, base + "/vary"));
+            assertEquals(2, requests("/vary"));
+        } finally {
+            DiskResourceCacheTest.delete(directory);
+        }
+    }
+
+    public void testMemoryCacheHitMarksDiskEntryAsUsed() throws IOException
+    {
+        File directory = DiskResourceCacheTest.createTempDirectory();
+        try {
+            HttpResourceFetcher fetcher = new HttpResourceFetcher();
+            fetcher.setDiskCache(new DiskResourceCache(directory, 1024 * 1024));
+            assertEquals("fresh", read(fetcher, base + "/fresh"));
+            File content = new File(directory, "content").listFiles()[0];
+            assertTrue(content.setLastModified(System.currentTimeMillis() - 3600 * 1000));
+
+            assertEquals("fresh", read(fetcher, base + "/fresh"));
+            assertEquals(1, requests("/fresh"));
+            assertTrue(content.lastModified() > System.currentTimeMillis() - 60 * 1000);
+        } finally {
+            DiskResourceCacheTest.delete(directory);
+        }
+    }
+
+    public void testMappedResponseIsNotCountedInMemory() throws IOException
+    {
+        File directory = DiskResourceCacheTest.createTempDirectory();
+        try {
+            HttpResourceFetcher fetcher = new HttpResourceFetcher();
+            fetcher.setDiskCache(new DiskResourceCache(directory, 1024 * 1024));
+            String large = read(fetcher, base + "/large");
+
+            HttpResourceFetcher other = new HttpResourceFetcher();
+            other.setMemoryCacheSize(16);
+            other.setDiskCache(new DiskResourceCache(directory, 1024 * 1024));
+            assertEquals("fresh", read(other, base + "/fresh"));
+            assertEquals(large, read(other, base + "/large"));
+            assertEquals(1, requests("/large"));
+
+            // both kept in memory, although the mapped one is larger than the memory cache
+            DiskResourceCacheTest.delete(new File(directory, "index"));
+            assertEquals(large, read(other, base + "/large"));
+            assertEquals("fresh", read(other, base + "/fresh"));
+            assertEquals(1, requests("/large"));
+            assertEquals(1, requests("/fresh"));
+
+            other.clearCache();
+            assertEquals(large, read(other, base + "/large"));
+            assertEquals(2, requests("/large"));
+        } finally {
+            DiskResourceCacheTest.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.xhtmlrenderer.resource;
+
+import java.io.StringReader;
+
+import javax.xml.transform.sax.SAXSource;
+
+import junit.framework.TestCase;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+/**
+ * Checks that documents built directly from SAX events are the same as those the identity transformer builds.
+ */
+public class XMLResourceTest
+        extends TestCase
+{
+    private static final String INTERNAL_SUBSET =
+            "<?xml version='1.0' encoding='UTF-8'?>\n" +
+            "<?xml-stylesheet type='text/css' href='style.css'?>\n" +
+            "<!DOCTYPE html [\n" +
+            "  <!ENTITY greeting 'Hello, <b>world</b>'>\n" +
+            "  <!ENTITY copy '&#169;'>\n" +
+            "  <!ATTLIST p key ID #IMPLIED>\n" +
+            "  <!ATTLIST p align CDATA 'left'>\n" +
+            "]>\n" +
+            "<html xmlns='http://www.w3.org/1999/xhtml' xmlns:svg='http://www.w3.org/2000/svg'>\n" +
+            "<!-- a comment -->\n" +
+            "<body>\n" +
+            "  <p key='first'>&greeting; &copy; 2010 &amp; &lt;more&gt; &#x263A;</p>\n" +
+            "  <p key='second' align='right'>before<![CDATA[ <cdata> & ]]>after</p>\n" +
+            "  <?page break?>\n" +
+            "  <svg:svg width='10'><svg:rect xml:space='preserve' svg:x='1'/></svg:svg>\n" +
+            "  <div xmlns='urn:other' lang='en'>other <span/></div>\n" +
+            "</body>\n" +
+            "</html>\n" +
+            "<?after root?>\n";
+
+    private static final String XHTML =
+            "<!DOCTYPE html PUBLIC '-//W3C//DTD XHTML 1.0 Strict//EN' " +
+            "'http://www.w3.org/TR/xhtml1/DTD/xhtml1-strict.dtd'>\n" +
+            "<html xmlns='http://www.w3.org/1999/xhtml'><head><title>T&eacute;st</title></head>\n" +
+            "<body><p id='p1'>&nbsp;&mdash; <a href='#p1' id='a1'>link</a></p></body></html>";
+
+    private static Document buildWithSAX(String document)
+    {
+        return XMLResource.load(new InputSource(new StringReader(document))).getDocument();
+    }
+
+    private static Document buildWithTrAX(String document) throws Exception
+    {
+        XMLReader xmlReader = XMLResource.newXMLReader();
+        xmlReader.setEntityResolver(FSEntityResolver.instance());
+        xmlReader.setFeature("http://xml.org/sax/features/validation", false);
+        xmlReader.setFeature("http://xml.org/sax/features/namespaces", true);
+        xmlReader.setFeature("http://xml.org/sax/features/use-entity-resolver2", true);
+        return XMLResource.load(new SAXSource(xmlReader, new InputSource(new StringReader(document)))).getDocument();
+    }
+
+    public void testInternalSubset() throws Exception
+    {
+        assertSameNode("", buildWithTrAX(INTERNAL_SUBSET), buildWithSAX(INTERNAL_SUBSET));
+    }
+
+    public void testExternalDTD() throws Exception
+    {
+        assertSameNode("", buildWithTrAX(XHTML), buildWithSAX(XHTML));
+    }
+
+    public void testIdAttributes()
+    {
+        Document document = buildWithSAX(INTERNAL_SUBSET);
+        assertEquals("p", document.getElementById("second").getLocalName());
+        assertEquals("p", buildWithSAX(XHTML).getElementById("p1").getLocalName());
+        assertEquals("a", buildWithSAX(XHTML).getElementById("a1").getLocalName());
+    }
+
+    private static void assertSameNode(String path, Node expected, Node actual)
+    {
+        path = path + "/" + expected.getNodeName();
+        assertEquals(path, expected.getNodeType(), actual.getNodeType());
+        assertEquals(path, expected.getNodeName(), actual.getNodeName());
+        assertEquals(path, expected.getNamespaceURI(), actual.getNamespaceURI());
+        assertEquals(path, expected.getLocalName(), actual.getLocalName());
+        assertEquals(path, expected.getPrefix(), actual.getPrefix());
+        assertEquals(path, expected.getNodeValue(), actual.getNodeValue());
+
+        NamedNodeMap expectedAttributes = expected.getAttributes();
+        NamedNodeMap actualAttributes = actual.getAttributes();
+        if (expectedAttributes != null) {
+            assertEquals(path, expectedAttributes.getLength(), actualAttributes.getLength());
+            for (int i = 0; i < expectedAttributes.getLength(); i++) {
+                Attr attribute = (Attr) expectedAttributes.item(i);
+                Attr other = (Attr) actualAttributes.getNamedItem(attribute.getName());
+                String attributePath = path + "/@" + attribute.getName();
+                assertNotNull(attributePath, other);
+                assertEquals(attributePath, attribute.getValue(), other.getValue());
+                assertEquals(attributePath, attribute.getNamespaceURI(), other.getNamespaceURI());
+                assertEquals(attributePath, attribute.getLocalName(), other.getLocalName());
+                assertEquals(attributePath, attribute.isId(), other.isId());
+            }
+        }
+
+        Node expectedChild = nextChild(expected, expected.getFirstChild());
+        Node actualChild = nextChild(actual, actual.getFirstChild());
+        while (expectedChild != null && actualChild != null) {
+            assertSameNode(path, expectedChild, actualChild);
+            expectedChild = nextChild(expected, expectedChild.getNextSibling());
+            actualChild = nextChild(actual, actualChild.getNextSibling());
+        }
+        assertNull(path + " has an extra child", expectedChild);
+        assertNull(path + " is missing a child", actualChild);
+    }
+
+    /**
+     * Skips the document type and, as the SAX builder leaves out the comments inside the DTD, comments outside
+     * of the root element.
+     */
+    private static Node nextChild(Node parent, Node child)
+    {
+        while (child != null && parent.getNodeType() == Node.DOCUMENT_NODE &&
+                (child.getNodeType() == Node.DOCUMENT_TYPE_NODE || child.getNodeType() == Node.COMMENT_NODE)) {
+            child = child.getNextSibling();
+        }
+        return child;
+    }
+}
@@ -0,0 +1,94 @@
+package org.xhtmlrenderer.simple;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.imageio.ImageIO;
+
+import junit.framework.TestCase;
+import org.xhtmlrenderer.util.FSImageWriter;
+
+public class ImageRendererTest
+        extends TestCase
+{
+    private static final int RED = 0xffff0000;
+    private static final int BLUE = 0xff0000ff;
+
+    private static final String DOCUMENT =
+            "<html xmlns='http://www.w3.org/1999/xhtml'><head><style>" +
+            "body { margin: 0; } div { height: 100px; }" +
+            "</style></head><body>" +
+            "<div style='background-color: red'></div>" +
+            "<div style='background-color: lime'></div>" +
+            "<div style='background-color: blue'></div>" +
+            "</body></html>";
+
+    private File _dir;
+    private String _url;
+
+    protected void setUp() throws IOException
+    {
+        _dir = File.createTempFile("thumbnails", "");
+        _dir.delete();
+        _dir.mkdir();
+        File document = new File(_dir, "document.xhtml");
+        OutputStream out = new FileOutputStream(document);
+        try {
+            out.write(DOCUMENT.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        _url = document.toURI().toURL().toExternalForm();
+    }
+
+    protected void tearDown()
+    {
+        File[] files = _dir.listFiles();
+        for (int i = 0; i < files.length; i++) {
+            files[i].delete();
+        }
+        _dir.delete();
+    }
+
+    public void testRenderThumbnailsToOutput() throws IOException
+    {
+        String[] paths = {
+                new File(_dir, "large.png").getPath(),
+                new File(_dir, "small.png").getPath()
+        };
+        BufferedImage[] images = ImageRenderer.renderThumbnailsToOutput(
+                _url, new FSImageWriter(), paths, 200, new int[] {100, 50});
+
+        assertEquals(2, images.length);
+        assertEquals(100, images[0].getWidth());
+        assertEquals(150, images[0].getHeight());
+        assertEquals(50, images[1].getWidth());
+        assertEquals(75, images[1].getHeight());
+
+        for (int i = 0; i < paths.length; i++) {
+            File file = new File(paths[i]);
+            assertTrue(paths[i], file.isFile());
+            BufferedImage written = ImageIO.read(file);
+            assertEquals(paths[i], images[i].getWidth(), written.getWidth());
+            assertEquals(paths[i], images[i].getHeight(), written.getHeight());
+            assertEquals(paths[i], RED, written.getRGB(written.getWidth() / 2, written.getHeight() / 6));
+            assertEquals(paths[i], BLUE, written.getRGB(written.getWidth() / 2, written.getHeight() * 5 / 6));
+        }
+    }
+
+    public void testPathPerWidth() throws IOException
+    {
+        try {
+            ImageRenderer.renderThumbnailsToOutput(
+                    _url, new FSImageWriter(), new String[] {new File(_dir, "a.png").getPath()}, 200,
+                    new int[] {100, 50});
+            fail("rendered two thumbnails to one path");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertFalse(new File(_dir, "a.png").exists());
+    }
+}
@@ -0,0 +1,163 @@
+package org.xhtmlrenderer.swing;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.w3c.dom.Document;
+import org.xhtmlrenderer.render.Box;
+import org.xhtmlrenderer.resource.XMLResource;
+import org.xhtmlrenderer.simple.XHTMLPanel;
+import org.xml.sax.InputSource;
+
+public class HoverListenerTest
+        extends TestCase
+{
+    private static final String DOCUMENT =
+            "<html xmlns='http://www.w3.org/1999/xhtml'><head><style>" +
+            "#color:hover { color: red; }" +
+            "#padding:hover { padding: 10px; }" +
+            "#display:hover { display: inline; }" +
+            "#same:hover { color: black; }" +
+            "</style></head><body style='color: black'>" +
+            "<div id='color'>color</div>" +
+            "<div id='padding'>padding</div>" +
+            "<div id='display'>display</div>" +
+            "<div id='same'>same</div>" +
+            "</body></html>";
+
+    private RecordingPanel panel;
+    private HoverListener listener;
+
+    private static class RecordingPanel
+            extends XHTMLPanel
+    {
+        // null while the superclass constructors run
+        private final List calls = new ArrayList();
+
+        private void record(String call)
+        {
+            if (calls != null) {
+                calls.add(call);
+            }
+        }
+
+        public void repaint()
+        {
+            record("repaint");
+        }
+
+        public void repaint(Rectangle r)
+        {
+            record("repaint");
+        }
+
+        public void relayout()
+        {
+            record("relayout");
+            super.relayout();
+        }
+
+        protected void rebuild()
+        {
+            record("rebuild");
+            super.rebuild();
+        }
+
+        /**
+         * Returns what the panel was asked to do since the last call, as a first call to relayout() or rebuild()
+         * also repaints.
+         */
+        private String takeCall()
+        {
+            String result = calls.isEmpty() ? "nothing" : (String) calls.get(0);
+            calls.clear();
+            return result;
+        }
+    }
+
+    protected void setUp()
+    {
+        Document doc = XMLResource.load(new InputSource(new StringReader(DOCUMENT))).getDocument();
+        panel = new RecordingPanel();
+        panel.setSize(400, 400);
+        panel.setDocument(doc, null);
+        layout();
+        listener = new HoverListener();
+    }
+
+    private void layout()
+    {
+        Graphics2D g = new BufferedImage(400, 400, BufferedImage.TYPE_INT_RGB).createGraphics();
+        try {
+            panel.doDocumentLayout(g);
+        } finally {
+            g.dispose();
+        }
+        panel.takeCall();
+    }
+
+    private Box findBox(String id)
+    {
+        return findBox(panel.getRootBox(), id);
+    }
+
+    private static Box findBox(Box box, String id)
+    {
+        if (box.getElement() != null && id.equals(box.getElement().getAttribute("id"))) {
+            return box;
+        }
+        for (int i = 0; i < box.getChildCount(); i++) {
+            Box result = findBox(box.getChild(i), id);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    public void testPaintPropertyOnlyRepaints()
+    {
+        listener.onMouseOver(panel, findBox("color"));
+        assertEquals("repaint", panel.takeCall());
+        listener.onMouseOver(panel, null);
+        assertEquals("repaint", panel.takeCall());
+    }
+
+    public void testLayoutPropertyRelayouts()
+    {
+        listener.onMouseOver(panel, findBox("padding"));
+        assertEquals("relayout", panel.takeCall());
+        layout();
+        listener.onMouseOver(panel, null);
+        assertEquals("relayout", panel.takeCall());
+    }
+
+    public void testBoxPropertyRebuilds()
+    {
+        listener.onMouseOver(panel, findBox("display"));
+        assertEquals("rebuild", panel.takeCall());
+        assertNull(panel.getRootBox());
+        layout();
+        listener.onMouseOver(panel, null);
+        assertEquals("rebuild", panel.takeCall());
+    }
+
+    public void testUnchangedStyleDoesNothing()
+    {
+        listener.onMouseOver(panel, findBox("same"));
+        assertEquals("nothing", panel.takeCall());
+    }
+
+    public void testMostExpensiveChangeWins()
+    {
+        listener.onMouseOver(panel, findBox("padding"));
+        layout();
+        listener.onMouseOver(panel, findBox("color"));
+        assertEquals("relayout", panel.takeCall());
+    }
+}
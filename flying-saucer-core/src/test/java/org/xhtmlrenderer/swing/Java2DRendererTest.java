@@ -0,0 +1,152 @@
+package org.xhtmlrenderer.swing;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.w3c.dom.Document;
+import org.xhtmlrenderer.resource.XMLResource;
+import org.xhtmlrenderer.util.FSImageWriter;
+import org.xml.sax.InputSource;
+
+public class Java2DRendererTest
+        extends TestCase
+{
+    private static final int RED = 0xffff0000;
+    private static final int GREEN = 0xff00ff00;
+    private static final int BLUE = 0xff0000ff;
+
+    private static final String DOCUMENT =
+            "<html xmlns='http://www.w3.org/1999/xhtml'><head><style>" +
+            "@page { size: 200px 100px; margin: 0; }" +
+            "body { margin: 0; }" +
+            "div { height: 100px; page-break-after: always; }" +
+            "</style></head><body>" +
+            "<div style='background-color: red'></div>" +
+            "<div style='background-color: lime'></div>" +
+            "<div style='background-color: blue; page-break-after: auto'></div>" +
+            "</body></html>";
+
+    private static Document parse(String document)
+    {
+        return XMLResource.load(new InputSource(new StringReader(document))).getDocument();
+    }
+
+    private static Java2DRenderer createPagedRenderer()
+    {
+        Java2DRenderer renderer = new Java2DRenderer(parse(DOCUMENT), 200);
+        renderer.setPaged(true);
+        return renderer;
+    }
+
+    public void testPageCount()
+    {
+        assertEquals(3, createPagedRenderer().getPageCount());
+    }
+
+    public void testRenderPageToImage()
+    {
+        Java2DRenderer renderer = createPagedRenderer();
+        int[] colors = {RED, GREEN, BLUE};
+        for (int i = 0; i < colors.length; i++) {
+            BufferedImage image = renderer.renderPageToImage(i, 1f);
+            assertEquals(200, image.getWidth());
+            assertEquals(100, image.getHeight());
+            assertEquals("page " + i, colors[i], image.getRGB(100, 50));
+        }
+    }
+
+    public void testRenderPageToImageScales()
+    {
+        BufferedImage image = createPagedRenderer().renderPageToImage(1, 0.5f);
+        assertEquals(100, image.getWidth());
+        assertEquals(50, image.getHeight());
+        assertEquals(GREEN, image.getRGB(50, 25));
+    }
+
+    public void testPageOutOfRange()
+    {
+        Java2DRenderer renderer = createPagedRenderer();
+        try {
+            renderer.renderPageToImage(3, 1f);
+            fail("page 3 rendered");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            renderer.getPageSize(-1);
+            fail("page -1 measured");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testPrintModeDoesNotPaginate()
+    {
+        Java2DRenderer renderer = new Java2DRenderer(parse(DOCUMENT), 200);
+        renderer.getSharedContext().setPrint(true);
+        assertEquals(1, renderer.getPageCount());
+
+        Dimension size = renderer.getDocumentSize();
+        assertEquals(new Dimension(200, 300), size);
+
+        BufferedImage image = renderer.renderPageToImage(0, 1f);
+        assertEquals(200, image.getWidth());
+        assertEquals(300, image.getHeight());
+        assertEquals(RED, image.getRGB(100, 50));
+        assertEquals(BLUE, image.getRGB(100, 250));
+
+        BufferedImage whole = renderer.getImage();
+        assertEquals(300, whole.getHeight());
+    }
+
+    public void testWriteTilesReusesPageBuffer() throws IOException
+    {
+        final List created = new ArrayList();
+        Java2DRenderer renderer = new Java2DRenderer(parse(DOCUMENT), 200)
+        {
+            protected BufferedImage createBufferedImage(int width, int height)
+            {
+                BufferedImage result = super.createBufferedImage(width, height);
+                created.add(result);
+                return result;
+            }
+        };
+        renderer.setPaged(true);
+
+        final List images = new ArrayList();
+        final List files = new ArrayList();
+        final List colors = new ArrayList();
+        FSImageWriter writer = new FSImageWriter()
+        {
+            public void write(BufferedImage image, String filePath)
+            {
+                images.add(image);
+                files.add(new File(filePath).getName());
+                colors.add(new Integer(image.getRGB(50, 25)));
+            }
+        };
+        renderer.writeTiles(writer, new File("tiles"), "page", 1000, 1000, 0.5f);
+
+        assertEquals(1, created.size());
+        assertEquals(3, images.size());
+        for (int i = 0; i < images.size(); i++) {
+            assertSame(created.get(0), images.get(i));
+        }
+        BufferedImage page = (BufferedImage) created.get(0);
+        assertEquals(100, page.getWidth());
+        assertEquals(50, page.getHeight());
+
+        assertEquals("page-0.png", files.get(0));
+        assertEquals("page-1.png", files.get(1));
+        assertEquals("page-2.png", files.get(2));
+        assertEquals(new Integer(RED), colors.get(0));
+        assertEquals(new Integer(GREEN), colors.get(1));
+        assertEquals(new Integer(BLUE), colors.get(2));
+    }
+}
@@ -1,10 +1,91 @@
 package org.xhtmlrenderer.swing;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
 import junit.framework.TestCase;
+import org.xhtmlrenderer.util.IOUtil;
 
 public class NaiveUserAgentTest
         extends TestCase
 {
+    private HttpServer server;
+    private String base;
+    private final Map requests = new HashMap();
+    private ExecutorService executor;
+
+    protected void setUp() throws Exception
+    {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler()
+        {
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                String path = exchange.getRequestURI().getPath();
+                count(path);
+                byte[] bytes = path.substring(1).getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, bytes.length);
+                exchange.getResponseBody().write(bytes);
+                exchange.close();
+            }
+        });
+        server.start();
+        base = "http://localhost:" + server.getAddress().getPort();
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    protected void tearDown()
+    {
+        executor.shutdownNow();
+        server.stop(0);
+    }
+
+    private synchronized void count(String key)
+    {
+        Integer count = (Integer) requests.get(key);
+        requests.put(key, new Integer(count == null ? 1 : count.intValue() + 1));
+    }
+
+    private synchronized int requests(String key)
+    {
+        Integer count = (Integer) requests.get(key);
+        return count == null ? 0 : count.intValue();
+    }
+
+    private NaiveUserAgent newPrefetcher()
+    {
+        NaiveUserAgent userAgent = new NaiveUserAgent();
+        userAgent.setPrefetchExecutor(executor);
+        return userAgent;
+    }
+
+    private void prefetch(NaiveUserAgent userAgent, String uri) throws Exception
+    {
+        userAgent.prefetch(Collections.singleton(uri));
+        // the executor has one thread, so this waits for the prefetch
+        executor.submit(new Runnable()
+        {
+            public void run()
+            {
+            }
+        }).get();
+    }
+
+    private static String read(NaiveUserAgent userAgent, String uri) throws IOException
+    {
+        InputStream is = userAgent.resolveAndOpenStream(uri);
+        return new String(IOUtil.readBytes(is), "UTF-8");
+    }
+
     private static String resolve(String baseUri, String uri)
     {
         NaiveUserAgent userAgent=new NaiveUserAgent();
@@ -63,4 +144,38 @@ public class NaiveUserAgentTest
         assertEquals("jar:file:/path/jarfile.jar!/other.xhtml", resolve("jar:file:/path/jarfile.jar!/foo/","/other.xhtml"));
     }
 
+    public void testPrefetchedResourceIsLoadedOnce() throws Exception
+    {
+        NaiveUserAgent userAgent = newPrefetcher();
+        prefetch(userAgent, base + "/image");
+        assertEquals(1, requests("/image"));
+        assertEquals("image", read(userAgent, base + "/image"));
+        assertEquals(1, requests("/image"));
+        assertEquals("image", read(userAgent, base + "/image"));
+        assertEquals(2, requests("/image"));
+    }
+
+    public void testResourceOverLimitIsLoadedAgain() throws Exception
+    {
+        NaiveUserAgent userAgent = newPrefetcher();
+        userAgent.setMaxPrefetchedBytes(4);
+        prefetch(userAgent, base + "/image");
+        assertEquals(1, requests("/image"));
+        assertEquals("image", read(userAgent, base + "/image"));
+        assertEquals(2, requests("/image"));
+    }
+
+    public void testClearedResourcesAreNotCounted() throws Exception
+    {
+        NaiveUserAgent userAgent = newPrefetcher();
+        userAgent.setMaxPrefetchedBytes(5);
+        prefetch(userAgent, base + "/image");
+        userAgent.clearPrefetched();
+        assertEquals("image", read(userAgent, base + "/image"));
+        assertEquals(2, requests("/image"));
+
+        prefetch(userAgent, base + "/style");
+        assertEquals("style", read(userAgent, base + "/style"));
+        assertEquals(1, requests("/style"));
+    }
 }
@@ -0,0 +1,86 @@
+package org.xhtmlrenderer.util;
+
+import java.io.UnsupportedEncodingException;
+
+import junit.framework.TestCase;
+
+public class DataURIUtilTest
+        extends TestCase
+{
+    private static String decode(String uri) throws UnsupportedEncodingException
+    {
+        byte[] data = DataURIUtil.decodeBase64(uri);
+        return data == null ? null : new String(data, "ISO-8859-1");
+    }
+
+    private static void assertInvalid(String uri) throws UnsupportedEncodingException
+    {
+        try {
+            decode(uri);
+            fail("Expected IllegalArgumentException for " + uri);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testPadding() throws UnsupportedEncodingException
+    {
+        assertEquals("", decode("data:text/plain;base64,"));
+        assertEquals("f", decode("data:text/plain;base64,Zg=="));
+        assertEquals("fo", decode("data:text/plain;base64,Zm8="));
+        assertEquals("foo", decode("data:text/plain;base64,Zm9v"));
+        assertEquals("foob", decode("data:text/plain;base64,Zm9vYg=="));
+        assertEquals("fooba", decode("data:text/plain;base64,Zm9vYmE="));
+        assertEquals("foobar", decode("data:text/plain;base64,Zm9vYmFy"));
+    }
+
+    public void testMissingPadding() throws UnsupportedEncodingException
+    {
+        assertEquals("f", decode("data:text/plain;base64,Zg"));
+        assertEquals("fo", decode("data:text/plain;base64,Zm8"));
+        assertEquals("foob", decode("data:text/plain;base64,Zm9vYg"));
+    }
+
+    public void testWrongPadding() throws UnsupportedEncodingException
+    {
+        assertInvalid("data:text/plain;base64,Zg=");
+        assertInvalid("data:text/plain;base64,Zm8==");
+        assertInvalid("data:text/plain;base64,Zm9v====");
+        assertInvalid("data:text/plain;base64,Zg==Zg==");
+    }
+
+    public void testLineBreaksAndWhitespaceAreSkipped() throws UnsupportedEncodingException
+    {
+        assertEquals("foobar", decode("data:text/plain;base64,Zm9v\r\nYmFy"));
+        assertEquals("foobar", decode("data:text/plain;base64, Zm9v\n\tYm Fy\n"));
+        assertEquals("fooba", decode("data:text/plain;base64,Zm9vYmE\n=\n"));
+    }
+
+    public void testTruncatedData() throws UnsupportedEncodingException
+    {
+        assertInvalid("data:text/plain;base64,Z");
+        assertInvalid("data:text/plain;base64,Zm9vY");
+        assertInvalid("data:text/plain;base64,Zm9vY===");
+    }
+
+    public void testUrlSafeAlphabetIsRejected() throws UnsupportedEncodingException
+    {
+        assertEquals("\u00fb\u00ff", decode("data:application/octet-stream;base64,+/8="));
+        assertInvalid("data:application/octet-stream;base64,-_8=");
+        assertInvalid("data:application/octet-stream;base64,-/8=");
+        assertInvalid("data:application/octet-stream;base64,+_8=");
+    }
+
+    public void testOtherInvalidCharacters() throws UnsupportedEncodingException
+    {
+        assertInvalid("data:text/plain;base64,Zm9v*mFy");
+        assertInvalid("data:text/plain;base64,Zm9v%59mFy");
+        assertInvalid("data:text/plain;base64,Zm9v\u00e9mFy");
+    }
+
+    public void testNotBase64() throws UnsupportedEncodingException
+    {
+        assertNull(decode("data:text/plain,foobar"));
+        assertNull(decode("data:text/plain;charset=UTF-8,foobar"));
+    }
+}
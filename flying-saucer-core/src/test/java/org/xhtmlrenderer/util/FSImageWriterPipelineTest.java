@@ -0,0 +1,82 @@
+package org.xhtmlrenderer.util;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class FSImageWriterPipelineTest
+        extends TestCase
+{
+    private final Set written = Collections.synchronizedSet(new HashSet());
+
+    private class RecordingWriter
+            extends FSImageWriter
+    {
+        public void write(BufferedImage bimg, String filePath) throws IOException
+        {
+            if (filePath.startsWith("error")) {
+                throw new OutOfMemoryError(filePath);
+            } else if (filePath.startsWith("exception")) {
+                throw new IllegalStateException(filePath);
+            }
+            written.add(filePath);
+        }
+    }
+
+    private static BufferedImage image()
+    {
+        return new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+    }
+
+    public void testFlushWaitsAndKeepsPipelineOpen() throws IOException
+    {
+        FSImageWriterPipeline pipeline = new FSImageWriterPipeline(new RecordingWriter(), 2, 2);
+        try {
+            for (int i = 0; i < 10; i++) {
+                pipeline.write(image(), "a" + i);
+            }
+            pipeline.flush();
+            assertEquals(10, written.size());
+
+            pipeline.write(image(), "b");
+            pipeline.flush();
+            assertEquals(11, written.size());
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    public void testErrorIsReported() throws IOException
+    {
+        FSImageWriterPipeline pipeline = new FSImageWriterPipeline(new RecordingWriter(), 1, 1);
+        pipeline.write(image(), "error");
+        try {
+            pipeline.close();
+            fail("Expected OutOfMemoryError");
+        } catch (OutOfMemoryError e) {
+            assertEquals("error", e.getMessage());
+        }
+    }
+
+    public void testRuntimeExceptionIsReportedAsIOException() throws IOException
+    {
+        FSImageWriterPipeline pipeline = new FSImageWriterPipeline(new RecordingWriter(), 1, 1);
+        pipeline.write(image(), "exception");
+        try {
+            pipeline.flush();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        } finally {
+            try {
+                pipeline.close();
+            } catch (IOException e) {
+                // reported again
+            }
+        }
+    }
+}
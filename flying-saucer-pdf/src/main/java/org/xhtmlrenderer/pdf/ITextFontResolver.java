@@ -28,14 +28,20 @@ import org.xhtmlrenderer.css.style.CalculatedStyle;
 import org.xhtmlrenderer.css.style.FSDerivedValue;
 import org.xhtmlrenderer.css.value.FontSpecification;
 import org.xhtmlrenderer.extend.FontResolver;
+import org.xhtmlrenderer.extend.RenderMetrics;
+import org.xhtmlrenderer.extend.ResourcePrefetcher;
+import org.xhtmlrenderer.extend.UserAgentCallback;
 import org.xhtmlrenderer.layout.SharedContext;
 import org.xhtmlrenderer.render.FSFont;
 import org.xhtmlrenderer.util.FontUtil;
+import org.xhtmlrenderer.util.MetricsTimer;
 import org.xhtmlrenderer.util.SupportedEmbeddedFontTypes;
 import org.xhtmlrenderer.util.XRLog;
 import org.xhtmlrenderer.util.XRRuntimeException;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.*;
 import java.util.stream.Stream;
 
@@ -105,6 +111,8 @@ public class ITextFontResolver implements FontResolver {
     }
 
     public void importFontFaces(List fontFaces) {
+        prefetchFontFaces(fontFaces);
+
         for (Iterator i = fontFaces.iterator(); i.hasNext(); ) {
             FontFaceRule rule = (FontFaceRule)i.next();
             CalculatedStyle style = rule.getCalculatedStyle();
@@ -165,6 +173,30 @@ public class ITextFontResolver implements FontResolver {
         }
     }
 
+    /**
+     * Starts fetching the fonts of all rules in parallel if the user agent supports it, instead of loading
+     * them one after the other.
+     */
+    private void prefetchFontFaces(List fontFaces) {
+        UserAgentCallback uac = _sharedContext.getUac();
+        if (! (uac instanceof ResourcePrefetcher) || ! ((ResourcePrefetcher) uac).isPrefetchEnabled()) {
+            return;
+        }
+        List uris = new ArrayList();
+        for (Iterator i = fontFaces.iterator(); i.hasNext(); ) {
+            CalculatedStyle style = ((FontFaceRule) i.next()).getCalculatedStyle();
+            FSDerivedValue src = style.valueByName(CSSName.SRC);
+            if (src != IdentValue.NONE) {
+                uris.add(src.asString());
+                FSDerivedValue metricsSrc = style.valueByName(CSSName.FS_FONT_METRIC_SRC);
+                if (metricsSrc != IdentValue.NONE) {
+                    uris.add(metricsSrc.asString());
+                }
+            }
+        }
+        ((ResourcePrefetcher) uac).prefetch(uris);
+    }
+
     public void addFontDirectory(String dir, boolean embedded)
             throws DocumentException, IOException {
         File f = new File(dir);
@@ -234,7 +266,7 @@ public class ITextFontResolver implements FontResolver {
             }
 
             BaseFont font = BaseFont.createFont(
-                    path, encoding, embedded, false, null, readFile(pathToPFB));
+                    path, encoding, embedded, false, null, readPFB(path, pathToPFB, embedded));
 
             String fontFamilyName;
             if (fontFamilyNameOverride != null) {
@@ -273,6 +305,7 @@ public class ITextFontResolver implements FontResolver {
         if (fontSupported(lower)) {
             String fontName = (FontUtil.isEmbeddedBase64Font(uri)) ? fontFamilyNameOverride+SupportedEmbeddedFontTypes.getExtension(uri) : uri;
             BaseFont font = BaseFont.createFont(fontName, encoding, embedded, false, afmttf, pfb);
+            MetricsTimer.count(_sharedContext, RenderMetrics.COUNT_FONTS_LOADED, 1);
 
             String[] fontFamilyNames;
             if (fontFamilyNameOverride != null) {
@@ -311,6 +344,7 @@ public class ITextFontResolver implements FontResolver {
             String name = uri.substring(0, uri.length()-4) + ".afm";
             BaseFont font = BaseFont.createFont(
                     name, encoding, embedded, false, afmttf, pfb);
+            MetricsTimer.count(_sharedContext, RenderMetrics.COUNT_FONTS_LOADED, 1);
 
             String fontFamilyName = font.getFamilyFontName()[0][3];
             FontFamily fontFamily = getFontFamily(fontFamilyName);
@@ -326,30 +360,50 @@ public class ITextFontResolver implements FontResolver {
         }
     }
 
+    /**
+     * Returns the PFB data to create a Type 1 font with, or null if iText can read the PFB itself: it does so when
+     * the font is written if the PFB has the name of the AFM or PFM file with a "pfb" extension, so the font
+     * program is then only on the heap while it is copied into the PDF.
+     */
+    private byte[] readPFB(String path, String pathToPFB, boolean embedded) throws IOException {
+        if (! embedded || pathToPFB == null) {
+            return null;
+        }
+        if (pathToPFB.equals(path.substring(0, path.length() - 3) + "pfb")) {
+            if (! new File(pathToPFB).exists()) {
+                throw new IOException("File " + pathToPFB + " does not exist or is not accessible");
+            }
+            return null;
+        }
+        return readFile(pathToPFB);
+    }
+
     private byte[] readFile(String path) throws IOException {
         File f = new File(path);
         if (f.exists()) {
-            ByteArrayOutputStream result = new ByteArrayOutputStream((int)f.length());
-            InputStream is = null;
+            // read straight into an array of the file's size rather than through a growing buffer, which
+            // would hold the font in memory twice
+            FileInputStream is = new FileInputStream(f);
             try {
-                is = new FileInputStream(path);
-                byte[] buf = new byte[10240];
-                int i;
-                while ( (i = is.read(buf)) != -1) {
-                    result.write(buf, 0, i);
+                FileChannel channel = is.getChannel();
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("File " + path + " is too large");
                 }
-                is.close();
-                is = null;
-
-                return result.toByteArray();
-            } finally {
-                if (is != null) {
-                    try {
-                        is.close();
-                    } catch (IOException e) {
-                        // ignore
+                byte[] result = new byte[(int) size];
+                ByteBuffer buffer = ByteBuffer.wrap(result);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) == -1) {
+                        throw new EOFException("Unexpected end of file " + path);
                     }
                 }
+                return result;
+            } finally {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                    // ignore
+                }
             }
         } else {
             throw new IOException("File " + path + " does not exist or is not accessible");
@@ -33,6 +33,7 @@ import java.awt.geom.Line2D;
 import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
@@ -58,6 +59,7 @@ import org.xhtmlrenderer.css.parser.FSRGBColor;
 import org.xhtmlrenderer.css.style.CalculatedStyle;
 import org.xhtmlrenderer.css.style.CssContext;
 import org.xhtmlrenderer.css.value.FontSpecification;
+import org.xhtmlrenderer.extend.UserAgentCallback;
 import org.xhtmlrenderer.extend.FSImage;
 import org.xhtmlrenderer.extend.NamespaceHandler;
 import org.xhtmlrenderer.extend.OutputDevice;
@@ -72,6 +74,7 @@ import org.xhtmlrenderer.render.InlineText;
 import org.xhtmlrenderer.render.JustificationInfo;
 import org.xhtmlrenderer.render.PageBox;
 import org.xhtmlrenderer.render.RenderingContext;
+import org.xhtmlrenderer.swing.NaiveUserAgent;
 import org.xhtmlrenderer.util.Configuration;
 import org.xhtmlrenderer.util.XRLog;
 import org.xhtmlrenderer.util.XRRuntimeException;
@@ -95,6 +98,7 @@ import com.lowagie.text.pdf.PdfReader;
 import com.lowagie.text.pdf.PdfString;
 import com.lowagie.text.pdf.PdfTextArray;
 import com.lowagie.text.pdf.PdfWriter;
+import com.lowagie.text.pdf.RandomAccessFileOrArray;
 
 /**
  * This class is largely based on {@link com.lowagie.text.pdf.PdfGraphics2D}.
@@ -147,6 +151,9 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
 
     private int _startPageNo;
 
+    private int _firstPageNo;
+    private int _lastPageNo = Integer.MAX_VALUE;
+
     private int _nextFormFieldIndex;
 
     private Set _linkTargetAreas;
@@ -361,7 +368,11 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
             int distanceFromTop = page.getMarginBorderPadding(c, CalculatedStyle.TOP);
             distanceFromTop += box.getAbsY() + box.getMargin(c).top() - page.getTop();
             result = new PdfDestination(PdfDestination.XYZ, 0, page.getHeight(c) / _dotsPerPoint - distanceFromTop / _dotsPerPoint, 0);
-            result.addPage(_writer.getPageReference(_startPageNo + page.getPageNo() + 1));
+            PdfIndirectReference pageRef = getPageReference(page);
+            if (pageRef == null) {
+                return null;
+            }
+            result.addPage(pageRef);
         }
 
         return result;
@@ -886,12 +897,58 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
     public PdfReader getReader(URI uri) throws IOException {
         PdfReader result = (PdfReader) _readerCache.get(uri);
         if (result == null) {
-            result = new PdfReader(getSharedContext().getUserAgentCallback().getBinaryResource(uri.toString()));
+            result = openReader(uri);
             _readerCache.put(uri, result);
         }
         return result;
     }
 
+    /**
+     * Closes the PDF files opened for {@link #getReader(URI)}.  The writer
+     * copies the imported pages while it is closed, so call this afterwards.
+     */
+    public void closeReaders() {
+        for (Iterator i = _readerCache.values().iterator(); i.hasNext(); ) {
+            PdfReader reader = (PdfReader) i.next();
+            reader.close();
+        }
+        _readerCache.clear();
+    }
+
+    private PdfReader openReader(URI uri) throws IOException {
+        UserAgentCallback uac = getSharedContext().getUserAgentCallback();
+        RandomAccessFileOrArray source;
+        if (isPlainFile(uri) && isPlainUserAgent(uac)) {
+            // iText maps the file into memory instead of reading it onto the heap
+            source = new RandomAccessFileOrArray(new File(uri).getPath());
+        } else {
+            byte[] data = uac.getBinaryResource(uri.toString());
+            if (data == null) {
+                throw new IOException("Could not read " + uri);
+            }
+            source = new RandomAccessFileOrArray(data);
+        }
+        // partial mode only parses the objects needed by the pages we import
+        return new PdfReader(source, null);
+    }
+
+    /**
+     * Whether a URI names a local file, without an authority, query or fragment.
+     */
+    private static boolean isPlainFile(URI uri) {
+        return "file".equals(uri.getScheme()) && ! uri.isOpaque() && uri.getAuthority() == null &&
+                uri.getQuery() == null && uri.getFragment() == null;
+    }
+
+    /**
+     * Whether a user agent loads files as they are, so that reading them directly doesn't bypass any access
+     * control or rewriting done by a subclass or resource fetcher.
+     */
+    private static boolean isPlainUserAgent(UserAgentCallback uac) {
+        return (uac.getClass() == ITextUserAgent.class || uac.getClass() == NaiveUserAgent.class) &&
+                ((NaiveUserAgent) uac).getResourceFetcher() == null;
+    }
+
     public float getDotsPerPoint() {
         return _dotsPerPoint;
     }
@@ -937,10 +994,10 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
 
                     if (targetBox.getStyle().isIdent(CSSName.FS_NAMED_DESTINATION, IdentValue.CREATE)) {
                         String anchorName = (String) entry.getKey();
-                        dests.add(new PdfString(anchorName, PdfString.TEXT_UNICODE));
 
                         PdfDestination dest = createDestination(c, targetBox);
                         if (dest != null) {
+                            dests.add(new PdfString(anchorName, PdfString.TEXT_UNICODE));
                             PdfIndirectReference ref = _writer.addToBody(dest).getIndirectReference();
                             dests.add(ref);
                         }
@@ -982,10 +1039,20 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
         }
         if (box != null) {
             PageBox page = root.getLayer().getPage(c, getPageRefY(box));
-            int distanceFromTop = page.getMarginBorderPadding(c, CalculatedStyle.TOP);
-            distanceFromTop += box.getAbsY() - page.getTop();
-            target = new PdfDestination(PdfDestination.XYZ, 0, normalizeY(distanceFromTop / _dotsPerPoint), 0);
-            target.addPage(_writer.getPageReference(_startPageNo + page.getPageNo() + 1));
+            PdfIndirectReference pageRef = getPageReference(page);
+            if (pageRef == null && page != null) {
+                // The target is on a page outside of the page range being
+                // written.  Leave the bookmark out, but keep those below it
+                // which may point into the range.
+                writeBookmarks(c, root, parent, bookmark.getChildren());
+                return;
+            }
+            if (pageRef != null) {
+                int distanceFromTop = page.getMarginBorderPadding(c, CalculatedStyle.TOP);
+                distanceFromTop += box.getAbsY() - page.getTop();
+                target = new PdfDestination(PdfDestination.XYZ, 0, normalizeY(distanceFromTop / _dotsPerPoint), 0);
+                target.addPage(pageRef);
+            }
         }
         if (target == null) {
             target = _defaultDestination;
@@ -1269,6 +1336,36 @@ public class ITextOutputDevice extends AbstractOutputDevice implements OutputDev
         _startPageNo = startPageNo;
     }
 
+    /**
+     * Sets the range of pages (zero-based and inclusive) being written.  The
+     * first page of the range is written as PDF page
+     * <code>getStartPageNo() + 1</code>.
+     */
+    public void setPageRange(int firstPageNo, int lastPageNo) {
+        _firstPageNo = firstPageNo;
+        _lastPageNo = lastPageNo;
+    }
+
+    /**
+     * Returns a reference to the PDF page <code>page</code> is written to or
+     * <code>null</code> if it's outside of the range of pages being written.
+     */
+    private PdfIndirectReference getPageReference(PageBox page) {
+        int pdfPageNo = getPdfPageNo(page);
+        return pdfPageNo == -1 ? null : _writer.getPageReference(pdfPageNo);
+    }
+
+    /**
+     * Returns the (one-based) number of the PDF page <code>page</code> is
+     * written to or -1 if it's outside of the range of pages being written.
+     */
+    public int getPdfPageNo(PageBox page) {
+        if (page == null || page.getPageNo() < _firstPageNo || page.getPageNo() > _lastPageNo) {
+            return -1;
+        }
+        return _startPageNo + page.getPageNo() - _firstPageNo + 1;
+    }
+
     public void drawSelection(RenderingContext c, InlineText inlineText) {
         throw new UnsupportedOperationException();
     }
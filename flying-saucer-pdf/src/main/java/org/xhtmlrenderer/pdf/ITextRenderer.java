@@ -47,6 +47,7 @@ import org.w3c.dom.Node;
 import org.xhtmlrenderer.context.StyleReference;
 import org.xhtmlrenderer.css.style.CalculatedStyle;
 import org.xhtmlrenderer.extend.NamespaceHandler;
+import org.xhtmlrenderer.extend.RenderMetrics;
 import org.xhtmlrenderer.extend.UserInterface;
 import org.xhtmlrenderer.layout.BoxBuilder;
 import org.xhtmlrenderer.layout.Layer;
@@ -59,6 +60,7 @@ import org.xhtmlrenderer.render.ViewportBox;
 import org.xhtmlrenderer.resource.XMLResource;
 import org.xhtmlrenderer.simple.extend.XhtmlNamespaceHandler;
 import org.xhtmlrenderer.util.Configuration;
+import org.xhtmlrenderer.util.MetricsTimer;
 import org.xml.sax.InputSource;
 
 import com.lowagie.text.DocumentException;
@@ -145,7 +147,12 @@ public class ITextRenderer {
     }
 
     private Document loadDocument(final String uri) {
-        return _sharedContext.getUac().getXMLResource(uri).getDocument();
+        MetricsTimer timer = MetricsTimer.start(_sharedContext, RenderMetrics.PHASE_XML_PARSE);
+        try {
+            return _sharedContext.getUac().getXMLResource(uri).getDocument();
+        } finally {
+            timer.stop();
+        }
     }
 
     public void setDocument(String uri) {
@@ -168,7 +175,13 @@ public class ITextRenderer {
 
     public void setDocumentFromString(String content, String baseUrl) {
         InputSource is = new InputSource(new BufferedReader(new StringReader(content)));
-        Document dom = XMLResource.load(is).getDocument();
+        MetricsTimer timer = MetricsTimer.start(_sharedContext, RenderMetrics.PHASE_XML_PARSE);
+        Document dom;
+        try {
+            dom = XMLResource.load(is).getDocument();
+        } finally {
+            timer.stop();
+        }
 
         setDocument(dom, baseUrl);
     }
@@ -224,9 +237,16 @@ public class ITextRenderer {
 
     public void layout() {
         LayoutContext c = newLayoutContext();
-        BlockBox root = BoxBuilder.createRootBox(c, _doc);
-        root.setContainingBlock(new ViewportBox(getInitialExtents(c)));
-        root.layout(c);
+        MetricsTimer timer = MetricsTimer.start(_sharedContext, RenderMetrics.PHASE_LAYOUT);
+        BlockBox root;
+        try {
+            root = BoxBuilder.createRootBox(c, _doc);
+            root.setContainingBlock(new ViewportBox(getInitialExtents(c)));
+            root.layout(c);
+        } finally {
+            timer.stop();
+        }
+        MetricsTimer.count(_sharedContext, RenderMetrics.COUNT_DOCUMENTS, 1);
         Dimension dim = root.getLayer().getPaintingDimension(c);
         root.getLayer().trimEmptyPages(c, dim.height);
         root.getLayer().layoutPages(c);
@@ -283,13 +303,29 @@ public class ITextRenderer {
         _pdfDoc.setPageSize(firstPageSize);
         _pdfDoc.newPage();
 
-        writePDF(pages, c, firstPageSize, _pdfDoc, _writer);
+        MetricsTimer timer = MetricsTimer.start(_sharedContext, RenderMetrics.PHASE_PDF_WRITE);
+        boolean written = false;
+        try {
+            writePDF(pages, 0, pages.size() - 1, c, firstPageSize, _pdfDoc, _writer);
+            written = true;
+        } finally {
+            if (! written) {
+                _outputDevice.closeReaders();
+            }
+            timer.stop();
+        }
     }
 
     public void finishPDF() {
         if (_pdfDoc != null) {
             fireOnClose();
-            _pdfDoc.close();
+            MetricsTimer timer = MetricsTimer.start(_sharedContext, RenderMetrics.PHASE_PDF_WRITE);
+            try {
+                _pdfDoc.close();
+            } finally {
+                _outputDevice.closeReaders();
+                timer.stop();
+            }
         }
     }
 
@@ -302,11 +338,33 @@ public class ITextRenderer {
      * something goes wrong.
      */
     public void createPDF(OutputStream os, boolean finish, int initialPageNo) throws DocumentException {
+        createPDF(os, finish, initialPageNo, 0, _root.getLayer().getPages().size() - 1);
+    }
+
+    /**
+     * Writes only the pages <code>firstPage</code> through <code>lastPage</code>
+     * (zero-based and inclusive) of the current layout.  Page counters still
+     * count every page of the document.  Links and bookmarks which point to a
+     * page outside of the range are not written.
+     * 
+     * <B>NOTE:</B> Caller is responsible for cleaning up the OutputStream if
+     * something goes wrong.
+     */
+    public void createPDF(OutputStream os, int firstPage, int lastPage) throws DocumentException {
+        createPDF(os, true, 0, firstPage, lastPage);
+    }
+
+    private void createPDF(OutputStream os, boolean finish, int initialPageNo, int firstPageNo, int lastPageNo)
+            throws DocumentException {
         List pages = _root.getLayer().getPages();
+        if (firstPageNo < 0 || lastPageNo >= pages.size() || firstPageNo > lastPageNo) {
+            throw new IllegalArgumentException("Page range " + firstPageNo + "-" + lastPageNo + 
+                    " is not between 0 and " + (pages.size() - 1));
+        }
 
         RenderingContext c = newRenderingContext();
         c.setInitialPageNo(initialPageNo);
-        PageBox firstPage = (PageBox) pages.get(0);
+        PageBox firstPage = (PageBox) pages.get(firstPageNo);
         com.lowagie.text.Rectangle firstPageSize = new com.lowagie.text.Rectangle(0, 0, firstPage.getWidth(c) / _dotsPerPoint,
                 firstPage.getHeight(c) / _dotsPerPoint);
 
@@ -327,14 +385,29 @@ public class ITextRenderer {
         _pdfDoc = doc;
         _writer = writer;
 
-        firePreOpen();
-        doc.open();
+        // the imported pages are copied when the document is closed, so the readers stay open until then
+        boolean keepReaders = false;
+        try {
+            firePreOpen();
+            doc.open();
 
-        writePDF(pages, c, firstPageSize, doc, writer);
+            MetricsTimer timer = MetricsTimer.start(_sharedContext, RenderMetrics.PHASE_PDF_WRITE);
+            try {
+                writePDF(pages, firstPageNo, lastPageNo, c, firstPageSize, doc, writer);
 
-        if (finish) {
-            fireOnClose();
-            doc.close();
+                if (finish) {
+                    fireOnClose();
+                    doc.close();
+                } else {
+                    keepReaders = true;
+                }
+            } finally {
+                timer.stop();
+            }
+        } finally {
+            if (! keepReaders) {
+                _outputDevice.closeReaders();
+            }
         }
     }
 
@@ -356,9 +429,11 @@ public class ITextRenderer {
         }
     }
 
-    private void writePDF(List pages, RenderingContext c, com.lowagie.text.Rectangle firstPageSize, com.lowagie.text.Document doc,
-            PdfWriter writer) throws DocumentException {
+    private void writePDF(List pages, int firstPageNo, int lastPageNo, RenderingContext c, 
+            com.lowagie.text.Rectangle firstPageSize, com.lowagie.text.Document doc, PdfWriter writer) 
+            throws DocumentException {
         _outputDevice.setRoot(_root);
+        _outputDevice.setPageRange(firstPageNo, lastPageNo);
 
         _outputDevice.start(_doc);
         _outputDevice.setWriter(writer);
@@ -370,7 +445,7 @@ public class ITextRenderer {
         c.setPageCount(pageCount);
         firePreWrite(pageCount); // opportunity to adjust meta data
         setDidValues(doc); // set PDF header fields from meta data
-        for (int i = 0; i < pageCount; i++) {
+        for (int i = firstPageNo; i <= lastPageNo; i++) {
 
             if (isTimeouted() || Thread.currentThread().isInterrupted())
                 throw new RuntimeException("Timeout occured");
@@ -379,7 +454,7 @@ public class ITextRenderer {
             c.setPage(i, currentPage);
             paintPage(c, writer, currentPage);
             _outputDevice.finishPage();
-            if (i != pageCount - 1) {
+            if (i != lastPageNo) {
                 PageBox nextPage = (PageBox) pages.get(i + 1);
                 com.lowagie.text.Rectangle nextPageSize = new com.lowagie.text.Rectangle(0, 0, nextPage.getWidth(c) / _dotsPerPoint,
                         nextPage.getHeight(c) / _dotsPerPoint);
@@ -413,26 +488,31 @@ public class ITextRenderer {
     }
 
     private void paintPage(RenderingContext c, PdfWriter writer, PageBox page) {
-        provideMetadataToPage(writer, page);
+        MetricsTimer timer = MetricsTimer.start(_sharedContext, RenderMetrics.PHASE_PAINT);
+        try {
+            provideMetadataToPage(writer, page);
 
-        page.paintBackground(c, 0, Layer.PAGED_MODE_PRINT);
-        page.paintMarginAreas(c, 0, Layer.PAGED_MODE_PRINT);
-        page.paintBorder(c, 0, Layer.PAGED_MODE_PRINT);
+            page.paintBackground(c, 0, Layer.PAGED_MODE_PRINT);
+            page.paintMarginAreas(c, 0, Layer.PAGED_MODE_PRINT);
+            page.paintBorder(c, 0, Layer.PAGED_MODE_PRINT);
 
-        Shape working = _outputDevice.getClip();
+            Shape working = _outputDevice.getClip();
 
-        Rectangle content = page.getPrintClippingBounds(c);
-        _outputDevice.clip(content);
+            Rectangle content = page.getPrintClippingBounds(c);
+            _outputDevice.clip(content);
 
-        int top = -page.getPaintingTop() + page.getMarginBorderPadding(c, CalculatedStyle.TOP);
+            int top = -page.getPaintingTop() + page.getMarginBorderPadding(c, CalculatedStyle.TOP);
 
-        int left = page.getMarginBorderPadding(c, CalculatedStyle.LEFT);
+            int left = page.getMarginBorderPadding(c, CalculatedStyle.LEFT);
 
-        _outputDevice.translate(left, top);
-        _root.getLayer().paint(c);
-        _outputDevice.translate(-left, -top);
+            _outputDevice.translate(left, top);
+            _root.getLayer().paint(c);
+            _outputDevice.translate(-left, -top);
 
-        _outputDevice.setClip(working);
+            _outputDevice.setClip(working);
+        } finally {
+            timer.stop();
+        }
     }
 
     private void provideMetadataToPage(PdfWriter writer, PageBox page) {
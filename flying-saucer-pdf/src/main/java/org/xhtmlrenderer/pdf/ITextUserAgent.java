@@ -21,17 +21,23 @@
 package org.xhtmlrenderer.pdf;
 
 import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
 
 import org.xhtmlrenderer.extend.FSImage;
+import org.xhtmlrenderer.extend.RenderMetrics;
 import org.xhtmlrenderer.layout.SharedContext;
 import org.xhtmlrenderer.resource.ImageResource;
 import org.xhtmlrenderer.swing.NaiveUserAgent;
 import org.xhtmlrenderer.util.Configuration;
 import org.xhtmlrenderer.util.ContentTypeDetectingInputStreamWrapper;
+import org.xhtmlrenderer.util.DataURIUtil;
 import org.xhtmlrenderer.util.ImageUtil;
+import org.xhtmlrenderer.util.MetricsTimer;
 import org.xhtmlrenderer.util.XRLog;
 
 import com.lowagie.text.Image;
@@ -63,15 +69,28 @@ public class ITextUserAgent extends NaiveUserAgent {
 
     public ImageResource getImageResource(String uriStr) {
         ImageResource resource;
-        if (!ImageUtil.isEmbeddedBase64Image(uriStr)) {
+        String cacheKey;
+        if (ImageUtil.isEmbeddedBase64Image(uriStr)) {
+            // keyed by a hash so that the cache doesn't keep the whole data URI
+            cacheKey = DataURIUtil.getCacheKey(uriStr);
+        } else {
             uriStr = resolveURI(uriStr);
+            cacheKey = uriStr;
         }
-        resource = (ImageResource) _imageCache.get(uriStr);
+        resource = (ImageResource) _imageCache.get(cacheKey);
 
-        if (resource == null) {
+        if (resource != null) {
+            MetricsTimer.count(_sharedContext, RenderMetrics.COUNT_CACHE_HITS, 1);
+        } else {
             if (ImageUtil.isEmbeddedBase64Image(uriStr)) {
                 resource = loadEmbeddedBase64ImageResource(uriStr);
-                _imageCache.put(uriStr, resource);
+                _imageCache.put(cacheKey, resource);
+            } else if (isPlainFile(uriStr)) {
+                resource = loadFileImageResource(uriStr);
+                if (resource != null) {
+                    MetricsTimer.count(_sharedContext, RenderMetrics.COUNT_IMAGES_LOADED, 1);
+                    _imageCache.put(cacheKey, resource);
+                }
             } else {
                 InputStream is = resolveAndOpenStream(uriStr);
                 if (is != null) {
@@ -79,19 +98,14 @@ public class ITextUserAgent extends NaiveUserAgent {
                         ContentTypeDetectingInputStreamWrapper cis=new ContentTypeDetectingInputStreamWrapper(is);
                         is=cis;
                         if (cis.isPdf()) {
-                            URI uri = new URI(uriStr);
-                            PdfReader reader = _outputDevice.getReader(uri);
-                            PDFAsImage image = new PDFAsImage(uri);
-                            Rectangle rect = reader.getPageSizeWithRotation(1);
-                            image.setInitialWidth(rect.getWidth() * _outputDevice.getDotsPerPoint());
-                            image.setInitialHeight(rect.getHeight() * _outputDevice.getDotsPerPoint());
-                            resource = new ImageResource(uriStr, image);
+                            resource = loadPdfImageResource(uriStr);
                         } else {
                             Image image = Image.getInstance(readStream(is));
                             scaleToOutputResolution(image);
                             resource = new ImageResource(uriStr, new ITextFSImage(image));
                         }
-                        _imageCache.put(uriStr, resource);
+                        MetricsTimer.count(_sharedContext, RenderMetrics.COUNT_IMAGES_LOADED, 1);
+                        _imageCache.put(cacheKey, resource);
                     } catch (Exception e) {
                         XRLog.exception("Can't read image file; unexpected problem for URI '" + uriStr + "'", e);
                     } finally {
@@ -116,6 +130,56 @@ public class ITextUserAgent extends NaiveUserAgent {
         return resource;
     }
     
+    /**
+     * Whether an image URI names a local file this user agent would read as it is, so that iText can be left to
+     * read the file itself.
+     */
+    private boolean isPlainFile(String uriStr) {
+        return uriStr.startsWith("file:") && getClass() == ITextUserAgent.class && getResourceFetcher() == null;
+    }
+
+    /**
+     * Loads an image from a local file without copying it onto the heap: iText reads JPEG and JPEG 2000 files
+     * again when the image is written to the PDF, and only the first bytes are read here to detect PDF files.
+     */
+    private ImageResource loadFileImageResource(String uriStr) {
+        try {
+            URL url = new URL(uriStr);
+            boolean pdf;
+            InputStream is = url.openStream();
+            try {
+                pdf = new ContentTypeDetectingInputStreamWrapper(is).isPdf();
+            } finally {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+            if (pdf) {
+                return loadPdfImageResource(uriStr);
+            }
+            Image image = Image.getInstance(url);
+            scaleToOutputResolution(image);
+            return new ImageResource(uriStr, new ITextFSImage(image));
+        } catch (FileNotFoundException e) {
+            XRLog.exception("item at URI " + uriStr + " not found");
+        } catch (Exception e) {
+            XRLog.exception("Can't read image file; unexpected problem for URI '" + uriStr + "'", e);
+        }
+        return null;
+    }
+
+    private ImageResource loadPdfImageResource(String uriStr) throws URISyntaxException, IOException {
+        URI uri = new URI(uriStr);
+        PdfReader reader = _outputDevice.getReader(uri);
+        PDFAsImage image = new PDFAsImage(uri);
+        Rectangle rect = reader.getPageSizeWithRotation(1);
+        image.setInitialWidth(rect.getWidth() * _outputDevice.getDotsPerPoint());
+        image.setInitialHeight(rect.getHeight() * _outputDevice.getDotsPerPoint());
+        return new ImageResource(uriStr, image);
+    }
+
     private ImageResource loadEmbeddedBase64ImageResource(final String uri) {
         try {
             byte[] buffer = ImageUtil.getEmbeddedBase64Image(uri);
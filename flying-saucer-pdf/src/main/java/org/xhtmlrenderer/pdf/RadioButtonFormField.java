@@ -106,6 +106,16 @@ public class RadioButtonFormField extends AbstractFormField {
             PdfWriter writer, PdfFormField group, 
             RadioButtonFormField fieldElem, RadioButtonFormField checked) {
         Box box = fieldElem.getBox();
+
+        // XXX createTargetArea already looks up the page, but hopefully a document
+        // won't have enough radio buttons to matter
+        Rectangle bounds = box.getContentAreaEdge(box.getAbsX(), box.getAbsY(), c);
+        PageBox page = c.getRootLayer().getPage(c, bounds.y);
+        int pdfPageNo = outputDevice.getPdfPageNo(page);
+        if (pdfPageNo == -1) {
+            // Not on a page that's being written
+            return;
+        }
         
         Element e = box.getElement();
         String onValue = getValue(e);
@@ -123,12 +133,8 @@ public class RadioButtonFormField extends AbstractFormField {
         field.setWidget(
                 outputDevice.createTargetArea(c, box),
                 PdfAnnotation.HIGHLIGHT_INVERT);
-        
-        // XXX createTargetArea already looks up the page, but hopefully a document
-        // won't have enough radio buttons to matter
-        Rectangle bounds = box.getContentAreaEdge(box.getAbsX(), box.getAbsY(), c);
-        PageBox page = c.getRootLayer().getPage(c, bounds.y);
-        field.setPlaceInPage(page.getPageNo()+1);
+
+        field.setPlaceInPage(pdfPageNo);
 
         field.setBorderStyle(new PdfBorderDictionary(0.0f, 0));
 
@@ -0,0 +1,49 @@
+package org.xhtmlrenderer.pdf.bug;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.xhtmlrenderer.pdf.ITextRenderer;
+
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.SimpleBookmark;
+
+/**
+ * Bookmarks of a PDF written for a range of pages only point into the range.
+ */
+public class PageRangeOutlineTest {
+
+    private static final String html = "<!DOCTYPE html>\n" +
+            "<html>\n" +
+            "<head><style> h2 { page-break-before: always;}</style></head>" +
+            "<body>\n" +
+            "<h1>Decision</h1><p>Decision ...</p>\n" +
+            "<h2>Attachment A</h2><p>Attachment A ...</p>\n" +
+            "<h2>Attachment B</h2><p>Attachment B ...</p>\n" +
+            "</body>\n" +
+            "</html>\n";
+
+    @Test
+    public void testOutlineOfPageRange() throws Exception {
+        ITextRenderer renderer = new ITextRenderer();
+        renderer.setDocumentFromString(html);
+        renderer.layout();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        renderer.createPDF(out, 1, 1);
+
+        PdfReader reader = new PdfReader(out.toByteArray());
+        try {
+            assertEquals(1, reader.getNumberOfPages());
+            List bookmarks = SimpleBookmark.getBookmark(reader);
+            assertEquals(1, bookmarks.size());
+            assertEquals("Attachment A", ((Map) bookmarks.get(0)).get("Title"));
+        } finally {
+            reader.close();
+        }
+    }
+}